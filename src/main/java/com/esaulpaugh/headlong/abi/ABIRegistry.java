@@ -0,0 +1,279 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.esaulpaugh.headlong.util.Strings.CHARSET_UTF_8;
+
+/**
+ * The functions and events of many contract ABIs, loaded from JSON files (plain ABI arrays or build artifacts) and
+ * deduplicated into a {@link SelectorIndex} and an {@link EventIndex}. Files are read and parsed on a
+ * {@link ForkJoinPool} when one is given; each leaf task reuses one Keccak digest for all of its files. Parsed files are
+ * then indexed serially in file order, so the result does not depend on scheduling. A file which fails to load is
+ * recorded with its error and does not affect the others.
+ *
+ * Timings are kept per phase. Read and parse times are summed over all workers; the others are wall-clock times.
+ */
+public final class ABIRegistry {
+
+    static final int THRESHOLD = 8; // files per leaf task
+
+    private final SelectorIndex functions = new SelectorIndex();
+    private final EventIndex events = new EventIndex();
+    private final List<Event> anonymousEvents = new ArrayList<>();
+    private final List<ABIObject> objects = new ArrayList<>();
+    private final Map<Path, Exception> errors = new LinkedHashMap<>();
+    private final int fileCount;
+
+    private final long listNanos;
+    private final long readNanos;
+    private final long parseNanos;
+    private final long loadNanos;
+    private final long indexNanos;
+
+    private ABIRegistry(Loader loader, long listNanos, long loadNanos) {
+        this.fileCount = loader.files.length;
+        this.listNanos = listNanos;
+        this.readNanos = loader.readNanos.sum();
+        this.parseNanos = loader.parseNanos.sum();
+        this.loadNanos = loadNanos;
+        final long start = System.nanoTime();
+        final Set<String> anonymousKeys = new HashSet<>();
+        for (int i = 0; i < loader.files.length; i++) {
+            if(loader.errors[i] != null) {
+                errors.put(loader.files[i], loader.errors[i]);
+                continue;
+            }
+            for (ABIObject o : loader.parsed.get(i)) {
+                final boolean added;
+                if(o instanceof Function) {
+                    added = functions.add((Function) o);
+                } else {
+                    final Event e = (Event) o;
+                    if(!e.isAnonymous()) {
+                        added = events.add(e);
+                    } else {
+                        added = anonymousKeys.add(e.signature() + Arrays.toString(e.getIndexManifest()));
+                        if(added) {
+                            anonymousEvents.add(e);
+                        }
+                    }
+                }
+                if(added) {
+                    objects.add(o);
+                }
+            }
+            loader.parsed.set(i, null);
+        }
+        this.indexNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Loads every file ending in ".json" in the directory and its subdirectories, in a single thread.
+     */
+    public static ABIRegistry load(Path directory) throws IOException {
+        return load(directory, null);
+    }
+
+    /**
+     * Loads every file ending in ".json" in the directory and its subdirectories.
+     *
+     * @param directory the directory
+     * @param pool  the pool on which to read and parse the files, or null to do so in the calling thread
+     * @return  the registry
+     * @throws IOException  if the directory cannot be listed
+     */
+    public static ABIRegistry load(Path directory, ForkJoinPool pool) throws IOException {
+        final long start = System.nanoTime();
+        final List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(p -> p.toString().endsWith(".json") && Files.isRegularFile(p))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        return load(files, pool, System.nanoTime() - start);
+    }
+
+    /**
+     * @param files the ABI or artifact files, indexed in this order
+     * @param pool  the pool on which to read and parse the files, or null to do so in the calling thread
+     * @return  the registry
+     */
+    public static ABIRegistry load(List<Path> files, ForkJoinPool pool) {
+        return load(files, pool, 0L);
+    }
+
+    private static ABIRegistry load(List<Path> files, ForkJoinPool pool, long listNanos) {
+        final long start = System.nanoTime();
+        final Loader loader = new Loader(files.toArray(new Path[0]));
+        if(pool != null && loader.files.length > THRESHOLD) {
+            pool.invoke(loader.new Task(0, loader.files.length));
+        } else {
+            loader.leaf(0, loader.files.length);
+        }
+        return new ABIRegistry(loader, listNanos, System.nanoTime() - start);
+    }
+
+    private static final class Loader {
+
+        final Path[] files;
+        final List<List<ABIObject>> parsed; // each slot is written by one task only
+        final Exception[] errors; // null where loading succeeded
+        final LongAdder readNanos = new LongAdder();
+        final LongAdder parseNanos = new LongAdder();
+
+        Loader(Path[] files) {
+            this.files = files;
+            this.parsed = new ArrayList<>(Collections.nCopies(files.length, null));
+            this.errors = new Exception[files.length];
+        }
+
+        void leaf(int from, int to) {
+            final MessageDigest digest = Function.newDefaultDigest();
+            long read = 0L, parse = 0L;
+            for (int i = from; i < to; i++) {
+                final long start = System.nanoTime();
+                long mid = 0L;
+                try {
+                    final byte[] bytes = Files.readAllBytes(files[i]);
+                    mid = System.nanoTime();
+                    parsed.set(i, ContractJSONParser.parseObjects(new InputStreamReader(new ByteArrayInputStream(bytes), CHARSET_UTF_8), digest));
+                } catch (Exception e) {
+                    errors[i] = e;
+                    digest.reset();
+                }
+                final long end = System.nanoTime();
+                if(mid == 0L) { // the read failed
+                    mid = end;
+                }
+                read += mid - start;
+                parse += end - mid;
+            }
+            readNanos.add(read);
+            parseNanos.add(parse);
+        }
+
+        private final class Task extends RecursiveAction {
+
+            private final int from, to;
+
+            Task(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if(to - from <= THRESHOLD) {
+                    leaf(from, to);
+                } else {
+                    final int mid = (from + to) >>> 1;
+                    invokeAll(new Task(from, mid), new Task(mid, to));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return  the deduplicated functions of all files loaded
+     */
+    public SelectorIndex getFunctions() {
+        return functions;
+    }
+
+    /**
+     * @return  the deduplicated non-anonymous events of all files loaded
+     */
+    public EventIndex getEvents() {
+        return events;
+    }
+
+    /**
+     * @return  the deduplicated functions and events, in the order in which they were first found, e.g. for
+     * {@link ABISnapshot#write(java.util.Collection, Path)}
+     */
+    public List<ABIObject> getObjects() {
+        return Collections.unmodifiableList(objects);
+    }
+
+    public List<Event> getAnonymousEvents() {
+        return Collections.unmodifiableList(anonymousEvents);
+    }
+
+    public int fileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return  the files which failed to load, in order, each with the exception thrown
+     */
+    public Map<Path, Exception> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return  the time spent listing the directory, or zero if the files were given
+     */
+    public long listNanos() {
+        return listNanos;
+    }
+
+    /**
+     * @return  the time spent reading files, summed over all workers
+     */
+    public long readNanos() {
+        return readNanos;
+    }
+
+    /**
+     * @return  the time spent parsing files, summed over all workers
+     */
+    public long parseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return  the elapsed time of the read and parse phase
+     */
+    public long loadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * @return  the time spent deduplicating and indexing the parsed functions and events
+     */
+    public long indexNanos() {
+        return indexNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ABIRegistry{files=" + fileCount + ", errors=" + errors.size()
+                + ", functions=" + functions.size() + ", events=" + (events.size() + anonymousEvents.size())
+                + ", listMillis=" + millis(listNanos) + ", readMillis=" + millis(readNanos)
+                + ", parseMillis=" + millis(parseNanos) + ", loadMillis=" + millis(loadNanos)
+                + ", indexMillis=" + millis(indexNanos) + '}';
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
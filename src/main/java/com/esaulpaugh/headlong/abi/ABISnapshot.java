@@ -0,0 +1,396 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.esaulpaugh.headlong.abi.Event.TOPIC_LEN;
+import static com.esaulpaugh.headlong.abi.Function.SELECTOR_LEN;
+import static com.esaulpaugh.headlong.util.Strings.CHARSET_UTF_8;
+
+/**
+ * A compact binary form of a list of {@link Function}s and {@link Event}s which loads without parsing signatures or
+ * hashing. Selectors and topic0 hashes are stored as computed, and each distinct string and type is stored once and
+ * referred to by index. Non-tuple types are created once per load and shared; tuple types, which may be compiled, are
+ * rebuilt for each function or event which uses them.
+ *
+ * Layout, big-endian: the magic number "HLAB", a two-byte format version, the CRC-32 of the body and the length of the
+ * body, followed by the body: the string table, the type table and the objects. Counts and indices are unsigned LEB128
+ * varints. A snapshot is checked against its length and checksum before anything is read from it.
+ */
+public final class ABISnapshot {
+
+    static final int MAGIC = 0x484C4142; // "HLAB"
+    static final short VERSION = 1;
+    static final int HEADER_LEN = Integer.BYTES + Short.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private static final byte KIND_SIMPLE = 0; // a type containing no tuple
+    private static final byte KIND_TUPLE = 1;
+    private static final byte KIND_TUPLE_ARRAY = 2;
+
+    private static final byte FUNCTION = 0;
+    private static final byte EVENT = 1;
+
+    private ABISnapshot() {}
+
+    public static void write(Collection<? extends ABIObject> objects, Path file) throws IOException {
+        Files.write(file, toByteArray(objects));
+    }
+
+    /**
+     * @param objects   the functions and events
+     * @return  the snapshot
+     */
+    public static byte[] toByteArray(Collection<? extends ABIObject> objects) {
+        final Writer writer = new Writer();
+        for (ABIObject o : objects) {
+            writer.write(o);
+        }
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeVarint(body, writer.strings.size());
+        for (String s : writer.strings) {
+            final byte[] bytes = s.getBytes(CHARSET_UTF_8);
+            writeVarint(body, bytes.length);
+            body.write(bytes, 0, bytes.length);
+        }
+        writeVarint(body, writer.typeCount);
+        append(body, writer.types);
+        writeVarint(body, objects.size());
+        append(body, writer.objects);
+
+        final byte[] bodyBytes = body.toByteArray();
+        final CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+        return ByteBuffer.allocate(HEADER_LEN + bodyBytes.length)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putInt((int) crc.getValue())
+                .putInt(bodyBytes.length)
+                .put(bodyBytes)
+                .array();
+    }
+
+    /**
+     * Maps the file into memory and reads the snapshot from it.
+     */
+    public static List<ABIObject> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads the snapshot from the buffer's position to its limit. The buffer's position is not changed.
+     *
+     * @param snapshot  the snapshot
+     * @return  the functions and events, in the order written
+     * @throws IllegalArgumentException if the snapshot is of an unknown version, truncated or corrupt
+     */
+    public static List<ABIObject> read(ByteBuffer snapshot) {
+        final ByteBuffer bb = snapshot.duplicate();
+        if(bb.remaining() < HEADER_LEN || bb.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a snapshot");
+        }
+        final short version = bb.getShort();
+        if(version != VERSION) {
+            throw new IllegalArgumentException("unsupported snapshot version: " + version);
+        }
+        final int checksum = bb.getInt();
+        final int len = bb.getInt();
+        if(len != bb.remaining()) {
+            throw new IllegalArgumentException("expected body length " + len + " but found " + bb.remaining());
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(bb.duplicate());
+        if((int) crc.getValue() != checksum) {
+            throw new IllegalArgumentException("checksum mismatch");
+        }
+        try {
+            return new Reader(bb).readObjects();
+        } catch (ParseException | RuntimeException e) {
+            throw new IllegalArgumentException("corrupt snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class Writer {
+
+        final List<String> strings = new ArrayList<>();
+        final Map<String, Integer> stringIds = new HashMap<>();
+        final Map<String, Integer> typeIds = new HashMap<>();
+        final ByteArrayOutputStream types = new ByteArrayOutputStream();
+        final ByteArrayOutputStream objects = new ByteArrayOutputStream();
+        int typeCount;
+
+        void write(ABIObject o) {
+            if(o instanceof Function) {
+                final Function f = (Function) o;
+                final int inputs = typeId(f.getParamTypes());
+                final int outputs = typeId(f.getOutputTypes());
+                objects.write(FUNCTION);
+                objects.write(f.getType().ordinal());
+                writeVarint(objects, stringId(f.getName()));
+                writeVarint(objects, inputs);
+                writeVarint(objects, outputs);
+                writeVarint(objects, stringId(f.getStateMutability()));
+                writeVarint(objects, stringId(f.getHashAlgorithm()));
+                objects.write(f.selector, 0, SELECTOR_LEN);
+            } else {
+                final Event e = (Event) o;
+                final int params = typeId(e.getParams());
+                objects.write(EVENT);
+                writeVarint(objects, stringId(e.getName()));
+                writeVarint(objects, params);
+                objects.write(e.isAnonymous() ? 1 : 0);
+                final boolean[] manifest = e.getIndexManifest();
+                for (int i = 0; i < manifest.length; i += Byte.SIZE) {
+                    int bits = 0;
+                    for (int j = i; j < Math.min(i + Byte.SIZE, manifest.length); j++) {
+                        if(manifest[j]) {
+                            bits |= 1 << (j - i);
+                        }
+                    }
+                    objects.write(bits);
+                }
+                if(!e.isAnonymous()) {
+                    objects.write(e.topic0(), 0, TOPIC_LEN);
+                }
+            }
+        }
+
+        /**
+         * @return  the index plus one of the string, or zero for null
+         */
+        int stringId(String s) {
+            if(s == null) {
+                return 0;
+            }
+            Integer id = stringIds.get(s);
+            if(id == null) {
+                strings.add(s);
+                stringIds.put(s, id = strings.size());
+            }
+            return id;
+        }
+
+        /**
+         * Writes the type, after any types it refers to, unless an identical one has been written already.
+         */
+        int typeId(ABIType<?> type) {
+            final int name = stringId(type.getName());
+            final String key;
+            final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+            if(type.typeCode() == ABIType.TYPE_CODE_TUPLE) {
+                final ABIType<?>[] elements = ((TupleType) type).elementTypes;
+                final StringBuilder sb = new StringBuilder("T").append(name);
+                entry.write(KIND_TUPLE);
+                writeVarint(entry, name);
+                writeVarint(entry, elements.length);
+                for (ABIType<?> e : elements) {
+                    final int id = typeId(e);
+                    sb.append(',').append(id);
+                    writeVarint(entry, id);
+                }
+                key = sb.toString();
+            } else if(type.canonicalType.indexOf('(') >= 0) { // an array of tuples
+                ABIType<?> base = type;
+                while (base.typeCode() == ABIType.TYPE_CODE_ARRAY) {
+                    base = ((ArrayType<?, ?>) base).elementType;
+                }
+                final int baseId = typeId(base);
+                final int suffix = stringId(type.canonicalType.substring(base.canonicalType.length()));
+                key = "A" + baseId + ',' + suffix + ',' + name;
+                entry.write(KIND_TUPLE_ARRAY);
+                writeVarint(entry, baseId);
+                writeVarint(entry, suffix);
+                writeVarint(entry, name);
+            } else {
+                final int canonical = stringId(type.canonicalType);
+                key = "S" + canonical + ',' + name;
+                entry.write(KIND_SIMPLE);
+                writeVarint(entry, canonical);
+                writeVarint(entry, name);
+            }
+            Integer id = typeIds.get(key);
+            if(id == null) {
+                append(types, entry);
+                typeIds.put(key, id = typeCount++);
+            }
+            return id;
+        }
+    }
+
+    private static final class Reader {
+
+        final ByteBuffer bb;
+        String[] strings; // strings[0] is null
+        byte[] kinds;
+        ABIType<?>[] simple;
+        int[][] children; // of each tuple, or the base tuple and suffix of each tuple array
+        String[] names;
+
+        Reader(ByteBuffer bb) {
+            this.bb = bb;
+        }
+
+        List<ABIObject> readObjects() throws ParseException {
+            strings = new String[readVarint(bb) + 1];
+            for (int i = 1; i < strings.length; i++) {
+                final byte[] bytes = new byte[readVarint(bb)];
+                bb.get(bytes);
+                strings[i] = new String(bytes, CHARSET_UTF_8);
+            }
+            final int typeCount = readVarint(bb);
+            kinds = new byte[typeCount];
+            simple = new ABIType<?>[typeCount];
+            children = new int[typeCount][];
+            names = new String[typeCount];
+            for (int i = 0; i < typeCount; i++) {
+                readType(i);
+            }
+            final int count = readVarint(bb);
+            final List<ABIObject> objects = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                objects.add(bb.get() == FUNCTION ? readFunction() : readEvent());
+            }
+            if(bb.hasRemaining()) {
+                throw new IllegalArgumentException("unexpected trailing bytes: " + bb.remaining());
+            }
+            return objects;
+        }
+
+        private void readType(int i) throws ParseException {
+            final byte kind = kinds[i] = bb.get();
+            switch (kind) {
+            case KIND_SIMPLE:
+                final String canonical = string(readVarint(bb));
+                simple[i] = TypeFactory.create(canonical, null, string(readVarint(bb)));
+                return;
+            case KIND_TUPLE:
+                names[i] = string(readVarint(bb));
+                final int[] elements = children[i] = new int[readVarint(bb)];
+                for (int j = 0; j < elements.length; j++) {
+                    elements[j] = reference(i);
+                }
+                return;
+            case KIND_TUPLE_ARRAY:
+                children[i] = new int[] { reference(i), readVarint(bb) };
+                names[i] = string(readVarint(bb));
+                return;
+            default: throw new IllegalArgumentException("unknown type kind: " + kind);
+            }
+        }
+
+        /**
+         * Reads the index of a type, which must precede the type at {@code index}.
+         */
+        private int reference(int index) {
+            final int id = readVarint(bb);
+            if(id >= index) {
+                throw new IllegalArgumentException("illegal type reference: " + id);
+            }
+            return id;
+        }
+
+        private String string(int id) {
+            return strings[id];
+        }
+
+        private ABIType<?> type(int id) throws ParseException {
+            switch (kinds[id]) {
+            case KIND_SIMPLE: return simple[id];
+            case KIND_TUPLE:
+                final int[] elements = children[id];
+                if(elements.length == 0) { // never name the shared TupleType.EMPTY
+                    return names[id] == null
+                            ? TupleType.EMPTY
+                            : new TupleType(TupleType.EMPTY.canonicalType, false, ABIType.EMPTY_TYPE_ARRAY).setName(names[id]);
+                }
+                final ArrayList<ABIType<?>> list = new ArrayList<>(elements.length);
+                for (int e : elements) {
+                    list.add(type(e));
+                }
+                final TupleType tuple = TupleType.create(list); // a new instance, as the list is not empty
+                return names[id] == null ? tuple : tuple.setName(names[id]);
+            default:
+                final int[] arrayOf = children[id];
+                return TypeFactory.createForTuple(tupleType(arrayOf[0]), string(arrayOf[1]), names[id]);
+            }
+        }
+
+        private TupleType tupleType(int id) throws ParseException {
+            if(id >= kinds.length || kinds[id] != KIND_TUPLE) {
+                throw new IllegalArgumentException("not a tuple type: " + id);
+            }
+            return (TupleType) type(id);
+        }
+
+        private Function readFunction() throws ParseException {
+            final Function.Type type = Function.Type.values()[bb.get()];
+            final String name = string(readVarint(bb));
+            final TupleType inputs = tupleType(readVarint(bb));
+            final TupleType outputs = tupleType(readVarint(bb));
+            final String stateMutability = string(readVarint(bb));
+            final String hashAlgorithm = string(readVarint(bb));
+            final byte[] selector = new byte[SELECTOR_LEN];
+            bb.get(selector);
+            return new Function(type, name, inputs, outputs, stateMutability, hashAlgorithm, selector);
+        }
+
+        private Event readEvent() throws ParseException {
+            final String name = string(readVarint(bb));
+            final TupleType params = tupleType(readVarint(bb));
+            final boolean anonymous = bb.get() != 0;
+            final boolean[] manifest = new boolean[params.elementTypes.length];
+            for (int i = 0; i < manifest.length; i += Byte.SIZE) {
+                final byte bits = bb.get();
+                for (int j = i; j < Math.min(i + Byte.SIZE, manifest.length); j++) {
+                    manifest[j] = (bits & (1 << (j - i))) != 0;
+                }
+            }
+            byte[] topic0 = null;
+            if(!anonymous) {
+                topic0 = new byte[TOPIC_LEN];
+                bb.get(topic0);
+            }
+            return new Event(name, params, manifest, anonymous, topic0);
+        }
+    }
+
+    private static void append(ByteArrayOutputStream dest, ByteArrayOutputStream src) {
+        final byte[] bytes = src.toByteArray();
+        dest.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int val) {
+        while ((val & ~0x7F) != 0) {
+            out.write((val & 0x7F) | 0x80);
+            val >>>= 7;
+        }
+        out.write(val);
+    }
+
+    private static int readVarint(ByteBuffer bb) {
+        int val = 0;
+        for (int shift = 0; ; shift += 7) {
+            final byte b = bb.get();
+            if(shift == 28 && (b & 0xF0) != 0) {
+                throw new IllegalArgumentException("varint too long");
+            }
+            val |= (b & 0x7F) << shift;
+            if(b >= 0) {
+                return val;
+            }
+        }
+    }
+}
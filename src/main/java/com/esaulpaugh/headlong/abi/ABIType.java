@@ -71,10 +71,10 @@ public abstract class ABIType<J> implements Serializable {
      * Decodes the data at the buffer's current position according to this {@link ABIType}.
      *
      * @param buffer    the buffer containing the encoded data
-     * @param unitBuffer a buffer of length {@link UnitType#UNIT_LENGTH_BYTES} in which to store intermediate values
+     * @param ctx the state of the decode in progress, including a buffer for intermediate values
      * @return  the decoded value
      */
-    abstract J decode(ByteBuffer buffer, byte[] unitBuffer);
+    abstract J decode(ByteBuffer buffer, DecodeContext ctx);
 
     void validateClass(Object value) {
         // may throw NPE
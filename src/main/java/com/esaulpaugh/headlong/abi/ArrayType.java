@@ -1,6 +1,7 @@
 package com.esaulpaugh.headlong.abi;
 
 import com.esaulpaugh.headlong.abi.util.ClassNames;
+import com.esaulpaugh.headlong.util.Strings;
 
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
@@ -29,6 +30,7 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
 
     final int length;
     /* transient */ final boolean isString;
+    /* transient */ final Class<?> uint256Clazz; // the class of values when BigIntegers are represented as UInt256; null if n/a
 
     ArrayType(String canonicalType, Class<?> clazz, boolean dynamic, T elementType, String arrayClassNameStub, int length) {
         super(canonicalType, clazz, dynamic);
@@ -39,6 +41,17 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
         }
         this.length = length;
         this.isString = String.class == clazz;
+        this.uint256Clazz = uint256Class(elementType);
+    }
+
+    private static Class<?> uint256Class(ABIType<?> elementType) {
+        switch (elementType.typeCode()) {
+        case TYPE_CODE_BIG_INTEGER: return UInt256[].class;
+        case TYPE_CODE_ARRAY:
+            final Class<?> elementClass = ((ArrayType<?, ?>) elementType).uint256Clazz;
+            return elementClass == null ? null : Array.newInstance(elementClass, 0).getClass();
+        default: return null;
+        }
     }
 
     public T getElementType() {
@@ -75,17 +88,16 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
         final ABIType<?> elementType = this.elementType;
         switch (elementType.typeCode()) {
         case TYPE_CODE_BOOLEAN: staticLen = ((boolean[]) value).length << LOG_2_UNIT_LENGTH_BYTES; break;
-        case TYPE_CODE_BYTE: staticLen =
-                roundLengthUp(
-                        (isString ? ((String) value).getBytes(CHARSET_UTF_8) : (byte[]) value).length
-                );
-                break;
+        case TYPE_CODE_BYTE: staticLen = roundLengthUp(byteArrayLength(value)); break;
         case TYPE_CODE_INT: staticLen = ((int[]) value).length << LOG_2_UNIT_LENGTH_BYTES; break;
         case TYPE_CODE_LONG: staticLen = ((long[]) value).length << LOG_2_UNIT_LENGTH_BYTES; break;
         case TYPE_CODE_BIG_INTEGER:
         case TYPE_CODE_BIG_DECIMAL: staticLen = ((Number[]) value).length << LOG_2_UNIT_LENGTH_BYTES; break;
         case TYPE_CODE_ARRAY:
         case TYPE_CODE_TUPLE:
+            if(!dynamic) {
+                return TupleType.headLength(this);
+            }
             final Object[] elements = (Object[]) value;
             final int len = elements.length;
             staticLen = 0;
@@ -96,7 +108,7 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
                 // 32 bytes per offset, 32 for array length
                 return (len << LOG_2_UNIT_LENGTH_BYTES) + ARRAY_LENGTH_BYTE_LEN + staticLen;
             }
-            return staticLen;
+            break;
         default: throw new IllegalArgumentException("unrecognized type: " + elementType.toString());
         }
 
@@ -109,7 +121,7 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
         final ABIType<?> elementType = this.elementType;
         switch (elementType.typeCode()) {
         case TYPE_CODE_BOOLEAN: return ((boolean[]) value).length; // * 1
-        case TYPE_CODE_BYTE: return (isString ? ((String) value).getBytes(CHARSET_UTF_8) : (byte[]) value).length; // * 1
+        case TYPE_CODE_BYTE: return byteArrayLength(value); // * 1
         case TYPE_CODE_INT: return ((int[]) value).length * elementType.byteLengthPacked(null);
         case TYPE_CODE_LONG: return ((long[]) value).length * elementType.byteLengthPacked(null);
         case TYPE_CODE_BIG_INTEGER:
@@ -132,84 +144,140 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Also accepts the {@link UInt256} form of arrays of {@code BigInteger}s.
+     */
+    @Override
+    void validateClass(Object value) {
+        if(value.getClass() != uint256Clazz) {
+            super.validateClass(value);
+        }
+    }
+
     @Override
     public int validate(final Object value) {
         validateClass(value);
+        if(elementType.typeCode() == TYPE_CODE_BYTE) {
+            final int staticLen = roundLengthUp(checkLength(byteArrayLength(value), value));
+            return dynamic ? ARRAY_LENGTH_BYTE_LEN + staticLen : staticLen;
+        }
+        final int len = checkLength(arrayLength(value), value);
+        return headerLength(len) + validateElements(value, 0, len);
+    }
 
-        final int staticLen;
+    /**
+     * Returns the number of elements in a value whose element type is not {@code byte}. The value's class must already
+     * have been validated.
+     */
+    int arrayLength(Object value) {
         switch (elementType.typeCode()) {
-        case TYPE_CODE_BOOLEAN: staticLen = checkLength(((boolean[]) value).length, value) << LOG_2_UNIT_LENGTH_BYTES; break;
-        case TYPE_CODE_BYTE:
-            byte[] bytes = isString ? ((String) value).getBytes(CHARSET_UTF_8) : (byte[]) value;
-            staticLen = roundLengthUp(checkLength(bytes.length, value));
-            break;
-        case TYPE_CODE_INT: staticLen = validateIntArray((int[]) value); break;
-        case TYPE_CODE_LONG: staticLen = validateLongArray((long[]) value); break;
-        case TYPE_CODE_BIG_INTEGER: staticLen = validateBigIntegerArray((BigInteger[]) value); break;
-        case TYPE_CODE_BIG_DECIMAL: staticLen = validateBigDecimalArray((BigDecimal[]) value); break;
+        case TYPE_CODE_BOOLEAN: return ((boolean[]) value).length;
+        case TYPE_CODE_INT: return ((int[]) value).length;
+        case TYPE_CODE_LONG: return ((long[]) value).length;
+        case TYPE_CODE_BIG_INTEGER:
+        case TYPE_CODE_BIG_DECIMAL:
         case TYPE_CODE_ARRAY:
-        case TYPE_CODE_TUPLE: staticLen = validateObjectArray((Object[]) value); break;
+        case TYPE_CODE_TUPLE: return ((Object[]) value).length;
         default: throw new IllegalArgumentException("unrecognized type: " + value.getClass().getName());
         }
+    }
 
-        return dynamic ? ARRAY_LENGTH_BYTE_LEN + staticLen : staticLen;
+    /**
+     * Returns the length of everything but the elements' own encodings: the array length, if dynamic, and the
+     * elements' offsets, if they are dynamic.
+     */
+    int headerLength(int len) {
+        final int offsetsLen = elementType.dynamic ? len << LOG_2_UNIT_LENGTH_BYTES : 0; // 32 bytes per offset
+        return dynamic ? ARRAY_LENGTH_BYTE_LEN + offsetsLen : offsetsLen;
+    }
+
+    /**
+     * Validates the elements in the range [{@code from}, {@code to}) of a value whose element type is not
+     * {@code byte}, returning the sum of their encoded lengths.
+     */
+    int validateElements(Object value, int from, int to) {
+        switch (elementType.typeCode()) {
+        case TYPE_CODE_BOOLEAN: return (to - from) << LOG_2_UNIT_LENGTH_BYTES;
+        case TYPE_CODE_INT: return validateIntArray((int[]) value, from, to);
+        case TYPE_CODE_LONG: return validateLongArray((long[]) value, from, to);
+        case TYPE_CODE_BIG_INTEGER:
+            return value instanceof UInt256[]
+                    ? validateUInt256Array((UInt256[]) value, from, to)
+                    : validateBigIntegerArray((BigInteger[]) value, from, to);
+        case TYPE_CODE_BIG_DECIMAL: return validateBigDecimalArray((BigDecimal[]) value, from, to);
+        case TYPE_CODE_ARRAY:
+        case TYPE_CODE_TUPLE: return validateObjectArray((Object[]) value, from, to);
+        default: throw new IllegalArgumentException("unrecognized type: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * Returns the length of a {@code byte[]} or, for strings, of the UTF-8 encoding, without allocating.
+     */
+    int byteArrayLength(Object value) {
+        return isString ? Strings.utf8Length((String) value) : ((byte[]) value).length;
     }
 
-    private int validateIntArray(int[] arr) {
+    private int validateIntArray(int[] arr, int from, int to) {
         IntType intType = (IntType) elementType;
-        final int len = arr.length;
-        checkLength(len, arr);
-        int i = 0;
+        int i = from;
         try {
-            for ( ; i < len; i++) {
+            for ( ; i < to; i++) {
                 // validate without boxing primitive
                 intType.validatePrimitiveElement(arr[i]);
             }
         } catch (IllegalArgumentException | NullPointerException re) {
             throw new IllegalArgumentException("index " + i + ": " + re.getMessage(), re);
         }
-        return len << LOG_2_UNIT_LENGTH_BYTES; // mul 32
+        return (to - from) << LOG_2_UNIT_LENGTH_BYTES; // mul 32
     }
 
-    private int validateLongArray(long[] arr) {
+    private int validateLongArray(long[] arr, int from, int to) {
         LongType longType = (LongType) elementType;
-        final int len = arr.length;
-        checkLength(len, arr);
-        int i = 0;
+        int i = from;
         try {
-            for ( ; i < len; i++) {
+            for ( ; i < to; i++) {
                 // validate without boxing primitive
                 longType.validatePrimitiveElement(arr[i]);
             }
         } catch (IllegalArgumentException | NullPointerException re) {
             throw new IllegalArgumentException("index " + i + ": " + re.getMessage(), re);
         }
-        return len << LOG_2_UNIT_LENGTH_BYTES; // mul 32
+        return (to - from) << LOG_2_UNIT_LENGTH_BYTES; // mul 32
     }
 
-    private int validateBigIntegerArray(BigInteger[] bigIntegers) {
-        final int len = bigIntegers.length;
-        checkLength(len, bigIntegers);
+    private int validateBigIntegerArray(BigInteger[] bigIntegers, int from, int to) {
         BigIntegerType bigIntegerType = (BigIntegerType) elementType;
-        int i = 0;
+        int i = from;
         try {
-            for ( ; i < len; i++) {
+            for ( ; i < to; i++) {
                 bigIntegerType.validateBigIntBitLen(bigIntegers[i]);
             }
         } catch (IllegalArgumentException | NullPointerException re) {
             throw new IllegalArgumentException("index " + i + ": " + re.getMessage(), re);
         }
-        return len << LOG_2_UNIT_LENGTH_BYTES; // mul 32
+        return (to - from) << LOG_2_UNIT_LENGTH_BYTES; // mul 32
     }
 
-    private int validateBigDecimalArray(BigDecimal[] bigDecimals) {
-        final int len = bigDecimals.length;
-        checkLength(len, bigDecimals);
+    private int validateUInt256Array(UInt256[] values, int from, int to) {
+        BigIntegerType bigIntegerType = (BigIntegerType) elementType;
+        int i = from;
+        try {
+            for ( ; i < to; i++) {
+                bigIntegerType.validateUInt256(values[i]);
+            }
+        } catch (IllegalArgumentException | NullPointerException re) {
+            throw new IllegalArgumentException("index " + i + ": " + re.getMessage(), re);
+        }
+        return (to - from) << LOG_2_UNIT_LENGTH_BYTES; // mul 32
+    }
+
+    private int validateBigDecimalArray(BigDecimal[] bigDecimals, int from, int to) {
         BigDecimalType bigDecimalType = (BigDecimalType) elementType;
         final int scale = bigDecimalType.scale;
-        int i = 0;
+        int i = from;
         try {
-            for ( ; i < len; i++) {
+            for ( ; i < to; i++) {
                 BigDecimal element = bigDecimals[i];
                 if(element.scale() != scale) {
                     throw new IllegalArgumentException("unexpected scale: " + element.scale());
@@ -219,19 +287,17 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
         } catch (IllegalArgumentException | NullPointerException re) {
             throw new IllegalArgumentException("index " + i + ": " + re.getMessage(), re);
         }
-        return len << LOG_2_UNIT_LENGTH_BYTES; // mul 32
+        return (to - from) << LOG_2_UNIT_LENGTH_BYTES; // mul 32
     }
 
     /**
-     * For arrays of arrays or arrays of tuples only.
+     * For arrays of arrays or arrays of tuples only. Excludes offsets.
      */
-    private int validateObjectArray(Object[] arr) {
-        final int len = arr.length;
-        checkLength(len, arr);
-        int byteLength = elementType.dynamic ? len << LOG_2_UNIT_LENGTH_BYTES : 0; // 32 bytes per offset
-        int i = 0;
+    private int validateObjectArray(Object[] arr, int from, int to) {
+        int byteLength = 0;
+        int i = from;
         try {
-            for ( ; i < len; i++) {
+            for ( ; i < to; i++) {
                 byteLength += elementType.validate(arr[i]);
             }
         } catch (IllegalArgumentException | NullPointerException re) {
@@ -240,7 +306,7 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
         return byteLength;
     }
 
-    private int checkLength(final int valueLength, Object value) {
+    int checkLength(final int valueLength, Object value) {
         final int expected = this.length;
         if(expected != DYNAMIC_LENGTH) { // -1
             if (valueLength != expected) {
@@ -256,29 +322,57 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
 
     @Override
     @SuppressWarnings("unchecked")
-    J decode(ByteBuffer bb, byte[] elementBuffer) {
-        final int arrayLen;
+    J decode(ByteBuffer bb, DecodeContext ctx) {
+        final int arrayLen = decodeLength(bb, ctx);
+        switch (elementType.typeCode()) {
+        case TYPE_CODE_BOOLEAN: return (J) decodeBooleanArray(bb, arrayLen, ctx.unitBuffer);
+        case TYPE_CODE_BYTE: return (J) decodeByteArray(bb, arrayLen);
+        case TYPE_CODE_INT: return (J) decodeIntArray((IntType) elementType, bb, arrayLen, ctx.unitBuffer);
+        case TYPE_CODE_LONG: return (J) decodeLongArray((LongType) elementType, bb, arrayLen, ctx.unitBuffer);
+        case TYPE_CODE_BIG_INTEGER:
+            return ctx.uint256
+                    ? (J) decodeUInt256Array((BigIntegerType) elementType, bb, arrayLen)
+                    : (J) decodeBigIntegerArray((BigIntegerType) elementType, bb, arrayLen, ctx.unitBuffer);
+        case TYPE_CODE_BIG_DECIMAL: return (J) decodeBigDecimalArray((BigDecimalType) elementType, bb, arrayLen, ctx.unitBuffer);
+        case TYPE_CODE_ARRAY:  return (J) decodeObjectArray(arrayLen, bb, ctx, false);
+        case TYPE_CODE_TUPLE: return (J) decodeObjectArray(arrayLen, bb, ctx, true);
+        default: throw new IllegalArgumentException("unrecognized type: " + elementType.toString());
+        }
+    }
+
+    /**
+     * Reads the length of a dynamic array, or returns the fixed length of a static one.
+     */
+    int decodeLength(ByteBuffer bb, DecodeContext ctx) {
         if(dynamic) {
-            arrayLen = ARRAY_LENGTH_TYPE.decode(bb, elementBuffer);
+            final int arrayLen = ARRAY_LENGTH_TYPE.decode(bb, ctx);
             final int expectedLen = this.length;
             if(expectedLen != DYNAMIC_LENGTH && arrayLen != expectedLen) {
                 throw new IllegalArgumentException("array length mismatch @ "
                         + (bb.position() - ARRAY_LENGTH_BYTE_LEN)
                         + ": actual != expected: " + arrayLen + " != " + expectedLen);
             }
-        } else {
-            arrayLen = length;
+            return arrayLen;
         }
+        return length;
+    }
 
+    /**
+     * Decodes a single element at the buffer's position exactly as {@link #decode(ByteBuffer, DecodeContext)} would
+     * within an array, which for some integer types is more lenient than decoding a lone value.
+     */
+    Object decodeElement(ByteBuffer bb, DecodeContext ctx) {
         switch (elementType.typeCode()) {
-        case TYPE_CODE_BOOLEAN: return (J) decodeBooleanArray(bb, arrayLen, elementBuffer);
-        case TYPE_CODE_BYTE: return (J) decodeByteArray(bb, arrayLen);
-        case TYPE_CODE_INT: return (J) decodeIntArray((IntType) elementType, bb, arrayLen, elementBuffer);
-        case TYPE_CODE_LONG: return (J) decodeLongArray((LongType) elementType, bb, arrayLen, elementBuffer);
-        case TYPE_CODE_BIG_INTEGER: return (J) decodeBigIntegerArray((BigIntegerType) elementType, bb, arrayLen, elementBuffer);
-        case TYPE_CODE_BIG_DECIMAL: return (J) decodeBigDecimalArray((BigDecimalType) elementType, bb, arrayLen, elementBuffer);
-        case TYPE_CODE_ARRAY:  return (J) decodeObjectArray(arrayLen, bb, elementBuffer, false);
-        case TYPE_CODE_TUPLE: return (J) decodeObjectArray(arrayLen, bb, elementBuffer, true);
+        case TYPE_CODE_BOOLEAN: return decodeBooleanArray(bb, 1, ctx.unitBuffer)[0];
+        case TYPE_CODE_INT: return decodeIntArray((IntType) elementType, bb, 1, ctx.unitBuffer)[0];
+        case TYPE_CODE_LONG: return decodeLongArray((LongType) elementType, bb, 1, ctx.unitBuffer)[0];
+        case TYPE_CODE_BIG_INTEGER:
+            return ctx.uint256
+                    ? decodeUInt256Array((BigIntegerType) elementType, bb, 1)[0]
+                    : decodeBigIntegerArray((BigIntegerType) elementType, bb, 1, ctx.unitBuffer)[0];
+        case TYPE_CODE_BIG_DECIMAL: return decodeBigDecimalArray((BigDecimalType) elementType, bb, 1, ctx.unitBuffer)[0];
+        case TYPE_CODE_ARRAY:
+        case TYPE_CODE_TUPLE: return elementType.decode(bb, ctx);
         default: throw new IllegalArgumentException("unrecognized type: " + elementType.toString());
         }
     }
@@ -333,11 +427,22 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
     private static BigInteger[] decodeBigIntegerArray(BigIntegerType bigIntegerType, ByteBuffer bb, int arrayLen, byte[] elementBuffer) {
         BigInteger[] bigInts = new BigInteger[arrayLen];
         for (int i = 0; i < arrayLen; i++) {
-            bigInts[i] = getBigIntElement(bigIntegerType, bb, elementBuffer);
+            bb.get(elementBuffer, 0, UNIT_LENGTH_BYTES);
+            BigInteger bigInt = bigIntegerType.toBigInteger(elementBuffer);
+            bigIntegerType.validateBigIntElement(bigInt);
+            bigInts[i] = bigInt;
         }
         return bigInts;
     }
 
+    private static UInt256[] decodeUInt256Array(BigIntegerType bigIntegerType, ByteBuffer bb, int arrayLen) {
+        UInt256[] values = new UInt256[arrayLen];
+        for (int i = 0; i < arrayLen; i++) {
+            values[i] = bigIntegerType.decodeUInt256(bb);
+        }
+        return values;
+    }
+
     private static BigDecimal[] decodeBigDecimalArray(BigDecimalType bigDecimalType, ByteBuffer bb, int arrayLen, byte[] elementBuffer) {
         BigDecimal[] bigDecs = new BigDecimal[arrayLen];
         final int scale = bigDecimalType.scale;
@@ -368,52 +473,52 @@ public class ArrayType<T extends ABIType<?>, J> extends ABIType<J> {
         return bigInt;
     }
 
-    private Object[] decodeObjectArray(int arrayLen, ByteBuffer bb, byte[] elementBuffer, boolean tupleArray) {
+    private Object[] decodeObjectArray(int arrayLen, ByteBuffer bb, DecodeContext ctx, boolean tupleArray) {
 
 //        final int index = bb.position(); // TODO must pass index to decodeObjectArrayTails if you want to support lenient mode
 
         final ABIType<?> elementType = this.elementType;
-        Object[] dest;
-        if(tupleArray) {
-            dest = new Tuple[arrayLen];
-        } else {
-            dest = (Object[]) Array.newInstance(elementType.clazz, arrayLen); // reflection ftw
-        }
-
-        int[] offsets = new int[arrayLen];
+        Object[] dest = newObjectArray(arrayLen, ctx, tupleArray);
 
-        decodeObjectArrayHeads(elementType, bb, offsets, elementBuffer, dest);
-
-        if(this.dynamic) {
-            decodeObjectArrayTails(elementType, bb, offsets, elementBuffer, dest);
+        if(!elementType.dynamic) {
+            for (int i = 0; i < arrayLen; i++) {
+                dest[i] = elementType.decode(bb, ctx);
+            }
+            return dest;
+        }
+        final int base = ctx.pushOffsets(arrayLen);
+        try {
+            for (int i = 0; i < arrayLen; i++) {
+                final int offset = CallEncoder.OFFSET_TYPE.decode(bb, ctx);
+                ctx.offsets[base + i] = offset;
+            }
+            decodeObjectArrayTails(elementType, bb, base, arrayLen, ctx, dest);
+        } finally {
+            ctx.popOffsets(base);
         }
         return dest;
     }
 
-    private static void decodeObjectArrayHeads(ABIType<?> elementType, ByteBuffer bb, final int[] offsets, byte[] elementBuffer, final Object[] dest) {
-        final int len = offsets.length;
-        if(elementType.dynamic) {
-            for (int i = 0; i < len; i++) {
-                offsets[i] = CallEncoder.OFFSET_TYPE.decode(bb, elementBuffer);
-            }
-        } else {
-            for (int i = 0; i < len; i++) {
-                dest[i] = elementType.decode(bb, elementBuffer);
-            }
+    Object[] newObjectArray(int arrayLen, DecodeContext ctx, boolean tupleArray) {
+        if(tupleArray) {
+            return new Tuple[arrayLen];
+        }
+        if(ctx.uint256 && uint256Clazz != null) {
+            return (Object[]) Array.newInstance(uint256Clazz.getComponentType(), arrayLen);
         }
+        return (Object[]) Array.newInstance(elementType.clazz, arrayLen); // reflection ftw
     }
 
-    private static void decodeObjectArrayTails(ABIType<?> elementType, ByteBuffer bb, final int[] offsets, byte[] elementBuffer, final Object[] dest) {
-        final int len = offsets.length;
+    private static void decodeObjectArrayTails(ABIType<?> elementType, ByteBuffer bb, int base, int len, DecodeContext ctx, final Object[] dest) {
         for (int i = 0; i < len; i++) {
-            int offset = offsets[i];
+            int offset = ctx.offsets[base + i];
             if (offset > 0) {
                 /* OPERATES IN STRICT MODE see https://github.com/ethereum/solidity/commit/3d1ca07e9b4b42355aa9be5db5c00048607986d1 */
 //                if(bb.position() != index + offset) {
 //                    System.err.println(ArrayType.class.getName() + " setting " + bb.position() + " to " + (index + offset) + ", offset=" + offset);
 //                    bb.position(index + offset);
 //                }
-                dest[i] = elementType.decode(bb, elementBuffer);
+                dest[i] = elementType.decode(bb, ctx);
             }
         }
     }
@@ -0,0 +1,100 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.ByteBuffer;
+
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_TUPLE;
+import static com.esaulpaugh.headlong.abi.UnitType.LOG_2_UNIT_LENGTH_BYTES;
+import static com.esaulpaugh.headlong.abi.UnitType.UNIT_LENGTH_BYTES;
+
+/**
+ * A read-only view of an encoded array which decodes each element only when asked. See {@link TupleView}.
+ */
+public final class ArrayView {
+
+    private final ArrayType<?, ?> type;
+    private final ByteBuffer buffer;
+    private final DecodeContext ctx;
+    private final int length;
+    private final int start; // index of the first element's head
+    private final int elementLen; // head length of static elements
+    private final int[] positions; // absolute index of each dynamic element's encoding; null if elements are static
+
+    private ArrayView(ArrayType<?, ?> type, ByteBuffer buffer, int index, DecodeContext ctx) {
+        this.type = type;
+        this.buffer = buffer;
+        this.ctx = ctx;
+        if(type.dynamic) {
+            buffer.position(index);
+            this.length = CallEncoder.OFFSET_TYPE.decode(buffer, ctx);
+            if(length < 0 || (type.length != ArrayType.DYNAMIC_LENGTH && length != type.length)) {
+                throw new IllegalArgumentException("array length mismatch @ " + index + ": actual != expected: " + length + " != " + type.length);
+            }
+            this.start = index + UNIT_LENGTH_BYTES;
+        } else {
+            this.length = type.length;
+            this.start = index;
+        }
+        final ABIType<?> elementType = type.elementType;
+        this.elementLen = TupleType.headLength(elementType);
+        if(elementType.dynamic) {
+            if((long) length << LOG_2_UNIT_LENGTH_BYTES > buffer.limit() - start) {
+                throw new IllegalArgumentException("array length exceeds buffer @ " + index + ": " + length);
+            }
+            final int[] positions = new int[length];
+            for (int i = 0; i < length; i++) {
+                positions[i] = TupleView.resolve(buffer, start, start + (i << LOG_2_UNIT_LENGTH_BYTES), ctx);
+            }
+            this.positions = positions;
+        } else {
+            this.positions = null;
+        }
+    }
+
+    static ArrayView of(ABIType<?> type, ByteBuffer buffer, int index, DecodeContext ctx) {
+        if(!TupleView.viewable(type)) {
+            throw new IllegalArgumentException("not a viewable array: " + type.canonicalType);
+        }
+        return new ArrayView((ArrayType<?, ?>) type, buffer, index, ctx);
+    }
+
+    public ArrayType<?, ?> getType() {
+        return type;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    private int position(int index) {
+        if(index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return positions != null ? positions[index] : start + index * elementLen;
+    }
+
+    /**
+     * Decodes and returns the element at {@code index}.
+     */
+    public Object get(int index) {
+        buffer.position(position(index));
+        return type.decodeElement(buffer, ctx);
+    }
+
+    /**
+     * Returns a view of the tuple at {@code index} without decoding any of it.
+     */
+    public TupleView getTuple(int index) {
+        final ABIType<?> elementType = type.elementType;
+        if(elementType.typeCode() != TYPE_CODE_TUPLE) {
+            throw new IllegalArgumentException("not a tuple: " + elementType.canonicalType);
+        }
+        return new TupleView((TupleType) elementType, buffer, position(index), ctx);
+    }
+
+    /**
+     * Returns a view of the array at {@code index} without decoding any of it.
+     */
+    public ArrayView getArray(int index) {
+        return of(type.elementType, buffer, position(index), ctx);
+    }
+}
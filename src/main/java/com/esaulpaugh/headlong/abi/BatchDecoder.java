@@ -0,0 +1,70 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes many return values, each against its own {@link Function}'s output types. Work is split across a
+ * {@link ForkJoinPool} when one is given; each leaf task reuses one {@link DecodeContext} for all of its results. A
+ * result which fails to decode is recorded in place and does not affect the others.
+ */
+final class BatchDecoder {
+
+    static final int THRESHOLD = 256; // results per leaf task
+
+    private final Function[] functions;
+    private final byte[][] results;
+    private final Tuple[] decoded;
+    private final RuntimeException[] errors;
+
+    private BatchDecoder(Function[] functions, byte[][] results) {
+        this.functions = functions;
+        this.results = results;
+        this.decoded = new Tuple[results.length];
+        this.errors = new RuntimeException[results.length];
+    }
+
+    static DecodedBatch decodeReturns(Function[] functions, byte[][] results, ForkJoinPool pool) {
+        if(functions.length != results.length) {
+            throw new IllegalArgumentException("functions.length != results.length: " + functions.length + " != " + results.length);
+        }
+        final BatchDecoder batch = new BatchDecoder(functions, results);
+        if(pool != null && results.length > THRESHOLD) {
+            pool.invoke(batch.new Task(0, results.length));
+        } else {
+            batch.leaf(0, results.length);
+        }
+        return new DecodedBatch(batch.decoded, batch.errors);
+    }
+
+    private void leaf(int from, int to) {
+        final DecodeContext ctx = new DecodeContext();
+        for (int i = from; i < to; i++) {
+            try {
+                decoded[i] = functions[i].decodeReturn(results[i], ctx);
+            } catch (RuntimeException e) {
+                errors[i] = e;
+            }
+        }
+    }
+
+    private final class Task extends RecursiveAction {
+
+        private final int from, to;
+
+        Task(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= THRESHOLD) {
+                leaf(from, to);
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new Task(from, mid), new Task(mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Encodes many calls to one {@link Function} into a single array in two passes: the first validates every call and
+ * records its length, the second encodes each call at its prefix-sum offset. Both passes are split across a
+ * {@link ForkJoinPool} when one is given.
+ */
+final class BatchEncoder {
+
+    static final int THRESHOLD = 256; // calls per leaf task
+
+    private final Function function;
+    private final Tuple[] calls;
+    private final int[] offsets;
+    private byte[] array;
+
+    private int failureIndex = Integer.MAX_VALUE;
+    private IllegalArgumentException failure;
+
+    private BatchEncoder(Function function, Tuple[] calls) {
+        this.function = function;
+        this.calls = calls;
+        this.offsets = new int[calls.length + 1];
+    }
+
+    static EncodedBatch encode(Function function, Iterable<? extends Tuple> calls, ForkJoinPool pool) {
+        final Collection<? extends Tuple> collection;
+        if(calls instanceof Collection) {
+            collection = (Collection<? extends Tuple>) calls;
+        } else {
+            ArrayList<Tuple> list = new ArrayList<>();
+            for (Tuple call : calls) {
+                list.add(call);
+            }
+            collection = list;
+        }
+        final BatchEncoder batch = new BatchEncoder(function, collection.toArray(new Tuple[0]));
+        batch.run(pool, false);
+        batch.allocate();
+        batch.run(pool, true);
+        return new EncodedBatch(batch.array, batch.offsets);
+    }
+
+    private void run(ForkJoinPool pool, boolean encode) {
+        if(pool != null && calls.length > THRESHOLD) {
+            pool.invoke(new Task(0, calls.length, encode));
+        } else {
+            leaf(0, calls.length, encode);
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Converts the per-call lengths stored at {@code offsets[i + 1]} into start offsets.
+     */
+    private void allocate() {
+        long total = 0;
+        for (int i = 1; i < offsets.length; i++) {
+            total += offsets[i];
+            if(total > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("batch too large: exceeds " + Integer.MAX_VALUE + " bytes at call " + (i - 1));
+            }
+            offsets[i] = (int) total;
+        }
+        array = new byte[(int) total];
+    }
+
+    private void leaf(int from, int to, boolean encode) {
+        int i = from;
+        try {
+            if(encode) {
+                final ByteBuffer dest = ByteBuffer.wrap(array);
+                for ( ; i < to; i++) {
+                    dest.position(offsets[i]);
+                    CallEncoder.encodeCall(function, calls[i], dest);
+                }
+            } else {
+                for ( ; i < to; i++) {
+                    offsets[i + 1] = function.callLength(calls[i]);
+                }
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            fail(i, e);
+        }
+    }
+
+    /**
+     * Keeps the failure with the lowest index so that the reported error does not depend on scheduling.
+     */
+    private synchronized void fail(int index, RuntimeException e) {
+        if(index < failureIndex) {
+            failureIndex = index;
+            failure = new IllegalArgumentException("call @ " + index + ": " + e.getMessage(), e);
+        }
+    }
+
+    private final class Task extends RecursiveAction {
+
+        private final int from, to;
+        private final boolean encode;
+
+        Task(int from, int to, boolean encode) {
+            this.from = from;
+            this.to = to;
+            this.encode = encode;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= THRESHOLD) {
+                leaf(from, to, encode);
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new Task(from, mid, encode), new Task(mid, to, encode));
+            }
+        }
+    }
+}
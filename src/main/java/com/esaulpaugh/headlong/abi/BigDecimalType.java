@@ -52,9 +52,9 @@ class BigDecimalType extends UnitType<BigDecimal> {
     }
 
     @Override
-    BigDecimal decode(ByteBuffer bb, byte[] unitBuffer) {
-        bb.get(unitBuffer, 0, UNIT_LENGTH_BYTES);
-        BigInteger bi = new BigInteger(unitBuffer);
+    BigDecimal decode(ByteBuffer bb, DecodeContext ctx) {
+        bb.get(ctx.unitBuffer, 0, UNIT_LENGTH_BYTES);
+        BigInteger bi = new BigInteger(ctx.unitBuffer);
         BigDecimal dec = new BigDecimal(bi, scale);
         validateBigIntBitLen(bi);
         return dec;
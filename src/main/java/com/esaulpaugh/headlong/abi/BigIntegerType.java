@@ -5,7 +5,7 @@ import com.esaulpaugh.headlong.abi.util.ClassNames;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 
-class BigIntegerType extends UnitType<BigInteger> {
+class BigIntegerType extends UnitType<Number> { // BigInteger, or UInt256 when requested
 
     static final Class<?> CLASS = BigInteger.class;
     private static final String ARRAY_CLASS_NAME_STUB = ClassNames.getArrayClassNameStub(BigInteger[].class);
@@ -38,16 +38,45 @@ class BigIntegerType extends UnitType<BigInteger> {
 
     @Override
     public int validate(Object value) {
-        validateClass(value);
-        validateBigIntBitLen((BigInteger) value);
+        if(value instanceof UInt256) {
+            validateUInt256((UInt256) value);
+        } else {
+            validateClass(value);
+            validateBigIntBitLen((BigInteger) value);
+        }
         return UNIT_LENGTH_BYTES;
     }
 
+    void validateUInt256(UInt256 value) {
+        final int bitLen = unsigned ? value.bitLength() : value.signedBitLength();
+        if(bitLen > bitLength) {
+            throw new IllegalArgumentException("exceeds bit limit: " + bitLen + " > " + bitLength);
+        }
+    }
+
     @Override
-    BigInteger decode(ByteBuffer bb, byte[] unitBuffer) {
-        bb.get(unitBuffer, 0, UNIT_LENGTH_BYTES);
-        BigInteger bi = new BigInteger(unitBuffer);
+    Number decode(ByteBuffer bb, DecodeContext ctx) {
+        if(ctx.uint256) {
+            return decodeUInt256(bb);
+        }
+        bb.get(ctx.unitBuffer, 0, UNIT_LENGTH_BYTES);
+        BigInteger bi = toBigInteger(ctx.unitBuffer);
         validateBigIntBitLen(bi);
         return bi;
     }
+
+    UInt256 decodeUInt256(ByteBuffer bb) {
+        UInt256 val = new UInt256(bb.getLong(), bb.getLong(), bb.getLong(), bb.getLong());
+        validateUInt256(val);
+        return val;
+    }
+
+    /**
+     * The top bit of a uint256 is not a sign bit.
+     */
+    BigInteger toBigInteger(byte[] unit) {
+        return unsigned && bitLength == UNIT_LENGTH_BITS
+                ? new BigInteger(1, unit)
+                : new BigInteger(unit);
+    }
 }
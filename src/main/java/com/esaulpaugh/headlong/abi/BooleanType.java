@@ -15,7 +15,7 @@ class BooleanType extends UnitType<Boolean> {
 
     static final BooleanType INSTANCE = new BooleanType();
 
-    private BooleanType() {
+    BooleanType() {
         super("bool", CLASS, 1, true);
     }
 
@@ -48,9 +48,9 @@ class BooleanType extends UnitType<Boolean> {
     }
 
     @Override
-    Boolean decode(ByteBuffer bb, byte[] unitBuffer) {
-        bb.get(unitBuffer, 0, UNIT_LENGTH_BYTES);
-        BigInteger bi = new BigInteger(unitBuffer);
+    Boolean decode(ByteBuffer bb, DecodeContext ctx) {
+        bb.get(ctx.unitBuffer, 0, UNIT_LENGTH_BYTES);
+        BigInteger bi = new BigInteger(ctx.unitBuffer);
         validateBigIntBitLen(bi);
         switch (bi.byteValue()) {
         case 0: return Boolean.FALSE;
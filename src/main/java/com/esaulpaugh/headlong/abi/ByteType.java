@@ -48,9 +48,9 @@ class ByteType extends UnitType<Byte> {
     }
 
     @Override
-    Byte decode(ByteBuffer bb, byte[] unitBuffer) {
-        bb.get(unitBuffer, 0, UNIT_LENGTH_BYTES);
-        BigInteger bi = new BigInteger(unitBuffer);
+    Byte decode(ByteBuffer bb, DecodeContext ctx) {
+        bb.get(ctx.unitBuffer, 0, UNIT_LENGTH_BYTES);
+        BigInteger bi = new BigInteger(ctx.unitBuffer);
         validateBigIntBitLen(bi);
         return bi.byteValue();
     }
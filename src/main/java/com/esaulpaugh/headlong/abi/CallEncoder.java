@@ -1,12 +1,13 @@
 package com.esaulpaugh.headlong.abi;
 
+import com.esaulpaugh.headlong.util.Strings;
+
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import static com.esaulpaugh.headlong.abi.UnitType.UNIT_LENGTH_BYTES;
-import static com.esaulpaugh.headlong.util.Strings.CHARSET_UTF_8;
 import static com.esaulpaugh.headlong.abi.ABIType.*;
 
 class CallEncoder {
@@ -44,86 +45,91 @@ class CallEncoder {
     }
 
     static void encodeCall(Function function, Tuple args, ByteBuffer dest) {
-        dest.put(function.selector());
+        dest.put(function.selector);
         insertTuple(function.getParamTypes(), args, dest);
     }
 
-    static void insertTuple(TupleType tupleType, Tuple tuple, ByteBuffer outBuffer) {
+    /**
+     * Encodes a tuple in a single pass. Each dynamic element's head slot is skipped and then filled in once the
+     * position of its tail is known, so no element's length is ever computed during encoding.
+     */
+    static void insertTuple(TupleType tupleType, Tuple tuple, ByteBuffer dest) {
+        final CompiledCodec compiled = tupleType.compiled;
+        if(compiled != null) {
+            compiled.encode(tuple, dest);
+            return;
+        }
         final ABIType<?>[] types = tupleType.elementTypes;
         final Object[] values = tuple.elements;
-        final int[] offset = new int[] { headLengthSum(types, values) };
-
         final int len = types.length;
         int i;
-        for (i = 0; i < len; i++) {
-            encodeHead(types[i], values[i], outBuffer, offset);
-        }
-        if(tupleType.dynamic) {
+        if(!tupleType.dynamic) {
             for (i = 0; i < len; i++) {
-                ABIType<?> type = types[i];
-                if (type.dynamic) {
-                    encodeTail(type, values[i], outBuffer);
-                }
+                encodeHead(types[i], values[i], dest);
             }
+            return;
         }
-    }
-
-    private static int headLengthSum(ABIType<?>[] elementTypes, Object[] elements) {
-        int headLengths = 0;
-        final int n = elementTypes.length;
-        for (int i = 0; i < n; i++) {
-            ABIType<?> t = elementTypes[i];
-            if(t.dynamic) {
-                headLengths += OFFSET_LENGTH_BYTES;
+        final int start = dest.position();
+        for (i = 0; i < len; i++) {
+            ABIType<?> type = types[i];
+            if(type.dynamic) {
+                dest.position(dest.position() + OFFSET_LENGTH_BYTES); // filled in below
             } else {
-                headLengths += t.byteLength(elements[i]);
+                encodeHead(type, values[i], dest);
             }
         }
-        return headLengths;
+        int headIndex = start;
+        for (i = 0; i < len; i++) {
+            ABIType<?> type = types[i];
+            if (type.dynamic) {
+                insertOffset(dest.position() - start, dest, headIndex);
+                encodeTail(type, values[i], dest);
+            }
+            headIndex += TupleType.headLength(type);
+        }
     }
 
-    private static void encodeHead(ABIType<?> type, Object value, ByteBuffer dest, int[] offset) {
+    /**
+     * Writes the full encoding of a static element.
+     */
+    static void encodeHead(ABIType<?> type, Object value, ByteBuffer dest) {
         switch (type.typeCode()) {
         case TYPE_CODE_BOOLEAN: insertBool((boolean) value, dest); return;
         case TYPE_CODE_BYTE:
         case TYPE_CODE_INT:
         case TYPE_CODE_LONG: insertInt(((Number) value).longValue(), dest); return;
-        case TYPE_CODE_BIG_INTEGER: insertInt(((BigInteger) value), dest); return;
-        case TYPE_CODE_BIG_DECIMAL: insertInt(((BigDecimal) value).unscaledValue(), dest); return;
-        case TYPE_CODE_ARRAY:
-            if (type.dynamic) { // includes String
-                insertOffset(offset, type, value, dest);
-            } else {
-                encodeArrayStatic((ArrayType<?, ?>) type, value, dest);
-            }
-            return;
-        case TYPE_CODE_TUPLE:
-            if (type.dynamic) {
-                insertOffset(offset, type, value, dest);
+        case TYPE_CODE_BIG_INTEGER:
+            if(value instanceof UInt256) {
+                insertInt((UInt256) value, dest);
             } else {
-                insertTuple((TupleType) type, (Tuple) value, dest);
+                insertInt((BigInteger) value, dest);
             }
             return;
+        case TYPE_CODE_BIG_DECIMAL: insertInt(((BigDecimal) value).unscaledValue(), dest); return;
+        case TYPE_CODE_ARRAY: encodeArrayStatic((ArrayType<?, ?>) type, value, dest); return;
+        case TYPE_CODE_TUPLE: insertTuple((TupleType) type, (Tuple) value, dest); return;
         default:
             throw new IllegalArgumentException("unexpected array type: " + type.toString());
         }
     }
 
-    private static void insertOffset(final int[] offset, ABIType<?> paramType, Object object, ByteBuffer dest) {
-        final int val = offset[0];
-        insertInt(val, dest);
-        offset[0] = val + paramType.byteLength(object);
+    /**
+     * Writes {@code offset} into the 32-byte slot at absolute index {@code index} without changing the position.
+     */
+    static void insertOffset(int offset, ByteBuffer dest, int index) {
+        dest.putLong(index, 0L);
+        dest.putLong(index + 8, 0L);
+        dest.putLong(index + 16, 0L);
+        dest.putLong(index + 24, offset);
     }
 
-    private static void encodeTail(ABIType<?> type, Object value, ByteBuffer dest) {
+    static void encodeTail(ABIType<?> type, Object value, ByteBuffer dest) {
 //        only dynamics expected
         switch (type.typeCode()) {
         case TYPE_CODE_ARRAY:
             final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
             if(arrayType.isString) {
-                byte[] bytes = ((String) value).getBytes(CHARSET_UTF_8);
-                insertInt(bytes.length, dest); // insertLength
-                insertBytes(bytes, dest);
+                insertString((String) value, dest);
             } else {
                 encodeArrayTail(arrayType, value, dest);
             }
@@ -137,19 +143,25 @@ class CallEncoder {
 
     // ----------------------------------------------
 
-    private static void encodeArrayStatic(ArrayType<?, ?> arrayType, Object value, ByteBuffer dest) {
+    static void encodeArrayStatic(ArrayType<?, ?> arrayType, Object value, ByteBuffer dest) {
         switch (arrayType.elementType.typeCode()) {
         case TYPE_CODE_BOOLEAN: insertBooleans((boolean[]) value, dest); return;
         case TYPE_CODE_BYTE: insertBytes((byte[]) value, dest); return;
         case TYPE_CODE_INT: insertInts((int[]) value, dest); return;
         case TYPE_CODE_LONG: insertLongs((long[]) value, dest); return;
-        case TYPE_CODE_BIG_INTEGER: insertBigIntegers((BigInteger[]) value, dest); return;
+        case TYPE_CODE_BIG_INTEGER:
+            if(value instanceof UInt256[]) {
+                insertUInt256s((UInt256[]) value, dest);
+            } else {
+                insertBigIntegers((BigInteger[]) value, dest);
+            }
+            return;
         case TYPE_CODE_BIG_DECIMAL: insertBigDecimals((BigDecimal[]) value, dest); return;
         case TYPE_CODE_ARRAY:
         case TYPE_CODE_TUPLE:
             final ABIType<?> elementType = arrayType.elementType;
             for(Object e : (Object[]) value) {
-                encodeHead(elementType, e, dest, null);
+                encodeHead(elementType, e, dest);
             }
             return;
         default: throw new IllegalArgumentException("unexpected array type: " + arrayType.toString());
@@ -188,11 +200,14 @@ class CallEncoder {
             insertLongs(longs, dest);
             return;
         case TYPE_CODE_BIG_INTEGER:
-            BigInteger[] bigInts = (BigInteger[]) value;
             if(arrayType.dynamic) {
-                insertInt(bigInts.length, dest);
+                insertInt(((Number[]) value).length, dest);
+            }
+            if(value instanceof UInt256[]) {
+                insertUInt256s((UInt256[]) value, dest);
+            } else {
+                insertBigIntegers((BigInteger[]) value, dest);
             }
-            insertBigIntegers(bigInts, dest);
             return;
         case TYPE_CODE_BIG_DECIMAL:
             BigDecimal[] bigDecs = (BigDecimal[]) value;
@@ -208,10 +223,13 @@ class CallEncoder {
             if(arrayType.dynamic) {
                 insertInt(len, dest); // insertLength
                 if (elementType.dynamic) { // if elements are dynamic
-                    final int[] offset = new int[] { len << 5 }; // mul 32 (0x20)
+                    final int start = dest.position();
+                    dest.position(start + (len << 5)); // mul 32 (0x20); offsets are filled in as tails are written
                     for (int i = 0; i < len; i++) {
-                        insertOffset(offset, elementType, objects[i], dest);
+                        insertOffset(dest.position() - start, dest, start + (i << 5));
+                        encodeTail(elementType, objects[i], dest);
                     }
+                    return;
                 }
             }
             for (int i = 0; i < len; i++) {
@@ -240,7 +258,24 @@ class CallEncoder {
 
     private static void insertBytes(byte[] bytes, ByteBuffer dest) {
         dest.put(bytes);
-        final int paddingLength = paddingLength(bytes.length);
+        insertPadding(paddingLength(bytes.length), dest);
+    }
+
+    /**
+     * Converts the string exactly once, directly into {@code dest}. The length slot is skipped and filled in afterward
+     * from the number of bytes written.
+     */
+    private static void insertString(String string, ByteBuffer dest) {
+        final int lengthIndex = dest.position();
+        final int start = lengthIndex + UNIT_LENGTH_BYTES;
+        dest.position(start);
+        Strings.putUtf8(string, dest); // no intermediate byte[]
+        final int byteLen = dest.position() - start;
+        insertOffset(byteLen, dest, lengthIndex); // insertLength
+        insertPadding(paddingLength(byteLen), dest);
+    }
+
+    private static void insertPadding(int paddingLength, ByteBuffer dest) {
         for (int i = 0; i < paddingLength; i++) {
             dest.put(ZERO_BYTE);
         }
@@ -264,6 +299,12 @@ class CallEncoder {
         }
     }
 
+    private static void insertUInt256s(UInt256[] values, ByteBuffer dest) {
+        for (UInt256 e : values) {
+            insertInt(e, dest);
+        }
+    }
+
     private static void insertBigDecimals(BigDecimal[] bigDecs, ByteBuffer dest) {
         for (BigDecimal e : bigDecs) {
             insertInt(e.unscaledValue(), dest);
@@ -272,22 +313,45 @@ class CallEncoder {
 
     // ------------------------------------------------------------------------------
 
-    private static void insertInt(long val, ByteBuffer dest) {
+    static void insertInt(long val, ByteBuffer dest) {
         dest.put(val < 0 ? NEGATIVE_INT_PADDING : NON_NEGATIVE_INT_PADDING);
         dest.putLong(val);
     }
 
-    private static void insertInt(BigInteger bigGuy, ByteBuffer dest) {
-        final byte[] arr = bigGuy.toByteArray();
+    /**
+     * Writes the 32-byte two's complement representation of {@code bigGuy} without calling
+     * {@link BigInteger#toByteArray()}. Values which fit in a {@code long} take the primitive path; the high-order bytes
+     * of larger values are read bit by bit via {@link BigInteger#testBit(int)}, which does not allocate.
+     */
+    static void insertInt(BigInteger bigGuy, ByteBuffer dest) {
+        final int bitLen = bigGuy.bitLength();
+        if(bitLen < Long.SIZE) {
+            insertInt(bigGuy.longValue(), dest);
+            return;
+        }
         final byte paddingByte = bigGuy.signum() == -1 ? NEGATIVE_ONE_BYTE : ZERO_BYTE;
-        final int lim = 32 - arr.length;
-        for (int i = 0; i < lim; i++) {
-            dest.put(paddingByte);
+        for (int bitIndex = (UNIT_LENGTH_BYTES - 1) * Byte.SIZE; bitIndex >= Long.SIZE; bitIndex -= Byte.SIZE) {
+            if(bitIndex >= bitLen) {
+                dest.put(paddingByte); // all higher bits equal the sign bit
+            } else {
+                int b = 0;
+                for (int i = Byte.SIZE - 1; i >= 0; i--) {
+                    b = (b << 1) | (bigGuy.testBit(bitIndex + i) ? 1 : 0);
+                }
+                dest.put((byte) b);
+            }
         }
-        dest.put(arr);
+        dest.putLong(bigGuy.longValue()); // low-order 64 bits
+    }
+
+    static void insertInt(UInt256 val, ByteBuffer dest) {
+        dest.putLong(val.w0);
+        dest.putLong(val.w1);
+        dest.putLong(val.w2);
+        dest.putLong(val.w3);
     }
 
-    private static void insertBool(boolean bool, ByteBuffer dest) {
+    static void insertBool(boolean bool, ByteBuffer dest) {
         dest.put(bool ? BOOLEAN_TRUE : BOOLEAN_FALSE);
     }
 }
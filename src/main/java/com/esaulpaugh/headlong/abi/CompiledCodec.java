@@ -0,0 +1,298 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.esaulpaugh.headlong.abi.ABIType.*;
+import static com.esaulpaugh.headlong.abi.CallEncoder.OFFSET_LENGTH_BYTES;
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * An encoder and decoder for one {@link TupleType}, composed from {@link MethodHandle}s at compile time so that the
+ * per-element dispatch on type code happens once rather than on every call. Element indices and head positions are
+ * bound as constants, giving the JIT a straight-line tree per signature to inline. Nested tuples are compiled
+ * recursively; arrays are handed to {@link CallEncoder} and {@link ArrayType}, which use a compiled codec for their
+ * tuple elements only if the caller has separately compiled the element {@link TupleType}.
+ */
+final class CompiledCodec {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /* (ByteBuffer, Object[], int)void */
+    private static final MethodType ENCODE_STEP = methodType(void.class, ByteBuffer.class, Object[].class, int.class);
+    /* (ByteBuffer, DecodeContext, Object[], int base)void */
+    private static final MethodType DECODE_STEP = methodType(void.class, ByteBuffer.class, DecodeContext.class, Object[].class, int.class);
+    /* (ByteBuffer, Object)void */
+    private static final MethodType ENCODER = methodType(void.class, ByteBuffer.class, Object.class);
+    /* (ByteBuffer, DecodeContext)Object */
+    private static final MethodType DECODER = methodType(Object.class, ByteBuffer.class, DecodeContext.class);
+
+    private static final MethodHandle ENCODE_NOP = find("encodeNop", ENCODE_STEP);
+    private static final MethodHandle DECODE_NOP = find("decodeNop", DECODE_STEP);
+    private static final MethodHandle SKIP_HEAD = find("skipHead", ENCODE_STEP);
+    private static final MethodHandle BACKFILL = find("backfill", methodType(void.class, int.class, ByteBuffer.class, Object[].class, int.class));
+    private static final MethodHandle POSITION = find("position", methodType(int.class, ByteBuffer.class));
+    private static final MethodHandle ELEMENTS = find("elements", methodType(Object[].class, Object.class));
+    private static final MethodHandle FINISH = find("finish", methodType(Object.class, ByteBuffer.class, DecodeContext.class, Object[].class, int.class));
+    private static final MethodHandle NEW_OBJECT_ARRAY = find("newObjectArray", methodType(Object[].class, int.class));
+    private static final MethodHandle PUSH_OFFSETS = find("pushOffsets", methodType(int.class, int.class, DecodeContext.class));
+    private static final MethodHandle READ_OFFSET = find("readOffset", methodType(void.class, int.class, ByteBuffer.class, DecodeContext.class, Object[].class, int.class));
+    private static final MethodHandle CHECK_OFFSET = find("checkOffset", methodType(void.class, int.class, ByteBuffer.class, DecodeContext.class, Object[].class, int.class));
+
+    private static final MethodHandle ENCODE_BOOLEAN = find("encodeBoolean", ENCODER);
+    private static final MethodHandle ENCODE_LONG = find("encodeLong", ENCODER);
+    private static final MethodHandle ENCODE_BIG_INTEGER = find("encodeBigInteger", ENCODER);
+    private static final MethodHandle ENCODE_BIG_DECIMAL = find("encodeBigDecimal", ENCODER);
+    private static final MethodHandle ENCODE_ARRAY_STATIC = findStatic(CallEncoder.class, "encodeArrayStatic", methodType(void.class, ArrayType.class, Object.class, ByteBuffer.class));
+    private static final MethodHandle ENCODE_TAIL = findStatic(CallEncoder.class, "encodeTail", methodType(void.class, ABIType.class, Object.class, ByteBuffer.class));
+    private static final MethodHandle DECODE = findVirtual(ABIType.class, "decode", DECODER);
+
+    /* (ByteBuffer, Object)void */
+    private final MethodHandle encoder;
+    /* (ByteBuffer, DecodeContext)Object */
+    private final MethodHandle decoder;
+
+    private CompiledCodec(MethodHandle encoder, MethodHandle decoder) {
+        this.encoder = encoder;
+        this.decoder = decoder;
+    }
+
+    void encode(Tuple tuple, ByteBuffer dest) {
+        try {
+            encoder.invokeExact(dest, (Object) tuple);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    Tuple decode(ByteBuffer bb, DecodeContext ctx) {
+        final int top = ctx.top;
+        try {
+            return (Tuple) (Object) decoder.invokeExact(bb, ctx);
+        } catch (Throwable t) {
+            ctx.popOffsets(top); // nested compiled decoders do not release their offsets on failure
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if(t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if(t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t); // the composed handles throw no checked exceptions
+    }
+
+    static CompiledCodec compile(TupleType tupleType) {
+        return new CompiledCodec(compileEncoder(tupleType), compileDecoder(tupleType));
+    }
+
+    // ------------------------------------------------------------------------------------------------------------------
+
+    private static MethodHandle compileEncoder(TupleType tupleType) {
+        final ABIType<?>[] types = tupleType.elementTypes;
+        final int len = types.length;
+        final List<MethodHandle> steps = new ArrayList<>();
+        for (int i = 0; i < len; i++) {
+            ABIType<?> type = types[i];
+            steps.add(type.dynamic ? SKIP_HEAD : encodeElementStep(elementEncoder(type), i));
+        }
+        int headPos = 0;
+        for (int i = 0; i < len; i++) {
+            ABIType<?> type = types[i];
+            if(type.dynamic) {
+                steps.add(MethodHandles.insertArguments(BACKFILL, 0, headPos));
+                steps.add(encodeElementStep(elementEncoder(type), i));
+            }
+            headPos += TupleType.headLength(type);
+        }
+        final MethodHandle body = sequence(ENCODE_NOP, steps); // (ByteBuffer, Object[], int start)void
+        final MethodHandle startFirst = MethodHandles.permuteArguments(body, methodType(void.class, int.class, ByteBuffer.class, Object[].class), 1, 2, 0);
+        final MethodHandle withStart = MethodHandles.foldArguments(startFirst, POSITION); // (ByteBuffer, Object[])void
+        return MethodHandles.filterArguments(withStart, 1, ELEMENTS);
+    }
+
+    private static MethodHandle elementEncoder(ABIType<?> type) {
+        switch (type.typeCode()) {
+        case TYPE_CODE_BOOLEAN: return ENCODE_BOOLEAN;
+        case TYPE_CODE_BYTE:
+        case TYPE_CODE_INT:
+        case TYPE_CODE_LONG: return ENCODE_LONG;
+        case TYPE_CODE_BIG_INTEGER: return ENCODE_BIG_INTEGER;
+        case TYPE_CODE_BIG_DECIMAL: return ENCODE_BIG_DECIMAL;
+        case TYPE_CODE_ARRAY:
+            final MethodHandle arrayEncoder = type.dynamic
+                    ? MethodHandles.insertArguments(ENCODE_TAIL, 0, type)
+                    : MethodHandles.insertArguments(ENCODE_ARRAY_STATIC, 0, type);
+            return MethodHandles.permuteArguments(arrayEncoder, ENCODER, 1, 0);
+        case TYPE_CODE_TUPLE: return ((TupleType) type).compile().compiled.encoder;
+        default: throw new IllegalArgumentException("unrecognized type: " + type.toString());
+        }
+    }
+
+    /**
+     * Adapts an element encoder {@code (ByteBuffer, Object)void} to encode {@code elements[index]}.
+     */
+    private static MethodHandle encodeElementStep(MethodHandle elementEncoder, int index) {
+        final MethodHandle getter = MethodHandles.insertArguments(MethodHandles.arrayElementGetter(Object[].class), 1, index);
+        final MethodHandle step = MethodHandles.filterArguments(elementEncoder, 1, getter); // (ByteBuffer, Object[])void
+        return MethodHandles.dropArguments(step, 2, int.class);
+    }
+
+    private static MethodHandle compileDecoder(TupleType tupleType) {
+        final ABIType<?>[] types = tupleType.elementTypes;
+        final int len = types.length;
+        final List<MethodHandle> steps = new ArrayList<>();
+        for (int i = 0; i < len; i++) {
+            ABIType<?> type = types[i];
+            steps.add(type.dynamic
+                    ? MethodHandles.insertArguments(READ_OFFSET, 0, i)
+                    : decodeElementStep(elementDecoder(type), i));
+        }
+        if(tupleType.dynamic) {
+            for (int i = 0; i < len; i++) {
+                ABIType<?> type = types[i];
+                if(type.dynamic) {
+                    steps.add(MethodHandles.insertArguments(CHECK_OFFSET, 0, i));
+                    steps.add(decodeElementStep(elementDecoder(type), i));
+                }
+            }
+        }
+        final MethodHandle body = sequence(DECODE_NOP, steps); // (ByteBuffer, DecodeContext, Object[], int base)void
+        final MethodHandle run = MethodHandles.foldArguments(FINISH, body);
+        final MethodHandle baseFirst = MethodHandles.permuteArguments(run,
+                methodType(Object.class, int.class, DecodeContext.class, Object[].class, ByteBuffer.class), 3, 1, 2, 0);
+        final MethodHandle pushOffsets = tupleType.dynamic
+                ? MethodHandles.insertArguments(PUSH_OFFSETS, 0, len)
+                : MethodHandles.dropArguments(MethodHandles.constant(int.class, -1), 0, DecodeContext.class);
+        final MethodHandle withOffsets = MethodHandles.foldArguments(baseFirst, pushOffsets); // (DecodeContext, Object[], ByteBuffer)Object
+        final MethodHandle arrayFirst = MethodHandles.permuteArguments(withOffsets,
+                methodType(Object.class, Object[].class, ByteBuffer.class, DecodeContext.class), 2, 0, 1);
+        return MethodHandles.foldArguments(arrayFirst, MethodHandles.insertArguments(NEW_OBJECT_ARRAY, 0, len));
+    }
+
+    private static MethodHandle elementDecoder(ABIType<?> type) {
+        return type.typeCode() == TYPE_CODE_TUPLE
+                ? ((TupleType) type).compile().compiled.decoder
+                : DECODE.bindTo(type);
+    }
+
+    /**
+     * Adapts an element decoder {@code (ByteBuffer, DecodeContext)Object} to store its result in {@code elements[index]}.
+     */
+    private static MethodHandle decodeElementStep(MethodHandle elementDecoder, int index) {
+        final MethodHandle setter = MethodHandles.insertArguments(MethodHandles.arrayElementSetter(Object[].class), 1, index);
+        final MethodHandle store = MethodHandles.permuteArguments(setter, // (Object value, ByteBuffer, DecodeContext, Object[], int base)void
+                methodType(void.class, Object.class, ByteBuffer.class, DecodeContext.class, Object[].class, int.class), 3, 0);
+        return MethodHandles.foldArguments(store, elementDecoder);
+    }
+
+    /**
+     * Composes void-returning handles of identical type so that they run in order.
+     */
+    private static MethodHandle sequence(MethodHandle nop, List<MethodHandle> steps) {
+        MethodHandle seq = nop;
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            seq = MethodHandles.foldArguments(seq, steps.get(i));
+        }
+        return seq;
+    }
+
+    private static MethodHandle find(String name, MethodType type) {
+        return findStatic(CompiledCodec.class, name, type);
+    }
+
+    private static MethodHandle findStatic(Class<?> refc, String name, MethodType type) {
+        try {
+            return LOOKUP.findStatic(refc, name, type);
+        } catch (ReflectiveOperationException roe) {
+            throw new ExceptionInInitializerError(roe);
+        }
+    }
+
+    private static MethodHandle findVirtual(Class<?> refc, String name, MethodType type) {
+        try {
+            return LOOKUP.findVirtual(refc, name, type);
+        } catch (ReflectiveOperationException roe) {
+            throw new ExceptionInInitializerError(roe);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------------------
+
+    private static void encodeNop(ByteBuffer dest, Object[] elements, int start) {
+    }
+
+    private static void decodeNop(ByteBuffer bb, DecodeContext ctx, Object[] elements, int base) {
+    }
+
+    private static void skipHead(ByteBuffer dest, Object[] elements, int start) {
+        dest.position(dest.position() + OFFSET_LENGTH_BYTES); // filled in by backfill
+    }
+
+    private static void backfill(int headPos, ByteBuffer dest, Object[] elements, int start) {
+        CallEncoder.insertOffset(dest.position() - start, dest, start + headPos);
+    }
+
+    private static int position(ByteBuffer dest) {
+        return dest.position();
+    }
+
+    private static Object[] elements(Object tuple) {
+        return ((Tuple) tuple).elements;
+    }
+
+    private static Object finish(ByteBuffer bb, DecodeContext ctx, Object[] elements, int base) {
+        if(base >= 0) {
+            ctx.popOffsets(base);
+        }
+        return new Tuple(elements);
+    }
+
+    private static Object[] newObjectArray(int len) {
+        return new Object[len];
+    }
+
+    private static int pushOffsets(int len, DecodeContext ctx) {
+        return ctx.pushOffsets(len);
+    }
+
+    private static void readOffset(int index, ByteBuffer bb, DecodeContext ctx, Object[] elements, int base) {
+        final int offset = CallEncoder.OFFSET_TYPE.decode(bb, ctx);
+        ctx.offsets[base + index] = offset;
+    }
+
+    private static void checkOffset(int index, ByteBuffer bb, DecodeContext ctx, Object[] elements, int base) {
+        if(ctx.offsets[base + index] <= 0) {
+            throw new IllegalArgumentException("offset not found");
+        }
+    }
+
+    private static void encodeBoolean(ByteBuffer dest, Object value) {
+        CallEncoder.insertBool((boolean) value, dest);
+    }
+
+    private static void encodeLong(ByteBuffer dest, Object value) {
+        CallEncoder.insertInt(((Number) value).longValue(), dest);
+    }
+
+    private static void encodeBigInteger(ByteBuffer dest, Object value) {
+        if(value instanceof UInt256) {
+            CallEncoder.insertInt((UInt256) value, dest);
+        } else {
+            CallEncoder.insertInt((BigInteger) value, dest);
+        }
+    }
+
+    private static void encodeBigDecimal(ByteBuffer dest, Object value) {
+        CallEncoder.insertInt(((BigDecimal) value).unscaledValue(), dest);
+    }
+}
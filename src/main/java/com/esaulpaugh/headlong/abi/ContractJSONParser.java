@@ -1,19 +1,32 @@
 package com.esaulpaugh.headlong.abi;
 
+import com.esaulpaugh.headlong.util.Strings;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.security.MessageDigest;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.function.Supplier;
 
 import static com.esaulpaugh.headlong.abi.util.JsonUtils.*;
 
 /**
- * Experimental. Unoptimized.
+ * Parses JSON ABI descriptions. Contract ABIs, given either as an array of entries or as a build artifact whose
+ * top-level {@code "abi"} member holds that array, are read in a single streaming pass: fields other than those
+ * describing functions and events, such as bytecode and metadata, are skipped without being materialized, and only one
+ * entry is held in memory at a time.
  */
 public class ContractJSONParser {
 
@@ -30,47 +43,239 @@ public class ContractJSONParser {
     static final String CONSTRUCTOR = "constructor";
     static final String FALLBACK = "fallback";
     private static final String STATE_MUTABILITY = "stateMutability";
+    private static final String ABI = "abi";
 
     public static List<Function> parseFunctions(String json) throws ParseException {
-        return parseObjects(json, true, false, Function.class);
+        return parseFunctions(new StringReader(json));
     }
 
     public static List<Event> parseEvents(String json) throws ParseException {
-        return parseObjects(json, false, true, Event.class);
+        return parseEvents(new StringReader(json));
     }
 
     public static List<ABIObject> parseObjects(String json) throws ParseException {
-        return parseObjects(json, true, true, ABIObject.class);
+        return parseObjects(new StringReader(json));
+    }
+
+    public static List<Function> parseFunctions(Reader json) throws ParseException {
+        return parseObjects(json, true, false, Function.class);
+    }
+
+    public static List<Event> parseEvents(Reader json) throws ParseException {
+        return parseObjects(json, false, true, Event.class);
     }
 
-    private static <T extends ABIObject> List<T> parseObjects(final String json,
+    /**
+     * Reads the functions and events of an ABI array or of a build artifact containing one. For an artifact, reading
+     * stops at the end of the {@code "abi"} member. The reader is not closed.
+     *
+     * @param json  the ABI or artifact
+     * @return  the functions and events, in order
+     * @throws ParseException   if a parameter's type is malformed
+     * @throws JsonSyntaxException  if the JSON is malformed
+     * @throws JsonIOException  if reading fails
+     */
+    public static List<ABIObject> parseObjects(Reader json) throws ParseException {
+        return parseObjects(json, Function.newDefaultDigest());
+    }
+
+    /**
+     * Like {@link #parseObjects(Reader)}, hashing every function's selector and event's topic0 with {@code digest}, which
+     * must be Keccak-256.
+     */
+    static List<ABIObject> parseObjects(Reader json, MessageDigest digest) throws ParseException {
+        return parseObjects(json, true, true, ABIObject.class, digest);
+    }
+
+    private static <T extends ABIObject> List<T> parseObjects(final Reader json,
                                                              final boolean functions,
                                                              final boolean events,
                                                              final Class<T> classOfT) throws ParseException {
+        return parseObjects(json, functions, events, classOfT, Function.newDefaultDigest());
+    }
 
-        final Supplier<MessageDigest> defaultDigest = functions ? Function::newDefaultDigest : null;
-
+    private static <T extends ABIObject> List<T> parseObjects(final Reader json,
+                                                             final boolean functions,
+                                                             final boolean events,
+                                                             final Class<T> classOfT,
+                                                             final MessageDigest digest) throws ParseException {
         final List<T> list = new ArrayList<>();
-        for(JsonElement e : parseArray(json)) {
-            if(e.isJsonObject()) {
-                JsonObject object = (JsonObject) e;
-                String type = getString(object, TYPE);
-                switch (type) {
-                case FALLBACK:
-                case CONSTRUCTOR:
-                case FUNCTION:
-                    if(functions) {
-                        list.add(classOfT.cast(parseFunction(object, defaultDigest.get())));
-                    }
-                    break;
-                case EVENT:
-                    if(events) {
-                        list.add(classOfT.cast(parseEvent(object)));
+        final JsonReader reader = new JsonReader(json);
+        reader.setLenient(true); // as JsonParser
+        try {
+            if(reader.peek() == JsonToken.BEGIN_OBJECT) { // an artifact
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if(ABI.equals(reader.nextName())) {
+                        readEntries(reader, functions, events, digest, classOfT, list);
+                        return list; // leave the rest, e.g. bytecode, unread
                     }
+                    reader.skipValue();
+                }
+                reader.endObject();
+            } else {
+                readEntries(reader, functions, events, digest, classOfT, list);
+                if(reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonSyntaxException("Did not consume the entire document.");
+                }
+            }
+            return list;
+        } catch (MalformedJsonException | EOFException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException io) {
+            throw new JsonIOException(io);
+        }
+    }
+
+    private static <T extends ABIObject> void readEntries(JsonReader reader,
+                                                          boolean functions,
+                                                          boolean events,
+                                                          MessageDigest digest,
+                                                          Class<T> classOfT,
+                                                          List<T> list) throws IOException, ParseException {
+        expect(reader, JsonToken.BEGIN_ARRAY, ABI, "an array");
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if(reader.peek() == JsonToken.BEGIN_OBJECT) {
+                final ABIObject object = readEntry(reader, functions, events, digest);
+                if(object != null) {
+                    list.add(classOfT.cast(object));
                 }
+            } else {
+                reader.skipValue();
             }
         }
-        return list;
+        reader.endArray();
+    }
+
+    /**
+     * Reads one ABI entry, in whatever order its members appear. Parameter lists are skipped if the entry's type has
+     * already been read and is not wanted.
+     *
+     * @return  the function or event, or null if the entry is of a type not wanted
+     */
+    private static ABIObject readEntry(JsonReader reader, boolean functions, boolean events, MessageDigest digest) throws IOException, ParseException {
+        String type = null;
+        String name = null;
+        String stateMutability = null;
+        ArrayList<ABIType<?>> inputs = null;
+        ArrayList<ABIType<?>> outputs = null;
+        final BitSet indexed = new BitSet();
+        boolean anonymous = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String key = reader.nextName();
+            switch (key) {
+            case TYPE: type = nextString(reader, key); break;
+            case NAME: name = nextString(reader, key); break;
+            case STATE_MUTABILITY: stateMutability = nextString(reader, key); break;
+            case ANONYMOUS: anonymous = nextBoolean(reader, key); break;
+            case INPUTS:
+            case OUTPUTS:
+                if(type != null && !isWanted(type, functions, events)) {
+                    reader.skipValue();
+                } else if(INPUTS.equals(key)) {
+                    inputs = readTypes(reader, key, indexed);
+                } else {
+                    outputs = readTypes(reader, key, null);
+                }
+                break;
+            default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if(type == null || !isWanted(type, functions, events)) {
+            return null;
+        }
+        final TupleType inputTypes = inputs != null ? TupleType.create(inputs) : TupleType.EMPTY;
+        if(EVENT.equals(type)) {
+            final boolean[] indexManifest = new boolean[inputTypes.elementTypes.length];
+            for (int i = 0; i < indexManifest.length; i++) {
+                indexManifest[i] = indexed.get(i);
+            }
+            return new Event(name, inputTypes, indexManifest, anonymous,
+                    anonymous ? null : digest.digest(Strings.decode(name + inputTypes.canonicalType, Strings.UTF_8)));
+        }
+        return new Function(
+                Function.Type.get(type),
+                name,
+                inputTypes,
+                outputs != null ? TupleType.create(outputs) : null,
+                stateMutability,
+                digest
+        );
+    }
+
+    private static boolean isWanted(String type, boolean functions, boolean events) {
+        switch (type) {
+        case FALLBACK:
+        case CONSTRUCTOR:
+        case FUNCTION: return functions;
+        case EVENT: return events;
+        default: return false;
+        }
+    }
+
+    /**
+     * @param indexedOut    if not null, the set in which to record the indices of the params marked indexed
+     */
+    private static ArrayList<ABIType<?>> readTypes(JsonReader reader, String key, BitSet indexedOut) throws IOException, ParseException {
+        expect(reader, JsonToken.BEGIN_ARRAY, key, "an array");
+        final ArrayList<ABIType<?>> types = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            types.add(readType(reader, indexedOut, types.size()));
+        }
+        reader.endArray();
+        return types;
+    }
+
+    private static ABIType<?> readType(JsonReader reader, BitSet indexedOut, int index) throws IOException, ParseException {
+        String type = null;
+        String name = null;
+        ArrayList<ABIType<?>> components = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String key = reader.nextName();
+            switch (key) {
+            case TYPE: type = nextString(reader, key); break;
+            case NAME: name = nextString(reader, key); break;
+            case COMPONENTS: components = readTypes(reader, key, null); break;
+            case INDEXED:
+                if(nextBoolean(reader, key) && indexedOut != null) {
+                    indexedOut.set(index);
+                }
+                break;
+            default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if(type == null) {
+            throw new IllegalArgumentException(TYPE + " not found");
+        }
+        if(type.startsWith(TUPLE)) {
+            if(components == null) {
+                throw new IllegalArgumentException(COMPONENTS + " not found");
+            }
+            return TypeFactory.createForTuple(TupleType.create(components), type.substring(TUPLE.length()), name);
+        }
+        return TypeFactory.create(type, null, name);
+    }
+
+    private static String nextString(JsonReader reader, String key) throws IOException {
+        expect(reader, JsonToken.STRING, key, "a string");
+        return reader.nextString();
+    }
+
+    private static boolean nextBoolean(JsonReader reader, String key) throws IOException {
+        expect(reader, JsonToken.BOOLEAN, key, "a primitive");
+        return reader.nextBoolean();
+    }
+
+    private static void expect(JsonReader reader, JsonToken token, String key, String description) throws IOException {
+        if(reader.peek() != token) {
+            throw new IllegalArgumentException(key + " is not " + description);
+        }
     }
 
     public static Function parseFunction(String json) throws ParseException {
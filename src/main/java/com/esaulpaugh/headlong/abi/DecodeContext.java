@@ -0,0 +1,78 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Scratch state for decoding: a buffer for 32-byte units, a stack of offsets which grows to the deepest nesting seen
+ * (but is trimmed back after a decode which held the offsets of an unusually large array), and the caller's decoding
+ * options. Passing the same instance to successive decodes avoids allocating any of these, so that steady-state
+ * decoding allocates little more than the decoded values. Not thread-safe; confine each instance to a single thread.
+ */
+public final class DecodeContext {
+
+    static final int MAX_RETAINED_OFFSETS = 4096; // slots kept between decodes, 16 KiB
+
+    final byte[] unitBuffer = ABIType.newUnitBuffer();
+    final boolean uint256;
+
+    int[] offsets = new int[16]; // offsets of dynamic elements of the tuples and arrays being decoded, innermost last
+    int top;
+
+    private ByteBuffer wrapped;
+
+    public DecodeContext() {
+        this(false);
+    }
+
+    /**
+     * @param uint256   whether to decode values whose Java type would otherwise be {@link java.math.BigInteger} as
+     *                  {@link UInt256}. See {@link TupleType#decode(ByteBuffer, boolean)}
+     */
+    public DecodeContext(boolean uint256) {
+        this.uint256 = uint256;
+    }
+
+    public boolean isUint256() {
+        return uint256;
+    }
+
+    /**
+     * Reserves {@code n} slots at the top of the offset stack. Because nested decodes may grow the stack, slots must be
+     * accessed through {@link #offsets} each time rather than through a saved reference to the array.
+     *
+     * @return  the index of the first slot
+     */
+    int pushOffsets(int n) {
+        final int base = top;
+        top += n;
+        if(top > offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(top, offsets.length << 1));
+        }
+        return base;
+    }
+
+    /**
+     * Releases every slot from {@code base} upward. Once the whole stack is released, at the end of a decode, shrinks
+     * it if it has grown past {@link #MAX_RETAINED_OFFSETS}. Shrinking only then means a decode holding several large
+     * arrays grows the stack once rather than once per array.
+     */
+    void popOffsets(int base) {
+        top = base;
+        if(base == 0 && offsets.length > MAX_RETAINED_OFFSETS) {
+            offsets = new int[MAX_RETAINED_OFFSETS];
+        }
+    }
+
+    /**
+     * Returns a buffer over {@code array} positioned at zero, reusing the previous buffer if it wraps the same array.
+     */
+    ByteBuffer wrap(byte[] array) {
+        final ByteBuffer bb = wrapped;
+        if(bb != null && bb.array() == array) {
+            bb.clear();
+            return bb;
+        }
+        return wrapped = ByteBuffer.wrap(array);
+    }
+}
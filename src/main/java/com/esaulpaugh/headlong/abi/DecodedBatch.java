@@ -0,0 +1,64 @@
+package com.esaulpaugh.headlong.abi;
+
+/**
+ * The results of decoding many return values, in input order. Each result either decoded successfully or failed with
+ * its own error. See {@link Function#decodeReturns(Iterable)}.
+ */
+public final class DecodedBatch {
+
+    private final Tuple[] decoded;
+    private final RuntimeException[] errors; // null where decoding succeeded
+    private final int errorCount;
+
+    DecodedBatch(Tuple[] decoded, RuntimeException[] errors) {
+        this.decoded = decoded;
+        this.errors = errors;
+        int count = 0;
+        for (RuntimeException e : errors) {
+            if(e != null) {
+                count++;
+            }
+        }
+        this.errorCount = count;
+    }
+
+    public int size() {
+        return decoded.length;
+    }
+
+    public int errorCount() {
+        return errorCount;
+    }
+
+    public boolean isError(int index) {
+        return errors[checkIndex(index)] != null;
+    }
+
+    /**
+     * @param index the index of the result
+     * @return  the decoded values
+     * @throws IllegalArgumentException if the result failed to decode, with that failure as its cause
+     */
+    public Tuple get(int index) {
+        final RuntimeException e = errors[checkIndex(index)];
+        if(e != null) {
+            throw new IllegalArgumentException("result @ " + index + ": " + e.getMessage(), e);
+        }
+        return decoded[index];
+    }
+
+    /**
+     * @param index the index of the result
+     * @return  the exception thrown while decoding the result, or null if it decoded successfully
+     */
+    public RuntimeException getError(int index) {
+        return errors[checkIndex(index)];
+    }
+
+    private int checkIndex(int index) {
+        if(index < 0 || index >= decoded.length) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + decoded.length);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,59 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Many encoded calls laid end to end in a single backing array. See {@link Function#encodeCalls(Iterable)}.
+ */
+public final class EncodedBatch {
+
+    private final byte[] array;
+    private final int[] offsets; // offsets[i] is the start of call i; offsets[size()] is the total length
+
+    EncodedBatch(byte[] array, int[] offsets) {
+        this.array = array;
+        this.offsets = offsets;
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public int offset(int index) {
+        return offsets[checkIndex(index)];
+    }
+
+    public int length(int index) {
+        checkIndex(index);
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * @param index the index of the call
+     * @return  a view of the encoded call which shares the backing array
+     */
+    public ByteBuffer get(int index) {
+        checkIndex(index);
+        return ByteBuffer.wrap(array, offsets[index], offsets[index + 1] - offsets[index]).slice();
+    }
+
+    public byte[] toByteArray(int index) {
+        checkIndex(index);
+        return Arrays.copyOfRange(array, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * @return  a view of all calls in order, which shares the backing array
+     */
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(array);
+    }
+
+    private int checkIndex(int index) {
+        if(index < 0 || index >= offsets.length - 1) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+        return index;
+    }
+}
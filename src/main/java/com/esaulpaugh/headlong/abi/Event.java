@@ -3,6 +3,7 @@ package com.esaulpaugh.headlong.abi;
 import com.esaulpaugh.headlong.util.Strings;
 import com.google.gson.JsonObject;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.text.ParseException;
 import java.util.Arrays;
@@ -11,6 +12,8 @@ import static com.esaulpaugh.headlong.util.Strings.UTF_8;
 
 public class Event implements ABIObject {
 
+    static final int TOPIC_LEN = 32;
+
     private final String name;
 
     private final TupleType inputs;
@@ -19,6 +22,12 @@ public class Event implements ABIObject {
 
     private final boolean anonymous;
 
+    private final TupleType indexedParams;
+
+    private final TupleType nonIndexedParams;
+
+    private final byte[] topic0; // null if anonymous
+
     public Event(String name, String paramsString, boolean[] indexed) throws ParseException {
         this(name, paramsString, indexed, false);
     }
@@ -28,10 +37,20 @@ public class Event implements ABIObject {
     }
 
     public Event(String name, TupleType params, boolean[] indexed, boolean anonymous) {
+        this(name, params, indexed, anonymous, anonymous ? null : Function.newDefaultDigest().digest(Strings.decode(name + params.canonicalType, UTF_8)));
+    }
+
+    /**
+     * For events whose topic0 was computed previously, e.g. by the process which wrote an {@link ABISnapshot}.
+     */
+    Event(String name, TupleType params, boolean[] indexed, boolean anonymous, byte[] topic0) {
         this.name = name;
         this.inputs = params;
         this.indexManifest = Arrays.copyOf(indexed, indexed.length);
         this.anonymous = anonymous;
+        this.indexedParams = inputs.subTupleType(indexManifest);
+        this.nonIndexedParams = inputs.subTupleType(indexManifest, true);
+        this.topic0 = anonymous ? null : Arrays.copyOf(topic0, TOPIC_LEN);
     }
 
     public String signature() {
@@ -55,21 +74,96 @@ public class Event implements ABIObject {
     }
 
     public TupleType getIndexedParams() {
-        return inputs.subTupleType(indexManifest);
+        return indexedParams;
     }
 
     public TupleType getNonIndexedParams() {
-        return inputs.subTupleType(indexManifest, true);
+        return nonIndexedParams;
     }
 
     public byte[] topics0() {
-        return anonymous ? null : Function.newDefaultDigest().digest(Strings.decode(signature(), UTF_8));
+        final byte[] topic0 = topic0();
+        return topic0 == null ? null : Arrays.copyOf(topic0, topic0.length);
+    }
+
+    /**
+     * Returns the Keccak-256 hash of the signature, which callers must not modify.
+     */
+    byte[] topic0() {
+        return topic0;
     }
 
     public byte[] topics0(MessageDigest md) {
         return anonymous ? null : md.digest(Strings.decode(signature(), UTF_8));
     }
 
+    /**
+     * Decodes a log emitted by this event. For a non-anonymous event, the first topic must be {@link #topics0()}. Each
+     * remaining topic holds an indexed argument: value types are decoded from the topic directly, while arrays,
+     * {@code bytes}, {@code string} and tuples are represented in topics only by a hash and are returned as that
+     * 32-byte hash. Non-indexed arguments are decoded from {@code data}.
+     *
+     * @param topics    the log's topics
+     * @param data  the log's data
+     * @return  the arguments, in the order of {@link #getParams()}
+     */
+    public Tuple decodeArgs(byte[][] topics, byte[] data) {
+        return decodeArgs(topics, data, new DecodeContext());
+    }
+
+    public Tuple decodeArgs(byte[][] topics, byte[] data, DecodeContext ctx) {
+        final ABIType<?>[] indexedTypes = indexedParams.elementTypes;
+        final int first = anonymous ? 0 : 1;
+        if(topics.length != first + indexedTypes.length) {
+            throw new IllegalArgumentException("expected " + (first + indexedTypes.length) + " topics but found " + topics.length);
+        }
+        for (int t = 0; t < topics.length; t++) {
+            if(topics[t].length != TOPIC_LEN) {
+                throw new IllegalArgumentException("topic " + t + " length must be " + TOPIC_LEN + ". found: " + topics[t].length);
+            }
+        }
+        if(!anonymous && !Arrays.equals(topics[0], topic0())) {
+            throw new IllegalArgumentException("topic0 does not match event " + signature());
+        }
+        final Object[] nonIndexed = nonIndexedParams.decode(data, ctx).elements;
+        final Object[] args = new Object[indexManifest.length];
+        for (int i = 0, t = first, d = 0; i < args.length; i++) {
+            if(indexManifest[i]) {
+                final ABIType<?> type = inputs.elementTypes[i];
+                final byte[] topic = topics[t++];
+                try {
+                    args[i] = isHashed(type)
+                            ? Arrays.copyOf(topic, TOPIC_LEN)
+                            : type.decode(ByteBuffer.wrap(topic), ctx);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("illegal topic @ " + (t - 1) + ": " + e.getMessage(), e);
+                }
+            } else {
+                args[i] = nonIndexed[d++];
+            }
+        }
+        return new Tuple(args);
+    }
+
+    /**
+     * Whether an indexed argument of the given type appears in a topic as a hash rather than as its value.
+     */
+    static boolean isHashed(ABIType<?> type) {
+        switch (type.typeCode()) {
+        case ABIType.TYPE_CODE_ARRAY: return type.dynamic || !isByteString((ArrayType<?, ?>) type); // bytesN are value types
+        case ABIType.TYPE_CODE_TUPLE: return true;
+        default: return false;
+        }
+    }
+
+    /**
+     * Whether the type is {@code bytes}, {@code string}, {@code function} or {@code bytesN}, as opposed to an array of
+     * elements.
+     */
+    static boolean isByteString(ArrayType<?, ?> type) {
+        return type.elementType.typeCode() == ABIType.TYPE_CODE_BYTE && !type.canonicalType.endsWith("]");
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,182 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.BufferUnderflowException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static com.esaulpaugh.headlong.abi.Event.TOPIC_LEN;
+import static com.esaulpaugh.headlong.util.Strings.HEX;
+import static com.esaulpaugh.headlong.util.Strings.encode;
+
+/**
+ * Maps topic0 hashes to the {@link Event}s which have them, so that logs from many contracts can be decoded without
+ * knowing in advance which event emitted them. Events sharing a signature, such as ERC-20 and ERC-721
+ * {@code Transfer}, share an entry and are told apart by the number of topics in the log and, failing that, by which
+ * of them can decode the log; see {@link #decode(byte[][], byte[], DecodeContext)}. Anonymous events have no topic0 and
+ * cannot be indexed.
+ *
+ * Like {@link SelectorIndex}, lookups and decodes take no locks and are safe while other threads add events.
+ */
+public final class EventIndex {
+
+    private static final int INITIAL_CAPACITY = 64; // a power of two
+
+    private static final class Entry extends ProbeTable.Entry {
+
+        final byte[] topic0;
+        final Event[] events;
+
+        Entry(int hash, byte[] topic0, Event[] events) {
+            super(hash);
+            this.topic0 = topic0;
+            this.events = events;
+        }
+    }
+
+    private final ProbeTable<byte[], Entry> table = new ProbeTable<byte[], Entry>(INITIAL_CAPACITY) { // writes guarded by this
+        @Override
+        boolean matches(EventIndex.Entry entry, byte[] topic0, int from, int to) {
+            return Arrays.equals(entry.topic0, topic0);
+        }
+    };
+    private volatile int eventCount;
+
+    public EventIndex() {
+    }
+
+    public EventIndex(Iterable<Event> events) {
+        addAll(events);
+    }
+
+    /**
+     * Adds an event unless one with the same signature and index manifest is already present.
+     *
+     * @param event the event, which must not be anonymous
+     * @return  true if the index changed
+     */
+    public synchronized boolean add(Event event) {
+        if(event.isAnonymous()) {
+            throw new IllegalArgumentException("anonymous events have no topic0: " + event.getName());
+        }
+        final byte[] topic0 = event.topic0();
+        final int hash = hash(topic0);
+        final Entry e = table.find(hash, topic0, 0, TOPIC_LEN);
+        final Event[] events;
+        if(e == null) {
+            events = new Event[] { event };
+        } else {
+            for (Event existing : e.events) {
+                if(Arrays.equals(existing.getIndexManifest(), event.getIndexManifest())) {
+                    return false;
+                }
+            }
+            events = Arrays.copyOf(e.events, e.events.length + 1);
+            events[e.events.length] = event;
+        }
+        table.put(new Entry(hash, topic0, events), topic0, 0, TOPIC_LEN);
+        eventCount++;
+        return true;
+    }
+
+    public synchronized void addAll(Iterable<Event> events) {
+        for (Event e : events) {
+            add(Objects.requireNonNull(e));
+        }
+    }
+
+    /**
+     * Returns the first four bytes of topic0, which is a hash already.
+     */
+    private static int hash(byte[] topic0) {
+        return topic0[0] << 24
+                | (topic0[1] & 0xFF) << 16
+                | (topic0[2] & 0xFF) << 8
+                | (topic0[3] & 0xFF);
+    }
+
+    /**
+     * @return  the number of events indexed
+     */
+    public int size() {
+        return eventCount;
+    }
+
+    /**
+     * @param topic0    a 32-byte topic0
+     * @return  the events having that topic0, in the order in which they were added; empty if none
+     */
+    public List<Event> lookup(byte[] topic0) {
+        if(topic0.length != TOPIC_LEN) {
+            throw new IllegalArgumentException("topic length must be " + TOPIC_LEN + ". found: " + topic0.length);
+        }
+        final Entry e = table.find(hash(topic0), topic0, 0, TOPIC_LEN);
+        return e == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(e.events));
+    }
+
+    public Log decode(byte[][] topics, byte[] data) {
+        return decode(topics, data, new DecodeContext());
+    }
+
+    /**
+     * Finds the event whose topic0 and number of indexed parameters match the log and decodes the log's arguments. See
+     * {@link Event#decodeArgs(byte[][], byte[])}. Events which differ only in which of their parameters are indexed may
+     * have the same topic0 and number of indexed parameters; each of these is tried in the order in which they were
+     * added, and the first to decode the log successfully is chosen. A log does not record which parameters are
+     * indexed, so if more than one of them can decode it, the choice of the first is a guess.
+     *
+     * @param topics    the log's topics
+     * @param data  the log's data
+     * @param ctx   the context with which to decode
+     * @return  the event and its decoded arguments
+     * @throws IllegalArgumentException if no event matches, or none of those which match can decode the log
+     */
+    public Log decode(byte[][] topics, byte[] data, DecodeContext ctx) {
+        if(topics.length == 0) {
+            throw new IllegalArgumentException("log has no topics");
+        }
+        final List<Event> events = lookup(topics[0]);
+        if(events.isEmpty()) {
+            throw new IllegalArgumentException("unknown topic0: " + encode(topics[0], HEX));
+        }
+        RuntimeException first = null;
+        for (Event event : events) {
+            if(event.getIndexedParams().elementTypes.length == topics.length - 1) {
+                try {
+                    return new Log(event, event.decodeArgs(topics, data, ctx));
+                } catch (IllegalArgumentException | BufferUnderflowException ex) {
+                    if(first == null) {
+                        first = ex;
+                    }
+                }
+            }
+        }
+        if(first != null) {
+            throw new IllegalArgumentException("no event with topic0 " + encode(topics[0], HEX) + " could decode the log: " + first.getMessage(), first);
+        }
+        throw new IllegalArgumentException("no event with topic0 " + encode(topics[0], HEX) + " has " + (topics.length - 1) + " indexed params");
+    }
+
+    /**
+     * A decoded log: the event which emitted it and the event's arguments.
+     */
+    public static final class Log {
+
+        private final Event event;
+        private final Tuple args;
+
+        Log(Event event, Tuple args) {
+            this.event = event;
+            this.args = args;
+        }
+
+        public Event getEvent() {
+            return event;
+        }
+
+        public Tuple getArgs() {
+            return args;
+        }
+    }
+}
@@ -10,8 +10,12 @@ import java.nio.ByteBuffer;
 import java.security.DigestException;
 import java.security.MessageDigest;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -57,7 +61,7 @@ public class Function implements ABIObject, Serializable {
     private final TupleType inputTypes;
     private final TupleType outputTypes;
 
-    private final byte[] selector;
+    final byte[] selector;
     private final String hashAlgorithm;
 
     private final String stateMutability;
@@ -76,6 +80,19 @@ public class Function implements ABIObject, Serializable {
         generateSelector(messageDigest);
     }
 
+    /**
+     * For functions whose selector was computed previously, e.g. by the process which wrote an {@link ABISnapshot}.
+     */
+    Function(Type type, String name, TupleType inputTypes, TupleType outputTypes, String stateMutability, String hashAlgorithm, byte[] selector) {
+        this.type = Objects.requireNonNull(type);
+        this.name = name;
+        this.inputTypes = inputTypes;
+        this.outputTypes = outputTypes;
+        this.stateMutability = stateMutability;
+        this.hashAlgorithm = hashAlgorithm;
+        System.arraycopy(selector, 0, this.selector, 0, SELECTOR_LEN);
+    }
+
     public Function(String signature) throws ParseException {
         this(signature, null);
     }
@@ -173,6 +190,17 @@ public class Function implements ABIObject, Serializable {
         return stateMutability;
     }
 
+    /**
+     * Compiles the input and output types. See {@link TupleType#compile()}.
+     *
+     * @return  this
+     */
+    public Function compile() {
+        inputTypes.compile();
+        outputTypes.compile();
+        return this;
+    }
+
     public ByteBuffer encodeCallWithArgs(Object... args) {
         return encodeCall(new Tuple(args));
     }
@@ -181,6 +209,17 @@ public class Function implements ABIObject, Serializable {
         return CallEncoder.encodeCall(this, args);
     }
 
+    /**
+     * Encodes a call to this function into a caller-owned buffer, heap or direct, starting at the buffer's position.
+     * Allocates nothing on the heap for any argument type except {@code fixed}/{@code ufixed}/{@code decimal}, whose
+     * unscaled values may be inflated by {@link java.math.BigDecimal#unscaledValue()}. Intended for reuse of one
+     * buffer across many calls.
+     *
+     * @param args  the arguments
+     * @param dest  the destination buffer, with at least {@link #callLength(Tuple)} bytes remaining
+     * @param validate  whether to validate the arguments before encoding
+     * @return  this function
+     */
     public Function encodeCall(Tuple args, ByteBuffer dest, boolean validate) {
         if(validate) {
             inputTypes.validate(args);
@@ -189,6 +228,25 @@ public class Function implements ABIObject, Serializable {
         return this;
     }
 
+    /**
+     * Validates and encodes many calls to this function into one contiguous array.
+     *
+     * @param calls the arguments of each call
+     * @return  the encoded calls, in iteration order
+     * @throws IllegalArgumentException if any call is invalid, identifying the first such call by index
+     */
+    public EncodedBatch encodeCalls(Iterable<? extends Tuple> calls) {
+        return BatchEncoder.encode(this, calls, null);
+    }
+
+    /**
+     * Like {@link #encodeCalls(Iterable)}, but splits validation and encoding of large batches across {@code pool}.
+     * The output is identical to that of the serial method.
+     */
+    public EncodedBatch encodeCalls(Iterable<? extends Tuple> calls, ForkJoinPool pool) {
+        return BatchEncoder.encode(this, calls, Objects.requireNonNull(pool));
+    }
+
     public Tuple decodeReturn(byte[] returnVals) {
         return outputTypes.decode(returnVals);
     }
@@ -197,6 +255,72 @@ public class Function implements ABIObject, Serializable {
         return outputTypes.decode(returnVals);
     }
 
+    /**
+     * @see TupleType#decode(ByteBuffer, boolean)
+     */
+    public Tuple decodeReturn(ByteBuffer returnVals, boolean uint256) {
+        return outputTypes.decode(returnVals, uint256);
+    }
+
+    /**
+     * @see TupleType#decode(ByteBuffer, DecodeContext)
+     */
+    public Tuple decodeReturn(ByteBuffer returnVals, DecodeContext ctx) {
+        return outputTypes.decode(returnVals, ctx);
+    }
+
+    public Tuple decodeReturn(byte[] returnVals, DecodeContext ctx) {
+        return outputTypes.decode(returnVals, ctx);
+    }
+
+    /**
+     * Decodes many return values of this function. A value which fails to decode does not prevent the others from
+     * being decoded; its error is available from the returned batch.
+     *
+     * @param results   the return values
+     * @return  the decoded values and errors, in input order
+     */
+    public DecodedBatch decodeReturns(Iterable<byte[]> results) {
+        final byte[][] array = toArray(results);
+        final Function[] functions = new Function[array.length];
+        Arrays.fill(functions, this);
+        return BatchDecoder.decodeReturns(functions, array, null);
+    }
+
+    /**
+     * Like {@link #decodeReturns(Iterable)}, but splits large batches across {@code pool}.
+     */
+    public DecodedBatch decodeReturns(Iterable<byte[]> results, ForkJoinPool pool) {
+        final byte[][] array = toArray(results);
+        final Function[] functions = new Function[array.length];
+        Arrays.fill(functions, this);
+        return BatchDecoder.decodeReturns(functions, array, Objects.requireNonNull(pool));
+    }
+
+    /**
+     * Decodes each return value against the output types of the function at the same index.
+     *
+     * @see #decodeReturns(Iterable)
+     */
+    public static DecodedBatch decodeReturns(List<Function> functions, List<byte[]> results) {
+        return BatchDecoder.decodeReturns(functions.toArray(new Function[0]), results.toArray(new byte[0][]), null);
+    }
+
+    public static DecodedBatch decodeReturns(List<Function> functions, List<byte[]> results, ForkJoinPool pool) {
+        return BatchDecoder.decodeReturns(functions.toArray(new Function[0]), results.toArray(new byte[0][]), Objects.requireNonNull(pool));
+    }
+
+    private static byte[][] toArray(Iterable<byte[]> results) {
+        if(results instanceof Collection) {
+            return ((Collection<byte[]>) results).toArray(new byte[0][]);
+        }
+        final List<byte[]> list = new ArrayList<>();
+        for (byte[] result : results) {
+            list.add(result);
+        }
+        return list.toArray(new byte[0][]);
+    }
+
     public int callLength(Tuple args) {
         return CallEncoder.calcEncodingLength(this, args, true);
     }
@@ -210,7 +334,59 @@ public class Function implements ABIObject, Serializable {
     }
 
     public Tuple decodeCall(ByteBuffer abiBuffer) {
-        byte[] unitBuffer = ABIType.newUnitBuffer();
+        return decodeCall(abiBuffer, false);
+    }
+
+    /**
+     * @see TupleType#decode(ByteBuffer, boolean)
+     */
+    public Tuple decodeCall(ByteBuffer abiBuffer, boolean uint256) {
+        return decodeCall(abiBuffer, new DecodeContext(uint256));
+    }
+
+    /**
+     * Checks the selector and decodes the arguments using the scratch state in {@code ctx}.
+     *
+     * @see TupleType#decode(ByteBuffer, DecodeContext)
+     */
+    public Tuple decodeCall(ByteBuffer abiBuffer, DecodeContext ctx) {
+        checkSelector(abiBuffer, ctx);
+        return inputTypes.decode(abiBuffer, ctx);
+    }
+
+    public Tuple decodeCall(byte[] array, DecodeContext ctx) {
+        return decodeCall(ctx.wrap(array), ctx);
+    }
+
+    /**
+     * Checks the selector and decodes only the arguments at the given indices, in the order given. The buffer's
+     * position is left just after the selector.
+     *
+     * @see TupleType#decode(ByteBuffer, int...)
+     */
+    public Tuple decodeCall(ByteBuffer abiBuffer, int... indices) {
+        final DecodeContext ctx = new DecodeContext(false);
+        checkSelector(abiBuffer, ctx);
+        return inputTypes.decode(abiBuffer, indices, ctx);
+    }
+
+    /**
+     * @see #decodeCall(ByteBuffer, int...)
+     * @see TupleType#decode(ByteBuffer, boolean[])
+     */
+    public Tuple decodeCall(ByteBuffer abiBuffer, boolean[] manifest) {
+        return decodeCall(abiBuffer, inputTypes.toIndices(manifest));
+    }
+
+    void checkSelector(ByteBuffer abiBuffer, DecodeContext ctx) {
+        checkSelector(abiBuffer, ctx.unitBuffer);
+    }
+
+    /**
+     * Reads the selector from {@code abiBuffer} into {@code unitBuffer}, which must hold at least four bytes, and
+     * checks it against this function's.
+     */
+    private void checkSelector(ByteBuffer abiBuffer, byte[] unitBuffer) {
         abiBuffer.get(unitBuffer, 0, SELECTOR_LEN);
         final byte[] selector = this.selector;
         for(int i = 0; i < SELECTOR_LEN; i++) {
@@ -219,7 +395,22 @@ public class Function implements ABIObject, Serializable {
                         + ", found: " + encode(unitBuffer, 0, SELECTOR_LEN, HEX));
             }
         }
-        return inputTypes.decode(abiBuffer, unitBuffer);
+    }
+
+    /**
+     * Checks the selector and returns a lazy view of the arguments. See {@link TupleType#view(ByteBuffer)}.
+     */
+    public TupleView viewCall(ByteBuffer abiBuffer) {
+        final ByteBuffer bb = abiBuffer.duplicate();
+        checkSelector(bb, new byte[SELECTOR_LEN]);
+        return inputTypes.view(bb);
+    }
+
+    /**
+     * @see TupleType#view(ByteBuffer)
+     */
+    public TupleView viewReturn(ByteBuffer returnVals) {
+        return outputTypes.view(returnVals);
     }
 
     public static MessageDigest newDefaultDigest() {
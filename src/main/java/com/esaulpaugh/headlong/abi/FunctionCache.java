@@ -0,0 +1,198 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of {@link Function}s keyed by signature, outputs and hash algorithm, for callers which would
+ * otherwise parse and hash the same signatures over and over. Entries are spread by hash over independently locked
+ * segments whose capacities sum to the maximum size. Each segment evicts its own least recently used entry when full,
+ * so the cache as a whole only approximates LRU: the entry evicted is the oldest in its segment, not necessarily in the
+ * cache, and an eviction may happen while other segments have room. Functions are built outside the locks; if two
+ * threads miss on the same key at once, both build it and the first to finish wins. Signatures which fail to parse are
+ * not cached.
+ *
+ * Hits, misses and evictions are counted with {@link LongAdder}s so that the counts do not become a point of
+ * contention themselves.
+ */
+public final class FunctionCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private static final String DEFAULT_ALGORITHM = Function.newDefaultDigest().getAlgorithm();
+
+    private static final class Key {
+
+        final Function.Type type;
+        final String signature;
+        final String outputs;
+        final String algorithm;
+        final int hashCode;
+
+        Key(Function.Type type, String signature, String outputs, String algorithm) {
+            this.type = type;
+            this.signature = signature;
+            this.outputs = outputs;
+            this.algorithm = algorithm;
+            this.hashCode = Objects.hash(type, signature, outputs, algorithm);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof Key)) return false;
+            final Key other = (Key) o;
+            return type == other.type
+                    && signature.equals(other.signature)
+                    && Objects.equals(outputs, other.outputs)
+                    && algorithm.equals(other.algorithm);
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Key, Function> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true); // access order
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Function> eldest) {
+            if(size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segment[] segments;
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize   the most functions to hold, at least 1
+     */
+    public FunctionCache(int maxSize) {
+        if(maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive. found: " + maxSize);
+        }
+        final int n = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maxSize)); // a power of two no greater than maxSize
+        final int remainder = maxSize % n;
+        this.segments = new Segment[n];
+        for (int i = 0; i < n; i++) {
+            segments[i] = new Segment(maxSize / n + (i < remainder ? 1 : 0));
+        }
+        this.maxSize = maxSize;
+    }
+
+    public Function get(String signature) throws ParseException {
+        return get(signature, null);
+    }
+
+    public Function get(String signature, String outputs) throws ParseException {
+        return get(Function.Type.FUNCTION, signature, outputs, null);
+    }
+
+    /**
+     * Returns the cached function for the given arguments, constructing and caching it on a miss.
+     *
+     * @param type  to denote function, constructor, or fallback
+     * @param signature the function signature
+     * @param outputs   the signature of the tuple containing the return types, or null
+     * @param messageDigest the hash function with which to generate the selector on a miss, or null for Keccak-256. Used
+     *                      only by the calling thread.
+     * @return  the function
+     * @throws ParseException   if {@code signature} or {@code outputs} is malformed
+     */
+    public Function get(Function.Type type, String signature, String outputs, MessageDigest messageDigest) throws ParseException {
+        final Key key = new Key(type, signature, outputs, messageDigest != null ? messageDigest.getAlgorithm() : DEFAULT_ALGORITHM);
+        final Segment segment = segmentFor(key);
+        Function f;
+        synchronized (segment) {
+            f = segment.get(key);
+        }
+        if(f != null) {
+            hits.increment();
+            return f;
+        }
+        misses.increment();
+        final Function built = new Function(type, signature, outputs, messageDigest != null ? messageDigest : Function.newDefaultDigest());
+        synchronized (segment) {
+            f = segment.putIfAbsent(key, built);
+        }
+        return f != null ? f : built;
+    }
+
+    private Segment segmentFor(Key key) {
+        final int h = key.hashCode;
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return  the number of functions currently cached
+     */
+    public int size() {
+        int size = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                size += s.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return  hits as a fraction of lookups, or 1 if there have been none
+     */
+    public double hitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0 ? 1.0 : (double) h / total;
+    }
+
+    public void clear() {
+        for (Segment s : segments) {
+            synchronized (s) {
+                s.clear();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FunctionCache{size=" + size() + ", maxSize=" + maxSize + ", hits=" + hits.sum()
+                + ", misses=" + misses.sum() + ", evictions=" + evictions.sum() + '}';
+    }
+}
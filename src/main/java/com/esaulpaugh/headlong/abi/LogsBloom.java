@@ -0,0 +1,217 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.joemelsha.crypto.hash.Keccak;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The 2048-bit bloom filter of a block header's or receipt's {@code logsBloom}. Each log address and topic sets three
+ * bits, chosen by the low 11 bits of each of the first three big-endian 16-bit words of its Keccak-256 hash.
+ *
+ * A {@link Probe} holds the bit positions of one address or topic, so that blooms can be tested against it without
+ * hashing and without allocating. Not thread-safe, but probes are immutable and may be shared.
+ */
+public final class LogsBloom {
+
+    public static final int BLOOM_LEN = 256;
+
+    private static final int HASH_PREFIX_LEN = 6; // three 16-bit words
+
+    private final byte[] bloom;
+    private final Keccak keccak = new Keccak(256);
+    private final byte[] hash = new byte[HASH_PREFIX_LEN];
+    private final ByteBuffer hashBuffer = ByteBuffer.wrap(hash);
+
+    public LogsBloom() {
+        this.bloom = new byte[BLOOM_LEN];
+    }
+
+    /**
+     * @param bloom a 256-byte bloom to copy
+     */
+    public LogsBloom(byte[] bloom) {
+        checkLength(bloom.length);
+        this.bloom = Arrays.copyOf(bloom, BLOOM_LEN);
+    }
+
+    /**
+     * Adds an address or topic.
+     *
+     * @param item  the 20-byte address or 32-byte topic
+     * @return  this
+     */
+    public LogsBloom add(byte[] item) {
+        hashPrefix(item);
+        for (int i = 0; i < HASH_PREFIX_LEN; i += 2) {
+            bloom[byteIndex(hash, i)] |= bitMask(hash, i);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the log's address and each of its topics.
+     *
+     * @return  this
+     */
+    public LogsBloom addLog(byte[] address, byte[][] topics) {
+        add(address);
+        for (byte[] topic : topics) {
+            add(topic);
+        }
+        return this;
+    }
+
+    /**
+     * Hashes {@code item} and tests whether it may have been added. Prefer a {@link Probe} when testing the same item
+     * more than once.
+     */
+    public boolean mightContain(byte[] item) {
+        hashPrefix(item);
+        for (int i = 0; i < HASH_PREFIX_LEN; i += 2) {
+            if((bloom[byteIndex(hash, i)] & bitMask(hash, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean mightContain(Probe probe) {
+        return probe.test(bloom, 0);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bloom, BLOOM_LEN);
+    }
+
+    private void hashPrefix(byte[] item) {
+        keccak.update(item);
+        hashBuffer.clear();
+        keccak.digest(hashBuffer); // squeezes only the bytes needed
+    }
+
+    private static int byteIndex(byte[] hash, int i) {
+        final int bit = ((hash[i] & 0x07) << 8) | (hash[i + 1] & 0xFF);
+        return BLOOM_LEN - 1 - (bit >>> 3);
+    }
+
+    private static byte bitMask(byte[] hash, int i) {
+        return (byte) (1 << (hash[i + 1] & 0x07));
+    }
+
+    private static void checkLength(int len) {
+        if(len != BLOOM_LEN) {
+            throw new IllegalArgumentException("bloom length must be " + BLOOM_LEN + ". found: " + len);
+        }
+    }
+
+    /**
+     * Returns the indices of the blooms which may contain any of the probes. Blooms which cannot are certain not to
+     * include a matching log.
+     *
+     * @param blooms    the blooms, 256 bytes each
+     * @param probes    the items sought
+     * @return  the set of indices into {@code blooms}
+     */
+    public static BitSet mightContainAny(List<byte[]> blooms, Probe... probes) {
+        final BitSet matches = new BitSet(blooms.size());
+        for (int b = 0; b < blooms.size(); b++) {
+            final byte[] bloom = blooms.get(b);
+            checkLength(bloom.length);
+            for (Probe probe : probes) {
+                if(probe.test(bloom, 0)) {
+                    matches.set(b);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Like {@link #mightContainAny(List, Probe...)} for blooms stored back to back, as in a column of block headers.
+     * The buffer's position is not changed.
+     *
+     * @param blooms    the blooms, from the buffer's position to its limit
+     */
+    public static BitSet mightContainAny(ByteBuffer blooms, Probe... probes) {
+        final int start = blooms.position();
+        final int len = blooms.remaining();
+        if(len % BLOOM_LEN != 0) {
+            throw new IllegalArgumentException("length must be a multiple of " + BLOOM_LEN + ". found: " + len);
+        }
+        final int count = len / BLOOM_LEN;
+        final BitSet matches = new BitSet(count);
+        for (int b = 0; b < count; b++) {
+            for (Probe probe : probes) {
+                if(probe.test(blooms, start + b * BLOOM_LEN)) {
+                    matches.set(b);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * The three bits an address or topic sets in a bloom.
+     */
+    public static final class Probe {
+
+        private final int i0, i1, i2;
+        private final byte m0, m1, m2;
+
+        private Probe(byte[] hash) {
+            this.i0 = byteIndex(hash, 0);
+            this.i1 = byteIndex(hash, 2);
+            this.i2 = byteIndex(hash, 4);
+            this.m0 = bitMask(hash, 0);
+            this.m1 = bitMask(hash, 2);
+            this.m2 = bitMask(hash, 4);
+        }
+
+        /**
+         * @param item  an address or topic
+         * @return  a probe for the item
+         */
+        public static Probe of(byte[] item) {
+            return new Probe(Function.newDefaultDigest().digest(item));
+        }
+
+        /**
+         * @param event a non-anonymous event
+         * @return  a probe for the event's topic0
+         */
+        public static Probe of(Event event) {
+            final byte[] topic0 = event.topic0();
+            if(topic0 == null) {
+                throw new IllegalArgumentException("anonymous events have no topic0: " + event.getName());
+            }
+            return of(topic0);
+        }
+
+        /**
+         * @param bloom an array containing a bloom
+         * @param offset    the index of the bloom's first byte
+         * @return  false if the item was certainly not added to the bloom
+         */
+        public boolean test(byte[] bloom, int offset) {
+            return (bloom[offset + i0] & m0) != 0
+                    && (bloom[offset + i1] & m1) != 0
+                    && (bloom[offset + i2] & m2) != 0;
+        }
+
+        /**
+         * @param bloom a buffer containing a bloom
+         * @param index the absolute index of the bloom's first byte
+         * @return  false if the item was certainly not added to the bloom
+         */
+        public boolean test(ByteBuffer bloom, int index) {
+            return (bloom.get(index + i0) & m0) != 0
+                    && (bloom.get(index + i1) & m1) != 0
+                    && (bloom.get(index + i2) & m2) != 0;
+        }
+    }
+}
@@ -45,9 +45,9 @@ class LongType extends UnitType<Long> {
     }
 
     @Override
-    Long decode(ByteBuffer bb, byte[] unitBuffer) {
-        bb.get(unitBuffer, 0, UNIT_LENGTH_BYTES);
-        BigInteger bi = new BigInteger(unitBuffer);
+    Long decode(ByteBuffer bb, DecodeContext ctx) {
+        bb.get(ctx.unitBuffer, 0, UNIT_LENGTH_BYTES);
+        BigInteger bi = new BigInteger(ctx.unitBuffer);
         validateBigIntBitLen(bi);
         return bi.longValue();
     }
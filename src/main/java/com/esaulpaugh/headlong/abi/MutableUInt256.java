@@ -0,0 +1,127 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A mutable counterpart to {@link UInt256} for accumulating values without allocating, e.g. summing amounts read
+ * straight out of encoded calls or logs. Not thread-safe.
+ */
+public final class MutableUInt256 implements Comparable<UInt256> {
+
+    private long w0, w1, w2, w3; // w0 is the most significant
+
+    public MutableUInt256() {
+    }
+
+    public MutableUInt256(UInt256 val) {
+        set(val);
+    }
+
+    public MutableUInt256 set(UInt256 val) {
+        this.w0 = val.w0;
+        this.w1 = val.w1;
+        this.w2 = val.w2;
+        this.w3 = val.w3;
+        return this;
+    }
+
+    public MutableUInt256 set(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        return this;
+    }
+
+    /**
+     * Sets this value to the 32-byte big-endian word at absolute index {@code index}. Does not change the buffer's
+     * position.
+     *
+     * @param bb    the buffer
+     * @param index the index of the word's first byte
+     * @return  this
+     */
+    public MutableUInt256 set(ByteBuffer bb, int index) {
+        return set(bb.getLong(index), bb.getLong(index + 8), bb.getLong(index + 16), bb.getLong(index + 24));
+    }
+
+    public MutableUInt256 add(UInt256 val) {
+        return add(val.w0, val.w1, val.w2, val.w3);
+    }
+
+    public MutableUInt256 add(MutableUInt256 val) {
+        return add(val.w0, val.w1, val.w2, val.w3);
+    }
+
+    /**
+     * Adds the 32-byte big-endian word at absolute index {@code index}. Does not change the buffer's position.
+     *
+     * @param bb    the buffer
+     * @param index the index of the word's first byte
+     * @return  this
+     */
+    public MutableUInt256 add(ByteBuffer bb, int index) {
+        return add(bb.getLong(index), bb.getLong(index + 8), bb.getLong(index + 16), bb.getLong(index + 24));
+    }
+
+    private MutableUInt256 add(long b0, long b1, long b2, long b3) {
+        final long s3 = w3 + b3;
+        long carry = UInt256.carry(s3, w3, 0L);
+        final long s2 = w2 + b2 + carry;
+        carry = UInt256.carry(s2, w2, carry);
+        final long s1 = w1 + b1 + carry;
+        carry = UInt256.carry(s1, w1, carry);
+        w0 += b0 + carry;
+        w1 = s1;
+        w2 = s2;
+        w3 = s3;
+        return this;
+    }
+
+    public MutableUInt256 subtract(UInt256 val) {
+        return subtract(val.w0, val.w1, val.w2, val.w3);
+    }
+
+    public MutableUInt256 subtract(MutableUInt256 val) {
+        return subtract(val.w0, val.w1, val.w2, val.w3);
+    }
+
+    private MutableUInt256 subtract(long b0, long b1, long b2, long b3) {
+        final long d3 = w3 - b3;
+        long borrow = UInt256.borrow(w3, b3, 0L);
+        final long d2 = w2 - b2 - borrow;
+        borrow = UInt256.borrow(w2, b2, borrow);
+        final long d1 = w1 - b1 - borrow;
+        borrow = UInt256.borrow(w1, b1, borrow);
+        w0 -= b0 + borrow;
+        w1 = d1;
+        w2 = d2;
+        w3 = d3;
+        return this;
+    }
+
+    public boolean isZero() {
+        return (w0 | w1 | w2 | w3) == 0L;
+    }
+
+    public int bitLength() {
+        return UInt256.bitLength(w0, w1, w2, w3);
+    }
+
+    public UInt256 toUInt256() {
+        return new UInt256(w0, w1, w2, w3);
+    }
+
+    /**
+     * Compares unsigned values.
+     */
+    @Override
+    public int compareTo(UInt256 o) {
+        return UInt256.compare(w0, w1, w2, w3, o.w0, o.w1, o.w2, o.w3);
+    }
+
+    @Override
+    public String toString() {
+        return toUInt256().toString();
+    }
+}
@@ -140,7 +140,8 @@ public class PackedDecoder {
 
     private static int decodeBigInteger(BigIntegerType bigIntegerType, byte[] buffer, int idx, Object[] dest, int destIdx) {
         final int len = bigIntegerType.byteLengthPacked(null);
-        BigInteger val = new BigInteger(Arrays.copyOfRange(buffer, idx, idx + len));
+        final byte[] bytes = Arrays.copyOfRange(buffer, idx, idx + len);
+        BigInteger val = bigIntegerType.unsigned ? new BigInteger(1, bytes) : new BigInteger(bytes);
         bigIntegerType.validate(val);
         dest[destIdx] = val;
         return len;
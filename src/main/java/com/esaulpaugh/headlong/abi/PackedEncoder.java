@@ -32,7 +32,10 @@ class PackedEncoder {
         case TYPE_CODE_BYTE:
         case TYPE_CODE_INT:
         case TYPE_CODE_LONG: return insertInt(((Number) value).longValue(), type.byteLengthPacked(value), dest, idx);
-        case TYPE_CODE_BIG_INTEGER: return insertInt(((BigInteger) value), type.byteLengthPacked(value), dest, idx);
+        case TYPE_CODE_BIG_INTEGER:
+            return value instanceof UInt256
+                    ? insertInt((UInt256) value, type.byteLengthPacked(value), dest, idx)
+                    : insertInt((BigInteger) value, type.byteLengthPacked(value), dest, idx);
         case TYPE_CODE_BIG_DECIMAL: return insertInt(((BigDecimal) value).unscaledValue(), type.byteLengthPacked(value), dest, idx);
         case TYPE_CODE_ARRAY:
             return encodeArray((ArrayType<ABIType<?>, ?>) type, value, dest, idx);
@@ -48,11 +51,16 @@ class PackedEncoder {
         switch (elementType.typeCode()) {
         case TYPE_CODE_BOOLEAN: return insertBooleans((boolean[]) value, dest, idx);
         case TYPE_CODE_BYTE:
-            byte[] arr = arrayType.isString ? ((String) value).getBytes(Strings.CHARSET_UTF_8) : (byte[]) value;
-            return insertBytes(arr, dest, idx);
+            if(arrayType.isString) {
+                return Strings.putUtf8((String) value, dest, idx);
+            }
+            return insertBytes((byte[]) value, dest, idx);
         case TYPE_CODE_INT: return insertInts((int[]) value, elementType.byteLengthPacked(value), dest, idx);
         case TYPE_CODE_LONG: return insertLongs((long[]) value, elementType.byteLengthPacked(value), dest, idx);
-        case TYPE_CODE_BIG_INTEGER: return insertBigIntegers((BigInteger[]) value, elementType.byteLengthPacked(value), dest, idx);
+        case TYPE_CODE_BIG_INTEGER:
+            return value instanceof UInt256[]
+                    ? insertUInt256s((UInt256[]) value, elementType.byteLengthPacked(value), dest, idx)
+                    : insertBigIntegers((BigInteger[]) value, elementType.byteLengthPacked(value), dest, idx);
         case TYPE_CODE_BIG_DECIMAL: return insertBigDecimals((BigDecimal[]) value, elementType.byteLengthPacked(value), dest, idx);
         case TYPE_CODE_ARRAY:
         case TYPE_CODE_TUPLE:
@@ -101,6 +109,13 @@ class PackedEncoder {
         return idx;
     }
 
+    private static int insertUInt256s(UInt256[] values, int byteLen, byte[] dest, int idx) {
+        for (UInt256 e : values) {
+            idx = insertInt(e, byteLen, dest, idx);
+        }
+        return idx;
+    }
+
     private static int insertBigDecimals(BigDecimal[] bigDecs, int byteLen, byte[] dest, int idx) {
         for (BigDecimal e : bigDecs) {
             idx = insertInt(e.unscaledValue(), byteLen, dest, idx);
@@ -138,13 +153,31 @@ class PackedEncoder {
     private static int insertInt(BigInteger bigGuy, int byteLen, byte[] dest, int idx) {
         byte[] arr = bigGuy.toByteArray();
         final int len = arr.length;
-        System.arraycopy(arr, 0, dest, idx + (byteLen - len), len);
-        if(bigGuy.signum() == -1) {
-            final int end = byteLen - 1;
-            for (int i = 0; i < end; i++) {
-                dest[idx + i] = CallEncoder.NEGATIVE_ONE_BYTE;
+        if(len >= byteLen) { // a uint256 may have a leading zero byte
+            System.arraycopy(arr, len - byteLen, dest, idx, byteLen);
+        } else {
+            final int paddingLen = byteLen - len;
+            final byte paddingByte = bigGuy.signum() == -1 ? CallEncoder.NEGATIVE_ONE_BYTE : 0;
+            for (int i = 0; i < paddingLen; i++) {
+                dest[idx + i] = paddingByte;
             }
+            System.arraycopy(arr, 0, dest, idx + paddingLen, len);
         }
         return idx + byteLen;
     }
+
+    private static int insertInt(UInt256 val, int byteLen, byte[] dest, int idx) {
+        final int end = idx + byteLen;
+        for (int i = 0; i < byteLen; i++) { // least significant byte first
+            final long word;
+            switch (i >>> 3) {
+            case 0: word = val.w3; break;
+            case 1: word = val.w2; break;
+            case 2: word = val.w1; break;
+            default: word = val.w0;
+            }
+            dest[end - 1 - i] = (byte) (word >>> ((i & 7) << 3));
+        }
+        return end;
+    }
 }
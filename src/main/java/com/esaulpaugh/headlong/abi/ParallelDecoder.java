@@ -0,0 +1,146 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_ARRAY;
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_TUPLE;
+import static com.esaulpaugh.headlong.abi.UnitType.LOG_2_UNIT_LENGTH_BYTES;
+
+/**
+ * Decodes by following offsets rather than by reading tails in order as {@link TupleType#decode(ByteBuffer)} does.
+ * Every dynamic element is located from its offset, relative to the start of the enclosing tuple or to the first head
+ * of the enclosing array, so the tails of an array's elements are independent of one another. Arrays of tuples or
+ * arrays (including {@code bytes[]} and {@code string[]}) with more than {@code threshold} elements are split into
+ * regions which are decoded concurrently in a {@link ForkJoinPool}.
+ *
+ * Canonical encodings decode to the same values as with the serial decoder, and the buffer's position is left at the
+ * end of the furthest-reaching element. When more than one element is invalid, the error reported is that of the
+ * lowest-indexed region.
+ */
+public final class ParallelDecoder {
+
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelDecoder() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool  the pool in which to run
+     * @param threshold the largest array, and the largest region of an array, to be decoded by a single thread
+     */
+    public ParallelDecoder(ForkJoinPool pool, int threshold) {
+        if(threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive. found: " + threshold);
+        }
+        this.pool = Objects.requireNonNull(pool);
+        this.threshold = threshold;
+    }
+
+    public Tuple decodeCall(Function function, ByteBuffer abiBuffer) {
+        return decodeCall(function, abiBuffer, false);
+    }
+
+    /**
+     * @see Function#decodeCall(ByteBuffer, boolean)
+     */
+    public Tuple decodeCall(Function function, ByteBuffer abiBuffer, boolean uint256) {
+        final DecodeContext ctx = new DecodeContext(uint256);
+        function.checkSelector(abiBuffer, ctx);
+        return decodeTuple(function.getParamTypes(), abiBuffer, ctx);
+    }
+
+    public Tuple decode(TupleType tupleType, ByteBuffer bb) {
+        return decode(tupleType, bb, false);
+    }
+
+    /**
+     * @see TupleType#decode(ByteBuffer, boolean)
+     */
+    public Tuple decode(TupleType tupleType, ByteBuffer bb, boolean uint256) {
+        return decodeTuple(tupleType, bb, new DecodeContext(uint256));
+    }
+
+    private Object decode(ABIType<?> type, ByteBuffer bb, DecodeContext ctx) {
+        switch (type.typeCode()) {
+        case TYPE_CODE_TUPLE: return decodeTuple((TupleType) type, bb, ctx);
+        case TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            final int elementCode = arrayType.elementType.typeCode();
+            if(elementCode == TYPE_CODE_ARRAY || elementCode == TYPE_CODE_TUPLE) {
+                return decodeArray(arrayType, bb, ctx, elementCode == TYPE_CODE_TUPLE);
+            }
+            return type.decode(bb, ctx);
+        default: return type.decode(bb, ctx);
+        }
+    }
+
+    private Tuple decodeTuple(TupleType tupleType, ByteBuffer bb, DecodeContext ctx) {
+        final ABIType<?>[] types = tupleType.elementTypes;
+        final Object[] elements = new Object[types.length];
+        final int start = bb.position();
+        int headIndex = start;
+        int end = start + tupleType.headLength;
+        for (int i = 0; i < types.length; i++) {
+            final ABIType<?> type = types[i];
+            bb.position(type.dynamic ? TupleView.resolve(bb, start, headIndex, ctx) : headIndex);
+            elements[i] = decode(type, bb, ctx);
+            if(type.dynamic) {
+                end = Math.max(end, bb.position());
+            }
+            headIndex += TupleType.headLength(type);
+        }
+        bb.position(end);
+        return new Tuple(elements);
+    }
+
+    private Object[] decodeArray(ArrayType<?, ?> arrayType, ByteBuffer bb, DecodeContext ctx, boolean tupleArray) {
+        final int len = arrayType.decodeLength(bb, ctx);
+        final int start = bb.position();
+        final ABIType<?> elementType = arrayType.elementType;
+        final int elementLen = TupleType.headLength(elementType);
+        if((long) len * elementLen > bb.limit() - start) {
+            throw new IllegalArgumentException("array length exceeds buffer @ " + start + ": " + len);
+        }
+        final Object[] dest = arrayType.newObjectArray(len, ctx, tupleArray);
+        final boolean uint256 = ctx.uint256;
+        final int headsEnd = start + len * elementLen;
+        final int end;
+        if(elementType.dynamic) {
+            end = run(len, (from, to) -> {
+                final ByteBuffer region = bb.duplicate();
+                final DecodeContext c = new DecodeContext(uint256);
+                int max = headsEnd;
+                for (int i = from; i < to; i++) {
+                    region.position(TupleView.resolve(region, start, start + (i << LOG_2_UNIT_LENGTH_BYTES), c));
+                    dest[i] = decode(elementType, region, c);
+                    max = Math.max(max, region.position());
+                }
+                return max;
+            });
+        } else {
+            run(len, (from, to) -> {
+                final ByteBuffer region = bb.duplicate();
+                final DecodeContext c = new DecodeContext(uint256);
+                region.position(start + from * elementLen);
+                for (int i = from; i < to; i++) {
+                    dest[i] = decode(elementType, region, c);
+                }
+                return 0;
+            });
+            end = headsEnd;
+        }
+        bb.position(end);
+        return dest;
+    }
+
+    private int run(int n, IntBinaryOperator op) {
+        return Regions.run(pool, threshold, n, op, Math::max);
+    }
+}
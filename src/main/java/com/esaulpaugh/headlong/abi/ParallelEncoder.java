@@ -0,0 +1,315 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+
+import static com.esaulpaugh.headlong.abi.ABIType.*;
+import static com.esaulpaugh.headlong.abi.UnitType.LOG_2_UNIT_LENGTH_BYTES;
+
+/**
+ * Validates and encodes like {@link Function#encodeCall(Tuple)} and {@link TupleType#encode(Tuple)}, except that arrays
+ * with more than {@code threshold} elements are split into regions of at most {@code threshold} elements which are
+ * validated and encoded concurrently in a {@link ForkJoinPool}. Every region's position in the output is known before
+ * it is written, so the output is identical to that of the serial encoder. When more than one element is invalid, the
+ * error reported is the one the serial encoder would report.
+ */
+public final class ParallelEncoder {
+
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    public ParallelEncoder() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param pool  the pool in which to run
+     * @param threshold the largest array, and the largest region of an array, to be handled by a single thread
+     */
+    public ParallelEncoder(ForkJoinPool pool, int threshold) {
+        if(threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive. found: " + threshold);
+        }
+        this.pool = Objects.requireNonNull(pool);
+        this.threshold = threshold;
+    }
+
+    public ByteBuffer encodeCall(Function function, Tuple args) {
+        final TupleType paramTypes = function.getParamTypes();
+        final Map<Object, int[]> offsets = newOffsetsMap();
+        final ByteBuffer dest = ByteBuffer.allocate(Function.SELECTOR_LEN + validateTuple(paramTypes, args, offsets));
+        dest.put(function.selector);
+        encodeTuple(paramTypes, args, dest, offsets);
+        return dest;
+    }
+
+    public ByteBuffer encode(TupleType tupleType, Tuple values) {
+        final Map<Object, int[]> offsets = newOffsetsMap();
+        final ByteBuffer dest = ByteBuffer.allocate(validateTuple(tupleType, values, offsets));
+        encodeTuple(tupleType, values, dest, offsets);
+        return dest;
+    }
+
+    /**
+     * @see TupleType#validate(Object)
+     */
+    public int validate(TupleType tupleType, Tuple values) {
+        return validateTuple(tupleType, values, null);
+    }
+
+    /**
+     * Maps each array of dynamic elements, by identity, to the offsets of its elements as measured during validation,
+     * so that encoding need not measure the elements again.
+     */
+    private static Map<Object, int[]> newOffsetsMap() {
+        return Collections.synchronizedMap(new IdentityHashMap<>());
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+
+    private int validate(ABIType<?> type, Object value, Map<Object, int[]> offsets) {
+        switch (type.typeCode()) {
+        case TYPE_CODE_TUPLE: return validateTuple((TupleType) type, value, offsets);
+        case TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            return arrayType.elementType.typeCode() != TYPE_CODE_BYTE
+                    ? validateArray(arrayType, value, offsets)
+                    : type.validate(value);
+        default: return type.validate(value);
+        }
+    }
+
+    private int validateTuple(TupleType tupleType, Object value, Map<Object, int[]> offsets) {
+        tupleType.validateClass(value);
+        final Object[] elements = ((Tuple) value).elements;
+        final ABIType<?>[] types = tupleType.elementTypes;
+        if(elements.length != types.length) {
+            throw new IllegalArgumentException("tuple length mismatch: actual != expected: " +
+                    elements.length + " != " + types.length);
+        }
+        int byteLength = 0;
+        int i = 0;
+        try {
+            for ( ; i < types.length; i++) {
+                final ABIType<?> type = types[i];
+                byteLength += type.dynamic
+                        ? CallEncoder.OFFSET_LENGTH_BYTES + validate(type, elements[i], offsets)
+                        : validate(type, elements[i], offsets);
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("illegal arg @ " + i + ": " + e.getMessage());
+        }
+        return byteLength;
+    }
+
+    /**
+     * @param offsets   null, or the map in which to record the element offsets of arrays of dynamic elements
+     */
+    private int validateArray(ArrayType<?, ?> arrayType, Object value, Map<Object, int[]> offsets) {
+        arrayType.validateClass(value);
+        final int len = arrayType.checkLength(arrayType.arrayLength(value), value);
+        final ABIType<?> elementType = arrayType.elementType;
+        final int elementsLen;
+        switch (elementType.typeCode()) {
+        case TYPE_CODE_ARRAY:
+        case TYPE_CODE_TUPLE:
+            final Object[] elements = (Object[]) value;
+            final int[] elementOffsets = offsets != null && elementType.dynamic ? new int[len + 1] : null; // relative to the first offset word
+            elementsLen = run(len, (from, to) -> {
+                int byteLength = 0;
+                int i = from;
+                try {
+                    for ( ; i < to; i++) {
+                        final int elementLen = validate(elementType, elements[i], offsets);
+                        if(elementOffsets != null) {
+                            elementOffsets[i + 1] = elementLen;
+                        }
+                        byteLength += elementLen;
+                    }
+                } catch (IllegalArgumentException | NullPointerException re) {
+                    throw new IllegalArgumentException("index " + i + ": " + re.getMessage(), re);
+                }
+                return byteLength;
+            });
+            if(elementOffsets != null) {
+                elementOffsets[0] = len << LOG_2_UNIT_LENGTH_BYTES;
+                for (int i = 0; i < len; i++) {
+                    elementOffsets[i + 1] += elementOffsets[i];
+                }
+                offsets.put(value, elementOffsets);
+            }
+            break;
+        default: elementsLen = run(len, (from, to) -> arrayType.validateElements(value, from, to));
+        }
+        return arrayType.headerLength(len) + elementsLen;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+
+    private void encode(ABIType<?> type, Object value, ByteBuffer dest, Map<Object, int[]> offsets) {
+        switch (type.typeCode()) {
+        case TYPE_CODE_TUPLE: encodeTuple((TupleType) type, (Tuple) value, dest, offsets); return;
+        case TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            if(arrayType.elementType.typeCode() != TYPE_CODE_BYTE) {
+                encodeArray(arrayType, value, dest, offsets);
+            } else {
+                encodeValue(type, value, dest);
+            }
+            return;
+        default: encodeValue(type, value, dest);
+        }
+    }
+
+    private static void encodeValue(ABIType<?> type, Object value, ByteBuffer dest) {
+        if(type.dynamic) {
+            CallEncoder.encodeTail(type, value, dest);
+        } else {
+            CallEncoder.encodeHead(type, value, dest);
+        }
+    }
+
+    /**
+     * Same as {@link CallEncoder#insertTuple(TupleType, Tuple, ByteBuffer)}, but splits large arrays.
+     */
+    private void encodeTuple(TupleType tupleType, Tuple tuple, ByteBuffer dest, Map<Object, int[]> offsets) {
+        final ABIType<?>[] types = tupleType.elementTypes;
+        final Object[] values = tuple.elements;
+        final int len = types.length;
+        int i;
+        if(!tupleType.dynamic) {
+            for (i = 0; i < len; i++) {
+                encode(types[i], values[i], dest, offsets);
+            }
+            return;
+        }
+        final int start = dest.position();
+        for (i = 0; i < len; i++) {
+            ABIType<?> type = types[i];
+            if(type.dynamic) {
+                dest.position(dest.position() + CallEncoder.OFFSET_LENGTH_BYTES);
+            } else {
+                encode(type, values[i], dest, offsets);
+            }
+        }
+        int headIndex = start;
+        for (i = 0; i < len; i++) {
+            ABIType<?> type = types[i];
+            if (type.dynamic) {
+                CallEncoder.insertOffset(dest.position() - start, dest, headIndex);
+                encode(type, values[i], dest, offsets);
+            }
+            headIndex += TupleType.headLength(type);
+        }
+    }
+
+    private void encodeArray(ArrayType<?, ?> arrayType, Object value, ByteBuffer dest, Map<Object, int[]> offsets) {
+        final ABIType<?> elementType = arrayType.elementType;
+        final int len = arrayType.arrayLength(value);
+        if(arrayType.dynamic) {
+            CallEncoder.insertInt(len, dest);
+        }
+        final int base = dest.position();
+        switch (elementType.typeCode()) {
+        case TYPE_CODE_ARRAY:
+        case TYPE_CODE_TUPLE:
+            final Object[] elements = (Object[]) value;
+            if(elementType.dynamic) {
+                final int[] elementOffsets = offsets.get(value); // relative to base, recorded by validateArray
+                run(len, (from, to) -> {
+                    final ByteBuffer region = dest.duplicate();
+                    for (int i = from; i < to; i++) {
+                        CallEncoder.insertOffset(elementOffsets[i], region, base + (i << LOG_2_UNIT_LENGTH_BYTES));
+                        region.position(base + elementOffsets[i]);
+                        encode(elementType, elements[i], region, offsets);
+                    }
+                    return 0;
+                });
+                dest.position(base + elementOffsets[len]);
+            } else {
+                final int elementLen = TupleType.headLength(elementType);
+                run(len, (from, to) -> {
+                    final ByteBuffer region = dest.duplicate();
+                    region.position(base + from * elementLen);
+                    for (int i = from; i < to; i++) {
+                        encode(elementType, elements[i], region, offsets);
+                    }
+                    return 0;
+                });
+                dest.position(base + len * elementLen);
+            }
+            return;
+        default:
+            run(len, (from, to) -> {
+                final ByteBuffer region = dest.duplicate();
+                region.position(base + (from << LOG_2_UNIT_LENGTH_BYTES));
+                encodeUnits(elementType, value, from, to, region);
+                return 0;
+            });
+            dest.position(base + (len << LOG_2_UNIT_LENGTH_BYTES));
+        }
+    }
+
+    private static void encodeUnits(ABIType<?> elementType, Object value, int from, int to, ByteBuffer dest) {
+        switch (elementType.typeCode()) {
+        case TYPE_CODE_BOOLEAN: {
+            final boolean[] booleans = (boolean[]) value;
+            for (int i = from; i < to; i++) {
+                CallEncoder.insertBool(booleans[i], dest);
+            }
+            return;
+        }
+        case TYPE_CODE_INT: {
+            final int[] ints = (int[]) value;
+            for (int i = from; i < to; i++) {
+                CallEncoder.insertInt(ints[i], dest);
+            }
+            return;
+        }
+        case TYPE_CODE_LONG: {
+            final long[] longs = (long[]) value;
+            for (int i = from; i < to; i++) {
+                CallEncoder.insertInt(longs[i], dest);
+            }
+            return;
+        }
+        case TYPE_CODE_BIG_INTEGER: {
+            if(value instanceof UInt256[]) {
+                final UInt256[] uint256s = (UInt256[]) value;
+                for (int i = from; i < to; i++) {
+                    CallEncoder.insertInt(uint256s[i], dest);
+                }
+            } else {
+                final BigInteger[] bigInts = (BigInteger[]) value;
+                for (int i = from; i < to; i++) {
+                    CallEncoder.insertInt(bigInts[i], dest);
+                }
+            }
+            return;
+        }
+        case TYPE_CODE_BIG_DECIMAL: {
+            final BigDecimal[] bigDecs = (BigDecimal[]) value;
+            for (int i = from; i < to; i++) {
+                CallEncoder.insertInt(bigDecs[i].unscaledValue(), dest);
+            }
+            return;
+        }
+        default: throw new IllegalArgumentException("unexpected array element type: " + elementType.toString());
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+
+    private int run(int n, IntBinaryOperator op) {
+        return Regions.run(pool, threshold, n, op, Integer::sum);
+    }
+}
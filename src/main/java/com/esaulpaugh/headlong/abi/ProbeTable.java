@@ -0,0 +1,109 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An open-addressing hash table with linear probing, for indexes which are read far more often than they are written.
+ * Lookups take no locks and are safe while another thread writes; an entry is visible to lookups as soon as
+ * {@link #put} returns. Writes must be serialized by the caller. Entries are never removed, though one may be replaced
+ * by another with the same key.
+ *
+ * @param <K>   the type of the keys looked up, which may be given as a region {@code [from, to)} of a larger key
+ * @param <E>   the type of the entries
+ */
+abstract class ProbeTable<K, E extends ProbeTable.Entry> {
+
+    abstract static class Entry {
+
+        final int hash;
+
+        Entry(int hash) {
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Replaced, never modified, when it grows. Kept at most half full so that probing always finds an empty slot.
+     */
+    private volatile AtomicReferenceArray<E> table;
+    private int size; // guarded by the caller
+
+    /**
+     * @param initialCapacity   a power of two
+     */
+    ProbeTable(int initialCapacity) {
+        this.table = new AtomicReferenceArray<>(initialCapacity);
+    }
+
+    /**
+     * @return  whether {@code entry}, whose hash is that of the key, holds the key
+     */
+    abstract boolean matches(E entry, K key, int from, int to);
+
+    final int size() {
+        return size;
+    }
+
+    /**
+     * @return  the entry holding the key, or null if there is none
+     */
+    final E find(int hash, K key, int from, int to) {
+        final AtomicReferenceArray<E> t = table;
+        final int mask = t.length() - 1;
+        for (int i = index(hash, mask); ; i = (i + 1) & mask) {
+            final E e = t.get(i);
+            if(e == null || (e.hash == hash && matches(e, key, from, to))) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * Adds {@code entry}, which holds the key, or replaces the entry already holding it.
+     */
+    final void put(E entry, K key, int from, int to) {
+        AtomicReferenceArray<E> t = table;
+        if((size + 1) << 1 > t.length()) {
+            table = t = grow(t);
+        }
+        final int mask = t.length() - 1;
+        for (int i = index(entry.hash, mask); ; i = (i + 1) & mask) {
+            final E e = t.get(i);
+            if(e == null) {
+                t.set(i, entry);
+                size++;
+                return;
+            }
+            if(e.hash == entry.hash && matches(e, key, from, to)) {
+                t.set(i, entry);
+                return;
+            }
+        }
+    }
+
+    private static <E extends Entry> AtomicReferenceArray<E> grow(AtomicReferenceArray<E> old) {
+        final AtomicReferenceArray<E> t = new AtomicReferenceArray<>(old.length() << 1);
+        final int mask = t.length() - 1;
+        for (int j = 0; j < old.length(); j++) {
+            final E e = old.get(j);
+            if(e != null) {
+                int i = index(e.hash, mask);
+                while (t.get(i) != null) {
+                    i = (i + 1) & mask;
+                }
+                t.set(i, e);
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Spreads hashes which differ only in their high bits across the table. Folding the high half of the product into
+     * the low half lets every bit of the hash reach every slot, however large the table. The mixer is fixed, so it does
+     * not defend against keys chosen to collide.
+     */
+    private static int index(int hash, int mask) {
+        final int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
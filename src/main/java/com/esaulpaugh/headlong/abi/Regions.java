@@ -0,0 +1,86 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Applies an operation to consecutive regions of [0, n) in a {@link ForkJoinPool} and combines the results. When more
+ * than one region fails with an {@link IllegalArgumentException} or {@link NullPointerException}, the failure of the
+ * lowest region is thrown, which is the failure a serial loop would report. Any other exception propagates as it is
+ * thrown.
+ */
+final class Regions {
+
+    private Regions() {}
+
+    /**
+     * @param pool  the pool in which to run
+     * @param threshold the largest region to be handled by a single thread
+     * @param n the number of indices
+     * @param op    applied to each region's {@code from} and {@code to}
+     * @param combiner  combines the results of adjacent regions
+     * @return  the combined result. Runs inline when {@code n} does not exceed the threshold
+     */
+    static int run(ForkJoinPool pool, int threshold, int n, IntBinaryOperator op, IntBinaryOperator combiner) {
+        if(n <= threshold) {
+            return op.applyAsInt(0, n);
+        }
+        final Region root = new Region(threshold, op, combiner, 0, n, new Failure());
+        final int result = ForkJoinTask.getPool() == pool ? root.invoke() : pool.invoke(root);
+        final RuntimeException failure = root.failure.exception;
+        if(failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    private static final class Failure {
+
+        private int from = Integer.MAX_VALUE;
+        RuntimeException exception;
+
+        synchronized void record(int from, RuntimeException e) {
+            if(from < this.from) {
+                this.from = from;
+                this.exception = e;
+            }
+        }
+    }
+
+    private static final class Region extends RecursiveTask<Integer> {
+
+        private final int threshold;
+        private final IntBinaryOperator op;
+        private final IntBinaryOperator combiner;
+        private final int from, to;
+        final Failure failure;
+
+        Region(int threshold, IntBinaryOperator op, IntBinaryOperator combiner, int from, int to, Failure failure) {
+            this.threshold = threshold;
+            this.op = op;
+            this.combiner = combiner;
+            this.from = from;
+            this.to = to;
+            this.failure = failure;
+        }
+
+        @Override
+        protected Integer compute() {
+            if(to - from <= threshold) {
+                try {
+                    return op.applyAsInt(from, to);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    failure.record(from, e);
+                    return 0;
+                }
+            }
+            final int mid = (from + to) >>> 1;
+            final Region left = new Region(threshold, op, combiner, from, mid, failure);
+            left.fork();
+            final int right = new Region(threshold, op, combiner, mid, to, failure).compute();
+            return combiner.applyAsInt(left.join(), right);
+        }
+    }
+}
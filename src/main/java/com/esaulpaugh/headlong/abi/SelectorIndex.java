@@ -0,0 +1,193 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static com.esaulpaugh.headlong.abi.Function.SELECTOR_LEN;
+import static com.esaulpaugh.headlong.util.Strings.HEX;
+import static com.esaulpaugh.headlong.util.Strings.encode;
+
+/**
+ * Maps 4-byte selectors to the {@link Function}s which have them, so that a call can be decoded without knowing in
+ * advance which function it calls. Selectors are packed into {@code int}s and kept in a {@link ProbeTable}.
+ * Functions whose selectors collide share one entry and are tried in the order in which they were added.
+ *
+ * Lookups and decodes take no locks and are safe while other threads add functions; a function becomes visible to
+ * lookups as soon as {@link #add(Function)} returns. Additions are serialized.
+ */
+public final class SelectorIndex {
+
+    private static final int INITIAL_CAPACITY = 64; // a power of two
+
+    private static final class Entry extends ProbeTable.Entry {
+
+        final Function[] functions;
+
+        Entry(int selector, Function[] functions) {
+            super(selector);
+            this.functions = functions;
+        }
+    }
+
+    private final ProbeTable<Void, Entry> table = new ProbeTable<Void, Entry>(INITIAL_CAPACITY) { // writes guarded by this
+        @Override
+        boolean matches(SelectorIndex.Entry entry, Void key, int from, int to) {
+            return true; // an entry's hash is its selector
+        }
+    };
+    private volatile int functionCount;
+
+    public SelectorIndex() {
+    }
+
+    public SelectorIndex(Iterable<Function> functions) {
+        addAll(functions);
+    }
+
+    /**
+     * Adds a function unless an equal one is already present.
+     *
+     * @param function  the function
+     * @return  true if the index changed
+     */
+    public synchronized boolean add(Function function) {
+        final int selector = pack(function.selector, 0);
+        final Entry e = find(selector);
+        final Function[] functions;
+        if(e == null) {
+            functions = new Function[] { function };
+        } else {
+            for (Function f : e.functions) {
+                if(f.equals(function)) {
+                    return false;
+                }
+            }
+            functions = Arrays.copyOf(e.functions, e.functions.length + 1);
+            functions[e.functions.length] = function;
+        }
+        table.put(new Entry(selector, functions), null, 0, 0);
+        functionCount++;
+        return true;
+    }
+
+    public synchronized void addAll(Iterable<Function> functions) {
+        for (Function f : functions) {
+            add(Objects.requireNonNull(f));
+        }
+    }
+
+    private Entry find(int selector) {
+        return table.find(selector, null, 0, 0);
+    }
+
+    /**
+     * @return  the number of functions indexed
+     */
+    public int size() {
+        return functionCount;
+    }
+
+    /**
+     * @param selector  the selector's four bytes, big-endian
+     * @return  the functions having the selector, in the order in which they were added; empty if none
+     */
+    public List<Function> lookup(int selector) {
+        final Entry e = find(selector);
+        return e == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(e.functions));
+    }
+
+    public List<Function> lookup(byte[] selector) {
+        if(selector.length != SELECTOR_LEN) {
+            throw new IllegalArgumentException("selector length must be " + SELECTOR_LEN + ". found: " + selector.length);
+        }
+        return lookup(pack(selector, 0));
+    }
+
+    public Call decode(ByteBuffer abiBuffer) {
+        return decode(abiBuffer, new DecodeContext());
+    }
+
+    /**
+     * Finds the function whose selector begins the call and decodes the call's arguments. If several functions share
+     * the selector, each is tried in turn and the first to decode the call successfully is chosen.
+     *
+     * @param abiBuffer the buffer containing the call, beginning at its position
+     * @param ctx   the context with which to decode
+     * @return  the function and its decoded arguments
+     * @throws IllegalArgumentException if no function has the selector, or none of them can decode the call
+     */
+    public Call decode(ByteBuffer abiBuffer, DecodeContext ctx) {
+        final int start = abiBuffer.position();
+        if(abiBuffer.remaining() < SELECTOR_LEN) {
+            throw new IllegalArgumentException("call too short: " + abiBuffer.remaining() + " bytes");
+        }
+        final Entry e = find(pack(abiBuffer, start));
+        if(e == null) {
+            throw new IllegalArgumentException("unknown selector: " + selectorHex(abiBuffer, start));
+        }
+        final Function[] functions = e.functions;
+        if(functions.length == 1) {
+            return new Call(functions[0], functions[0].decodeCall(abiBuffer, ctx));
+        }
+        RuntimeException first = null;
+        for (Function f : functions) {
+            try {
+                return new Call(f, f.decodeCall(abiBuffer, ctx));
+            } catch (IllegalArgumentException | BufferUnderflowException ex) {
+                abiBuffer.position(start);
+                if(first == null) {
+                    first = ex;
+                }
+            }
+        }
+        throw new IllegalArgumentException("no function with selector " + selectorHex(abiBuffer, start) + " could decode the call: " + first.getMessage(), first);
+    }
+
+    private static int pack(byte[] selector, int offset) {
+        return selector[offset] << 24
+                | (selector[offset + 1] & 0xFF) << 16
+                | (selector[offset + 2] & 0xFF) << 8
+                | (selector[offset + 3] & 0xFF);
+    }
+
+    private static int pack(ByteBuffer bb, int index) {
+        return bb.get(index) << 24
+                | (bb.get(index + 1) & 0xFF) << 16
+                | (bb.get(index + 2) & 0xFF) << 8
+                | (bb.get(index + 3) & 0xFF);
+    }
+
+    private static String selectorHex(ByteBuffer bb, int index) {
+        final byte[] selector = new byte[SELECTOR_LEN];
+        for (int i = 0; i < SELECTOR_LEN; i++) {
+            selector[i] = bb.get(index + i);
+        }
+        return encode(selector, HEX);
+    }
+
+    /**
+     * A decoded call: the function called and its arguments.
+     */
+    public static final class Call {
+
+        private final Function function;
+        private final Tuple args;
+
+        Call(Function function, Tuple args) {
+            this.function = function;
+            this.args = args;
+        }
+
+        public Function getFunction() {
+            return function;
+        }
+
+        public Tuple getArgs() {
+            return args;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.List;
+
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_ARRAY;
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_BYTE;
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_TUPLE;
+import static com.esaulpaugh.headlong.abi.Function.SELECTOR_LEN;
+import static com.esaulpaugh.headlong.abi.UnitType.UNIT_LENGTH_BYTES;
+import static com.esaulpaugh.headlong.util.Strings.HEX;
+import static com.esaulpaugh.headlong.util.Strings.encode;
+
+/**
+ * Decodes calls and tuples from a {@link ReadableByteChannel} or {@link InputStream}, reading it in chunks through a
+ * fixed-size buffer. Like {@link TupleType#decode(ByteBuffer)}, tails are read in order and offsets are not followed, so
+ * the input is consumed strictly front to back and never needs to be held in memory as a whole. Memory use is bounded
+ * by the buffer plus the largest single value being decoded, and a value whose encoding would exceed the maximum value
+ * length is rejected before anything is allocated for it. The channel must be blocking.
+ *
+ * Calls may follow one another back to back, as in a dump of calldata. Each is decoded as soon as its bytes arrive,
+ * and a {@link Listener} may be notified of each top-level argument as soon as it is decoded. State, including a
+ * partially read chunk, carries over from one call to the next. Not thread-safe.
+ */
+public final class StreamingDecoder {
+
+    public static final int DEFAULT_BUFFER_LENGTH = 8192;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 1 << 24; // 16 MiB
+
+    /**
+     * Receives arguments and calls as they are decoded.
+     */
+    public interface Listener {
+
+        /**
+         * Called for each argument of a call as soon as it is decoded. Static arguments are decoded with the heads and
+         * so arrive before any dynamic argument.
+         *
+         * @param function  the function being called
+         * @param index the argument's index in the function's parameters
+         * @param value the argument
+         */
+        default void onArgument(Function function, int index, Object value) {
+        }
+
+        /**
+         * Called when a call has been fully decoded.
+         */
+        default void onCall(Function function, Tuple args) {
+        }
+    }
+
+    private final ReadableByteChannel in;
+    private final ByteBuffer buffer; // unread bytes are between position and limit
+    private final DecodeContext ctx;
+    private final int maxValueLength;
+    private long consumed;
+
+    public StreamingDecoder(ReadableByteChannel in) {
+        this(in, DEFAULT_BUFFER_LENGTH, new DecodeContext());
+    }
+
+    public StreamingDecoder(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    public StreamingDecoder(ReadableByteChannel in, int bufferLength, DecodeContext ctx) {
+        this(in, bufferLength, Math.max(bufferLength, DEFAULT_MAX_VALUE_LENGTH), ctx);
+    }
+
+    /**
+     * @param in    the input, a blocking channel
+     * @param bufferLength  the size of the read buffer in bytes, at least 32
+     * @param maxValueLength    the largest encoding in bytes, as declared by the input, which will be accepted for a
+     *                          single value, at least {@code bufferLength}
+     * @param ctx   the context with which to decode
+     */
+    public StreamingDecoder(ReadableByteChannel in, int bufferLength, int maxValueLength, DecodeContext ctx) {
+        if(bufferLength < UNIT_LENGTH_BYTES) {
+            throw new IllegalArgumentException("buffer length must be at least " + UNIT_LENGTH_BYTES + ". found: " + bufferLength);
+        }
+        if(maxValueLength < bufferLength) {
+            throw new IllegalArgumentException("max value length must be at least the buffer length. found: " + maxValueLength + " < " + bufferLength);
+        }
+        if(in instanceof SelectableChannel && !((SelectableChannel) in).isBlocking()) {
+            throw new IllegalArgumentException("channel must be in blocking mode");
+        }
+        this.in = in;
+        this.buffer = ByteBuffer.allocate(bufferLength);
+        this.buffer.flip();
+        this.ctx = ctx;
+        this.maxValueLength = maxValueLength;
+    }
+
+    /**
+     * @return  the number of bytes decoded so far
+     */
+    public long position() {
+        return consumed + buffer.position();
+    }
+
+    /**
+     * Reads from the input if necessary to determine whether any bytes remain.
+     *
+     * @return  false if the input has been fully consumed
+     */
+    public boolean hasRemaining() throws IOException {
+        if(buffer.hasRemaining()) {
+            return true;
+        }
+        consumed += buffer.position();
+        buffer.clear();
+        try {
+            if(!read(buffer)) {
+                return false;
+            }
+        } finally {
+            buffer.flip();
+        }
+        return true;
+    }
+
+    public Tuple decode(TupleType tupleType) throws IOException {
+        return decodeTuple(tupleType, null, null);
+    }
+
+    /**
+     * Reads and checks the selector, then decodes the arguments.
+     */
+    public Tuple decodeCall(Function function) throws IOException {
+        return decodeCall(function, null);
+    }
+
+    public Tuple decodeCall(Function function, Listener listener) throws IOException {
+        final ByteBuffer bb = require(SELECTOR_LEN);
+        final int start = bb.position();
+        final byte[] selector = function.selector;
+        for (int i = 0; i < SELECTOR_LEN; i++) {
+            if(bb.get(start + i) != selector[i]) {
+                throw new IllegalArgumentException("given selector does not match: expected: " + function.selectorHex()
+                        + ", found: " + selectorHex(bb, start));
+            }
+        }
+        bb.position(start + SELECTOR_LEN);
+        return finishCall(function, listener);
+    }
+
+    /**
+     * Reads the selector, looks it up in {@code index} and decodes the arguments. Because the input cannot be reread, a
+     * selector shared by several functions is decoded as the first of them to have been added to the index.
+     */
+    public SelectorIndex.Call decodeCall(SelectorIndex index) throws IOException {
+        return decodeCall(index, null);
+    }
+
+    public SelectorIndex.Call decodeCall(SelectorIndex index, Listener listener) throws IOException {
+        final ByteBuffer bb = require(SELECTOR_LEN);
+        final int start = bb.position();
+        final int selector = bb.get(start) << 24
+                | (bb.get(start + 1) & 0xFF) << 16
+                | (bb.get(start + 2) & 0xFF) << 8
+                | (bb.get(start + 3) & 0xFF);
+        final List<Function> functions = index.lookup(selector);
+        if(functions.isEmpty()) {
+            throw new IllegalArgumentException("unknown selector: " + selectorHex(bb, start));
+        }
+        bb.position(start + SELECTOR_LEN);
+        final Function function = functions.get(0);
+        return new SelectorIndex.Call(function, finishCall(function, listener));
+    }
+
+    /**
+     * Decodes calls to {@code function} until the input is exhausted, passing each to {@code listener}.
+     *
+     * @return  the number of calls decoded
+     */
+    public long decodeCalls(Function function, Listener listener) throws IOException {
+        long count = 0;
+        while (hasRemaining()) {
+            decodeCall(function, listener);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Decodes calls to any of the functions in {@code index} until the input is exhausted, passing each to
+     * {@code listener}.
+     *
+     * @return  the number of calls decoded
+     */
+    public long decodeCalls(SelectorIndex index, Listener listener) throws IOException {
+        long count = 0;
+        while (hasRemaining()) {
+            decodeCall(index, listener);
+            count++;
+        }
+        return count;
+    }
+
+    private Tuple finishCall(Function function, Listener listener) throws IOException {
+        final Tuple args = decodeTuple(function.getParamTypes(), function, listener);
+        if(listener != null) {
+            listener.onCall(function, args);
+        }
+        return args;
+    }
+
+    private static String selectorHex(ByteBuffer bb, int index) {
+        final byte[] selector = new byte[SELECTOR_LEN];
+        for (int i = 0; i < SELECTOR_LEN; i++) {
+            selector[i] = bb.get(index + i);
+        }
+        return encode(selector, HEX);
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+
+    private Object decode(ABIType<?> type) throws IOException {
+        switch (type.typeCode()) {
+        case TYPE_CODE_TUPLE: return decodeTuple((TupleType) type, null, null);
+        case TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            final int elementCode = arrayType.elementType.typeCode();
+            if(elementCode == TYPE_CODE_ARRAY || elementCode == TYPE_CODE_TUPLE) {
+                return decodeObjectArray(arrayType, elementCode == TYPE_CODE_TUPLE);
+            }
+            return type.decode(require(type.dynamic ? dynamicLength(arrayType) : TupleType.headLength(type)), ctx);
+        default: return type.decode(require(TupleType.headLength(type)), ctx);
+        }
+    }
+
+    private Tuple decodeTuple(TupleType tupleType, Function function, Listener listener) throws IOException {
+        final ABIType<?>[] types = tupleType.elementTypes;
+        final int len = types.length;
+        final Object[] elements = new Object[len];
+        final int base = ctx.pushOffsets(len);
+        try {
+            for (int i = 0; i < len; i++) {
+                final ABIType<?> type = types[i];
+                if(type.dynamic) {
+                    final int offset = CallEncoder.OFFSET_TYPE.decode(require(UNIT_LENGTH_BYTES), ctx);
+                    ctx.offsets[base + i] = offset;
+                } else {
+                    elements[i] = decode(type);
+                    if(listener != null) {
+                        listener.onArgument(function, i, elements[i]);
+                    }
+                }
+            }
+            for (int i = 0; i < len; i++) {
+                final ABIType<?> type = types[i];
+                if(type.dynamic) {
+                    if(ctx.offsets[base + i] <= 0) {
+                        throw new IllegalArgumentException("offset not found");
+                    }
+                    elements[i] = decode(type);
+                    if(listener != null) {
+                        listener.onArgument(function, i, elements[i]);
+                    }
+                }
+            }
+        } finally {
+            ctx.popOffsets(base);
+        }
+        return new Tuple(elements);
+    }
+
+    private Object[] decodeObjectArray(ArrayType<?, ?> arrayType, boolean tupleArray) throws IOException {
+        final int len = arrayType.dynamic
+                ? arrayType.decodeLength(require(UNIT_LENGTH_BYTES), ctx)
+                : arrayType.length;
+        final ABIType<?> elementType = arrayType.elementType;
+        // the heads alone take this many bytes; each element counts as at least one
+        final long headsLen = (long) len * (elementType.dynamic ? UNIT_LENGTH_BYTES : Math.max(1, TupleType.headLength(elementType)));
+        if(headsLen > maxValueLength) {
+            throw new IllegalArgumentException("array too large @ " + position() + ": " + len);
+        }
+        final Object[] dest = arrayType.newObjectArray(len, ctx, tupleArray);
+        if(!elementType.dynamic) {
+            for (int i = 0; i < len; i++) {
+                dest[i] = decode(elementType);
+            }
+            return dest;
+        }
+        final int base = ctx.pushOffsets(len);
+        try {
+            for (int i = 0; i < len; i++) {
+                final int offset = CallEncoder.OFFSET_TYPE.decode(require(UNIT_LENGTH_BYTES), ctx);
+                ctx.offsets[base + i] = offset;
+            }
+            for (int i = 0; i < len; i++) {
+                if(ctx.offsets[base + i] > 0) {
+                    dest[i] = decode(elementType);
+                }
+            }
+        } finally {
+            ctx.popOffsets(base);
+        }
+        return dest;
+    }
+
+    /**
+     * Returns the encoded length of a dynamic array of static units, such as {@code bytes}, {@code string} or
+     * {@code uint256[]}, reading but not consuming its length.
+     */
+    private int dynamicLength(ArrayType<?, ?> arrayType) throws IOException {
+        final ByteBuffer bb = require(UNIT_LENGTH_BYTES);
+        final int start = bb.position();
+        final int len = arrayType.decodeLength(bb, ctx);
+        bb.position(start);
+        if(len < 0) {
+            throw new IllegalArgumentException("illegal array length @ " + position() + ": " + len);
+        }
+        final ABIType<?> elementType = arrayType.elementType;
+        final long dataLen = elementType.typeCode() == TYPE_CODE_BYTE
+                ? ArrayType.roundLengthUp(len)
+                : (long) len * TupleType.headLength(elementType);
+        if(dataLen > Integer.MAX_VALUE - UNIT_LENGTH_BYTES) {
+            throw new IllegalArgumentException("array too large @ " + position() + ": " + len);
+        }
+        return UNIT_LENGTH_BYTES + (int) dataLen;
+    }
+
+    /**
+     * Returns a buffer whose next {@code n} bytes are the next {@code n} bytes of input. Usually this is the read
+     * buffer; a value too large for it gets a buffer of its own.
+     */
+    private ByteBuffer require(int n) throws IOException {
+        final ByteBuffer buffer = this.buffer;
+        if(buffer.remaining() >= n) {
+            return buffer;
+        }
+        if(n > buffer.capacity()) {
+            if(n > maxValueLength) {
+                throw new IllegalArgumentException("value too large @ " + position() + ": " + n + " > " + maxValueLength);
+            }
+            final ByteBuffer value = ByteBuffer.allocate(n);
+            final long start = consumed + buffer.position();
+            value.put(buffer);
+            buffer.clear().flip();
+            while (value.hasRemaining()) {
+                if(!read(value)) {
+                    throw new EOFException("unexpected end of input after " + (start + value.position()) + " bytes");
+                }
+            }
+            consumed = start + n;
+            value.flip();
+            return value;
+        }
+        consumed += buffer.position();
+        buffer.compact();
+        try {
+            while (buffer.position() < n) {
+                if(!read(buffer)) {
+                    throw new EOFException("unexpected end of input after " + (consumed + buffer.position()) + " bytes");
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+        return buffer;
+    }
+
+    /**
+     * Reads at least one byte into {@code dest}, which must have space remaining. A blocking channel never reads zero
+     * bytes into such a buffer, so a channel which does is rejected rather than polled.
+     *
+     * @return  false at the end of input
+     */
+    private boolean read(ByteBuffer dest) throws IOException {
+        final int n = in.read(dest);
+        if(n == 0) {
+            throw new IOException("no bytes read; the channel must be in blocking mode");
+        }
+        return n > 0;
+    }
+}
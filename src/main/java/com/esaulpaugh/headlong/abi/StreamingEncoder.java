@@ -0,0 +1,386 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.esaulpaugh.headlong.util.Strings;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import static com.esaulpaugh.headlong.abi.ABIType.*;
+import static com.esaulpaugh.headlong.abi.UnitType.UNIT_LENGTH_BYTES;
+
+/**
+ * Writes standard ABI encodings to a {@link WritableByteChannel} or {@link OutputStream} through a fixed-size scratch
+ * buffer, so that the whole encoding is never held in memory. {@code bytes} payloads are handed to the channel
+ * directly rather than copied, and in a single gathering write along with any pending scratch bytes if the channel is a
+ * {@link GatheringByteChannel}.
+ *
+ * Because offsets precede the data they point to, the lengths of dynamic elements are measured before anything is
+ * written. Heap use is therefore proportional to the number of dynamic elements, not to the number of bytes. Not
+ * thread-safe; one instance may be reused for any number of encodings. Channels must be in blocking mode.
+ */
+public final class StreamingEncoder {
+
+    public static final int DEFAULT_SCRATCH_LENGTH = 8192;
+
+    private static final byte[] PADDING = new byte[UNIT_LENGTH_BYTES];
+
+    private final ByteBuffer scratch;
+
+    private WritableByteChannel out;
+    private GatheringByteChannel gathering;
+    private final ByteBuffer[] pair = new ByteBuffer[2];
+    private long written;
+
+    private int[] lengths = new int[16]; // lengths of dynamic elements, in the order in which they are needed
+    private int count;
+    private int next;
+
+    public StreamingEncoder() {
+        this(DEFAULT_SCRATCH_LENGTH);
+    }
+
+    /**
+     * @param scratchLength the size of the scratch buffer in bytes, at least 32
+     */
+    public StreamingEncoder(int scratchLength) {
+        if(scratchLength < UNIT_LENGTH_BYTES) {
+            throw new IllegalArgumentException("scratch length must be at least " + UNIT_LENGTH_BYTES + ". found: " + scratchLength);
+        }
+        this.scratch = ByteBuffer.allocate(scratchLength);
+    }
+
+    /**
+     * Validates {@code args} and writes the selector followed by the encoded arguments.
+     *
+     * @return  the number of bytes written
+     */
+    public long encodeCall(Function function, Tuple args, WritableByteChannel out) throws IOException {
+        function.getParamTypes().validate(args);
+        begin(out);
+        try {
+            scratch.put(function.selector);
+            return end(function.getParamTypes(), args);
+        } finally {
+            reset();
+        }
+    }
+
+    public long encodeCall(Function function, Tuple args, OutputStream out) throws IOException {
+        return encodeCall(function, args, Channels.newChannel(out));
+    }
+
+    /**
+     * Validates {@code values} and writes their encoding.
+     *
+     * @return  the number of bytes written
+     */
+    public long encode(TupleType tupleType, Tuple values, WritableByteChannel out) throws IOException {
+        tupleType.validate(values);
+        begin(out);
+        try {
+            return end(tupleType, values);
+        } finally {
+            reset();
+        }
+    }
+
+    public long encode(TupleType tupleType, Tuple values, OutputStream out) throws IOException {
+        return encode(tupleType, values, Channels.newChannel(out));
+    }
+
+    private void begin(WritableByteChannel out) {
+        if(out instanceof SelectableChannel && !((SelectableChannel) out).isBlocking()) {
+            throw new IllegalArgumentException("channel must be in blocking mode");
+        }
+        this.out = out;
+        this.gathering = out instanceof GatheringByteChannel ? (GatheringByteChannel) out : null;
+    }
+
+    private long end(TupleType tupleType, Tuple values) throws IOException {
+        measure(tupleType, values);
+        write(tupleType, values);
+        flush();
+        return written;
+    }
+
+    private void reset() {
+        scratch.clear();
+        out = null;
+        gathering = null;
+        pair[1] = null;
+        written = 0L;
+        count = 0;
+        next = 0;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+
+    private int reserve(int n) {
+        final int slot = count;
+        count += n;
+        if(count > lengths.length) {
+            lengths = Arrays.copyOf(lengths, Math.max(count, lengths.length << 1));
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the encoded length of {@code value} and records the length of each dynamic element of every tuple and
+     * array that has them. Slots for an element's children are reserved before any child is measured, matching the
+     * order in which {@link #write(ABIType, Object)} consumes them.
+     */
+    private int measure(ABIType<?> type, Object value) {
+        if(!type.dynamic) {
+            return TupleType.headLength(type);
+        }
+        switch (type.typeCode()) {
+        case TYPE_CODE_TUPLE: {
+            final TupleType tupleType = (TupleType) type;
+            final ABIType<?>[] types = tupleType.elementTypes;
+            final Object[] values = ((Tuple) value).elements;
+            int slot = 0;
+            for (ABIType<?> t : types) {
+                if(t.dynamic) {
+                    slot++;
+                }
+            }
+            slot = reserve(slot);
+            int len = tupleType.headLength;
+            for (int i = 0; i < types.length; i++) {
+                if(types[i].dynamic) {
+                    final int elementLen = measure(types[i], values[i]); // may grow lengths
+                    lengths[slot++] = elementLen;
+                    len += elementLen;
+                }
+            }
+            return len;
+        }
+        case TYPE_CODE_ARRAY: {
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            final ABIType<?> elementType = arrayType.elementType;
+            if(!elementType.dynamic) {
+                return arrayType.byteLength(value);
+            }
+            final Object[] elements = (Object[]) value;
+            int slot = reserve(elements.length);
+            int len = UNIT_LENGTH_BYTES + elements.length * UNIT_LENGTH_BYTES; // length and offsets
+            for (Object e : elements) {
+                final int elementLen = measure(elementType, e);
+                lengths[slot++] = elementLen;
+                len += elementLen;
+            }
+            return len;
+        }
+        default: throw new IllegalArgumentException("unrecognized type: " + type.toString());
+        }
+    }
+
+    private void write(ABIType<?> type, Object value) throws IOException {
+        switch (type.typeCode()) {
+        case TYPE_CODE_BOOLEAN: ensure(UNIT_LENGTH_BYTES); CallEncoder.insertBool((boolean) value, scratch); return;
+        case TYPE_CODE_BYTE:
+        case TYPE_CODE_INT:
+        case TYPE_CODE_LONG: ensure(UNIT_LENGTH_BYTES); CallEncoder.insertInt(((Number) value).longValue(), scratch); return;
+        case TYPE_CODE_BIG_INTEGER: writeInt((Number) value); return;
+        case TYPE_CODE_BIG_DECIMAL: writeInt(((BigDecimal) value).unscaledValue()); return;
+        case TYPE_CODE_ARRAY: writeArray((ArrayType<?, ?>) type, value); return;
+        case TYPE_CODE_TUPLE: writeTuple((TupleType) type, (Tuple) value); return;
+        default: throw new IllegalArgumentException("unrecognized type: " + type.toString());
+        }
+    }
+
+    private void writeTuple(TupleType tupleType, Tuple tuple) throws IOException {
+        final ABIType<?>[] types = tupleType.elementTypes;
+        final Object[] values = tuple.elements;
+        int offset = tupleType.headLength;
+        for (int i = 0; i < types.length; i++) {
+            if(types[i].dynamic) {
+                writeLength(offset);
+                offset += lengths[next++];
+            } else {
+                write(types[i], values[i]);
+            }
+        }
+        if(tupleType.dynamic) {
+            for (int i = 0; i < types.length; i++) {
+                if(types[i].dynamic) {
+                    write(types[i], values[i]);
+                }
+            }
+        }
+    }
+
+    private void writeArray(ArrayType<?, ?> arrayType, Object value) throws IOException {
+        final ABIType<?> elementType = arrayType.elementType;
+        switch (elementType.typeCode()) {
+        case TYPE_CODE_BOOLEAN: {
+            final boolean[] booleans = (boolean[]) value;
+            writeArrayLength(arrayType, booleans.length);
+            for (boolean e : booleans) {
+                ensure(UNIT_LENGTH_BYTES);
+                CallEncoder.insertBool(e, scratch);
+            }
+            return;
+        }
+        case TYPE_CODE_BYTE: {
+            if(arrayType.isString) {
+                writeString((String) value);
+            } else {
+                final byte[] bytes = (byte[]) value;
+                writeArrayLength(arrayType, bytes.length);
+                writeBytes(bytes);
+                writePadding(bytes.length);
+            }
+            return;
+        }
+        case TYPE_CODE_INT: {
+            final int[] ints = (int[]) value;
+            writeArrayLength(arrayType, ints.length);
+            for (int e : ints) {
+                ensure(UNIT_LENGTH_BYTES);
+                CallEncoder.insertInt(e, scratch);
+            }
+            return;
+        }
+        case TYPE_CODE_LONG: {
+            final long[] longs = (long[]) value;
+            writeArrayLength(arrayType, longs.length);
+            for (long e : longs) {
+                ensure(UNIT_LENGTH_BYTES);
+                CallEncoder.insertInt(e, scratch);
+            }
+            return;
+        }
+        case TYPE_CODE_BIG_INTEGER:
+        case TYPE_CODE_BIG_DECIMAL:
+        case TYPE_CODE_ARRAY:
+        case TYPE_CODE_TUPLE: {
+            final Object[] elements = (Object[]) value;
+            final int len = elements.length;
+            writeArrayLength(arrayType, len);
+            if(elementType.dynamic) {
+                int offset = len * UNIT_LENGTH_BYTES;
+                for (int i = 0; i < len; i++) {
+                    writeLength(offset);
+                    offset += lengths[next++];
+                }
+            }
+            for (Object e : elements) {
+                write(elementType, e);
+            }
+            return;
+        }
+        default: throw new IllegalArgumentException("unexpected array element type: " + elementType.toString());
+        }
+    }
+
+    private void writeArrayLength(ArrayType<?, ?> arrayType, int len) throws IOException {
+        if(arrayType.dynamic) {
+            writeLength(len);
+        }
+    }
+
+    private void writeLength(int len) throws IOException {
+        ensure(UNIT_LENGTH_BYTES);
+        CallEncoder.insertInt(len, scratch);
+    }
+
+    private void writeInt(Number value) throws IOException {
+        ensure(UNIT_LENGTH_BYTES);
+        if(value instanceof UInt256) {
+            CallEncoder.insertInt((UInt256) value, scratch);
+        } else {
+            CallEncoder.insertInt((BigInteger) value, scratch);
+        }
+    }
+
+    private void writeString(String string) throws IOException {
+        final int byteLen = Strings.utf8Length(string);
+        writeLength(byteLen);
+        final int len = string.length();
+        int i = 0;
+        while (true) {
+            i = Strings.putUtf8(string, i, scratch);
+            if(i == len) {
+                break;
+            }
+            drain();
+        }
+        writePadding(byteLen);
+    }
+
+    private void writePadding(int dataLen) throws IOException {
+        final int mod = dataLen & (UNIT_LENGTH_BYTES - 1);
+        if(mod != 0) {
+            ensure(UNIT_LENGTH_BYTES);
+            scratch.put(PADDING, 0, UNIT_LENGTH_BYTES - mod);
+        }
+    }
+
+    /**
+     * Copies small arrays into the scratch buffer. Larger ones are written straight from the caller's array.
+     */
+    private void writeBytes(byte[] bytes) throws IOException {
+        if(bytes.length <= scratch.remaining()) {
+            scratch.put(bytes);
+            return;
+        }
+        final ByteBuffer payload = ByteBuffer.wrap(bytes);
+        scratch.flip();
+        if(gathering != null) {
+            pair[0] = scratch;
+            pair[1] = payload;
+            while (scratch.hasRemaining() || payload.hasRemaining()) {
+                count(gathering.write(pair));
+            }
+            pair[1] = null;
+        } else {
+            writeFully(scratch);
+            writeFully(payload);
+        }
+        scratch.clear();
+    }
+
+    private void ensure(int n) throws IOException {
+        if(scratch.remaining() < n) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        scratch.flip();
+        writeFully(scratch);
+        scratch.clear();
+    }
+
+    private void flush() throws IOException {
+        if(scratch.position() > 0) {
+            drain();
+        }
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            count(out.write(src));
+        }
+    }
+
+    /**
+     * Counts the bytes of a write of at least one byte. A blocking channel never writes zero bytes of a buffer with
+     * bytes remaining, so a channel which does is rejected rather than retried.
+     */
+    private void count(long n) throws IOException {
+        if(n == 0L) {
+            throw new IOException("no bytes written; the channel must be in blocking mode");
+        }
+        written += n;
+    }
+}
@@ -0,0 +1,248 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.esaulpaugh.headlong.util.Strings;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_ARRAY;
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_TUPLE;
+import static com.esaulpaugh.headlong.abi.Event.TOPIC_LEN;
+import static com.esaulpaugh.headlong.abi.UnitType.UNIT_LENGTH_BYTES;
+import static com.esaulpaugh.headlong.util.Strings.UTF_8;
+
+/**
+ * A precompiled test of whether a log was emitted by a given {@link Event} with given values for some of its indexed
+ * parameters. Each expected value is encoded, or for arrays, {@code bytes}, {@code string} and tuples hashed, into its
+ * 32-byte topic once, when the filter is compiled; a log is then matched by comparing its raw topics four
+ * {@code long}s at a time, without decoding. Immutable. See {@link TopicFilterSet} for matching against many filters.
+ */
+public final class TopicFilter {
+
+    static final int WORDS_PER_TOPIC = TOPIC_LEN / Long.BYTES;
+
+    private final int id;
+    private final Event event;
+    private final int topicCount;
+    final int[] positions; // the index in the log's topics of each constrained topic
+    final long[] words; // WORDS_PER_TOPIC per constrained topic, big-endian
+
+    private TopicFilter(int id, Event event, byte[][] constrained) {
+        this.id = id;
+        this.event = event;
+        final int first = event.isAnonymous() ? 0 : 1;
+        this.topicCount = first + constrained.length;
+        int n = first;
+        for (byte[] topic : constrained) {
+            if(topic != null) {
+                n++;
+            }
+        }
+        this.positions = new int[n];
+        this.words = new long[n * WORDS_PER_TOPIC];
+        int k = 0;
+        if(first == 1) {
+            put(k++, 0, event.topic0());
+        }
+        for (int i = 0; i < constrained.length; i++) {
+            if(constrained[i] != null) {
+                put(k++, first + i, constrained[i]);
+            }
+        }
+    }
+
+    private void put(int k, int position, byte[] topic) {
+        positions[k] = position;
+        for (int w = 0; w < WORDS_PER_TOPIC; w++) {
+            words[k * WORDS_PER_TOPIC + w] = word(topic, w * Long.BYTES);
+        }
+    }
+
+    /**
+     * Compiles a filter from expected values for the event's indexed parameters, in order. A {@code null} value matches
+     * any topic. Values of hashed types may be given either as the value itself or, unless the value would be a
+     * {@code byte[]}, as its 32-byte hash.
+     *
+     * @param id    an identifier reported by {@link TopicFilterSet#match(byte[][])}
+     * @param event the event
+     * @param indexedValues one value or {@code null} per indexed parameter
+     * @return  the filter
+     */
+    public static TopicFilter of(int id, Event event, Object... indexedValues) {
+        final ABIType<?>[] types = event.getIndexedParams().elementTypes;
+        if(indexedValues.length != types.length) {
+            throw new IllegalArgumentException("expected " + types.length + " indexed values but found " + indexedValues.length);
+        }
+        final byte[][] constrained = new byte[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            if(indexedValues[i] != null) {
+                try {
+                    constrained[i] = toTopic(types[i], indexedValues[i]);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("illegal value @ " + i + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return new TopicFilter(id, event, constrained);
+    }
+
+    /**
+     * Like {@link #of(int, Event, Object...)} with the expected values keyed by the names of the indexed parameters.
+     * Parameters not named match any topic.
+     */
+    public static TopicFilter of(int id, Event event, Map<String, ?> valuesByName) {
+        final ABIType<?>[] types = event.getIndexedParams().elementTypes;
+        final Object[] values = new Object[types.length];
+        int found = 0;
+        for (int i = 0; i < types.length; i++) {
+            final String name = types[i].getName();
+            if(name != null && valuesByName.containsKey(name)) {
+                values[i] = valuesByName.get(name);
+                found++;
+            }
+        }
+        if(found != valuesByName.size()) {
+            for (String name : valuesByName.keySet()) {
+                if(!hasIndexedParam(types, name)) {
+                    throw new IllegalArgumentException("no indexed param named " + name);
+                }
+            }
+        }
+        return of(id, event, values);
+    }
+
+    private static boolean hasIndexedParam(ABIType<?>[] types, String name) {
+        for (ABIType<?> type : types) {
+            if(name.equals(type.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * @param topics    a log's topics
+     * @return  true if the log has as many topics as the event and each constrained topic equals the expected one
+     */
+    public boolean matches(byte[][] topics) {
+        if(topics.length != topicCount) {
+            return false;
+        }
+        final int[] positions = this.positions;
+        final long[] words = this.words;
+        for (int k = 0; k < positions.length; k++) {
+            final byte[] topic = topics[positions[k]];
+            if(topic.length != TOPIC_LEN) {
+                return false;
+            }
+            final int w = k * WORDS_PER_TOPIC;
+            if(word(topic, 0) != words[w]
+                    || word(topic, 8) != words[w + 1]
+                    || word(topic, 16) != words[w + 2]
+                    || word(topic, 24) != words[w + 3]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long word(byte[] topic, int offset) {
+        long word = 0L;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            word = word << Byte.SIZE | (topic[i] & 0xFF);
+        }
+        return word;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the topic under which an indexed argument appears in a log.
+     */
+    static byte[] toTopic(ABIType<?> type, Object value) {
+        if(!Event.isHashed(type)) {
+            type.validate(value);
+            final ByteBuffer topic = ByteBuffer.allocate(TOPIC_LEN);
+            CallEncoder.encodeHead(type, value, topic);
+            return topic.array();
+        }
+        if(value instanceof byte[] && ((byte[]) value).length == TOPIC_LEN && type.clazz() != byte[].class) {
+            return (byte[]) value; // already hashed
+        }
+        type.validate(value);
+        if(isByteString(type)) { // bytes and string are hashed unpadded
+            final byte[] raw = value instanceof String ? Strings.decode((String) value, UTF_8) : (byte[]) value;
+            return Function.newDefaultDigest().digest(raw);
+        }
+        final ByteBuffer encoding = ByteBuffer.allocate(inPlaceLength(type, value));
+        encodeInPlace(type, value, encoding);
+        return Function.newDefaultDigest().digest(encoding.array());
+    }
+
+    private static boolean isByteString(ABIType<?> type) {
+        return type.typeCode() == TYPE_CODE_ARRAY && Event.isByteString((ArrayType<?, ?>) type);
+    }
+
+    /**
+     * The length of the encoding hashed for an indexed array or tuple: each element padded to a multiple of 32 bytes
+     * and concatenated, with neither offsets nor array lengths.
+     */
+    private static int inPlaceLength(ABIType<?> type, Object value) {
+        switch (type.typeCode()) {
+        case TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            if(arrayType.elementType.typeCode() == ABIType.TYPE_CODE_BYTE) {
+                return ArrayType.roundLengthUp(arrayType.byteArrayLength(value));
+            }
+            int len = 0;
+            for (int i = 0, n = Array.getLength(value); i < n; i++) {
+                len += inPlaceLength(arrayType.elementType, Array.get(value, i));
+            }
+            return len;
+        case TYPE_CODE_TUPLE:
+            final ABIType<?>[] elementTypes = ((TupleType) type).elementTypes;
+            final Object[] elements = ((Tuple) value).elements;
+            int tupleLen = 0;
+            for (int i = 0; i < elementTypes.length; i++) {
+                tupleLen += inPlaceLength(elementTypes[i], elements[i]);
+            }
+            return tupleLen;
+        default: return UNIT_LENGTH_BYTES;
+        }
+    }
+
+    private static void encodeInPlace(ABIType<?> type, Object value, ByteBuffer dest) {
+        switch (type.typeCode()) {
+        case TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            if(arrayType.elementType.typeCode() == ABIType.TYPE_CODE_BYTE) {
+                dest.put(value instanceof String ? Strings.decode((String) value, UTF_8) : (byte[]) value);
+                while ((dest.position() & (UNIT_LENGTH_BYTES - 1)) != 0) {
+                    dest.put((byte) 0);
+                }
+                return;
+            }
+            for (int i = 0, n = Array.getLength(value); i < n; i++) {
+                encodeInPlace(arrayType.elementType, Array.get(value, i), dest);
+            }
+            return;
+        case TYPE_CODE_TUPLE:
+            final ABIType<?>[] elementTypes = ((TupleType) type).elementTypes;
+            final Object[] elements = ((Tuple) value).elements;
+            for (int i = 0; i < elementTypes.length; i++) {
+                encodeInPlace(elementTypes[i], elements[i], dest);
+            }
+            return;
+        default: CallEncoder.encodeHead(type, value, dest);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.esaulpaugh.headlong.abi.Event.TOPIC_LEN;
+
+/**
+ * Matches logs against many {@link TopicFilter}s at once. Filters are grouped by the first eight bytes of their
+ * topic0, so that a log is compared only against the filters for its own event, found by binary search; filters on
+ * anonymous events are compared against every log. Matching neither decodes nor allocates, and an instance may be
+ * shared between threads.
+ */
+public final class TopicFilterSet {
+
+    private final long[] keys; // distinct, ascending
+    private final int[] starts; // group i is filters[starts[i]] through filters[starts[i + 1] - 1]
+    private final TopicFilter[] filters;
+    private final TopicFilter[] anonymous;
+
+    public TopicFilterSet(Collection<TopicFilter> filters) {
+        final List<TopicFilter> named = new ArrayList<>(filters.size());
+        final List<TopicFilter> anonymous = new ArrayList<>();
+        for (TopicFilter f : filters) {
+            (f.getEvent().isAnonymous() ? anonymous : named).add(f);
+        }
+        named.sort(Comparator.comparingLong(TopicFilterSet::key)); // stable
+        this.filters = named.toArray(new TopicFilter[0]);
+        this.anonymous = anonymous.toArray(new TopicFilter[0]);
+        final long[] keys = new long[this.filters.length];
+        final int[] starts = new int[this.filters.length + 1];
+        int n = 0;
+        for (int i = 0; i < this.filters.length; i++) {
+            final long key = key(this.filters[i]);
+            if(n == 0 || keys[n - 1] != key) {
+                keys[n] = key;
+                starts[n++] = i;
+            }
+        }
+        starts[n] = this.filters.length;
+        this.keys = Arrays.copyOf(keys, n);
+        this.starts = Arrays.copyOf(starts, n + 1);
+    }
+
+    private static long key(TopicFilter f) {
+        return f.words[0]; // topic0 is always the first constrained topic
+    }
+
+    public int size() {
+        return filters.length + anonymous.length;
+    }
+
+    /**
+     * @param topics    a log's topics
+     * @return  the ids of the filters which match the log
+     */
+    public int[] match(byte[][] topics) {
+        final int[] ids = new int[size()];
+        return Arrays.copyOf(ids, match(topics, ids));
+    }
+
+    /**
+     * Writes the ids of the filters which match the log into {@code ids}, as many as fit, without allocating.
+     *
+     * @param topics    a log's topics
+     * @param ids   the destination for the ids
+     * @return  the number of matching filters, which may exceed {@code ids.length}
+     */
+    public int match(byte[][] topics, int[] ids) {
+        int count = 0;
+        if(topics.length > 0 && topics[0].length == TOPIC_LEN) {
+            final int g = Arrays.binarySearch(keys, TopicFilter.word(topics[0], 0));
+            if(g >= 0) {
+                for (int i = starts[g], end = starts[g + 1]; i < end; i++) {
+                    count = test(filters[i], topics, ids, count);
+                }
+            }
+        }
+        for (TopicFilter f : anonymous) {
+            count = test(f, topics, ids, count);
+        }
+        return count;
+    }
+
+    private static int test(TopicFilter f, byte[][] topics, int[] ids, int count) {
+        if(f.matches(topics)) {
+            if(count < ids.length) {
+                ids[count] = f.getId();
+            }
+            count++;
+        }
+        return count;
+    }
+}
@@ -7,6 +7,7 @@ import java.text.ParseException;
 import java.util.*;
 
 import static com.esaulpaugh.headlong.abi.CallEncoder.OFFSET_LENGTH_BYTES;
+import static com.esaulpaugh.headlong.abi.UnitType.UNIT_LENGTH_BYTES;
 
 public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
 
@@ -18,10 +19,44 @@ public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
     public static final TupleType EMPTY = new TupleType(EMPTY_TUPLE_STRING, false, EMPTY_TYPE_ARRAY);
 
     final ABIType<?>[] elementTypes;
+    final int headLength; // for static tuples, the length of the whole encoding
+    private final int[] headOffsets; // index of each element's head relative to the start of the tuple
+    transient volatile CompiledCodec compiled; // null unless compile() has been called; shared by every holder of this instance
 
-    private TupleType(String canonicalType, boolean dynamic, ABIType<?>[] elementTypes) {
+    TupleType(String canonicalType, boolean dynamic, ABIType<?>[] elementTypes) {
         super(canonicalType, CLASS, dynamic);
         this.elementTypes = elementTypes;
+        final int[] headOffsets = new int[elementTypes.length];
+        int headLength = 0;
+        for (int i = 0; i < elementTypes.length; i++) {
+            headOffsets[i] = headLength;
+            headLength += headLength(elementTypes[i]);
+        }
+        this.headLength = headLength;
+        this.headOffsets = headOffsets;
+    }
+
+    /**
+     * Returns the length of an element's head: the full encoding if the type is static, otherwise the length of an
+     * offset. Static types have a length which does not depend on the value.
+     *
+     * @param type  the element's type
+     * @return  the length in bytes
+     */
+    static int headLength(ABIType<?> type) {
+        if(type.dynamic) {
+            return OFFSET_LENGTH_BYTES;
+        }
+        switch (type.typeCode()) {
+        case TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> arrayType = (ArrayType<?, ?>) type;
+            final ABIType<?> elementType = arrayType.elementType;
+            return elementType.typeCode() == TYPE_CODE_BYTE
+                    ? ArrayType.roundLengthUp(arrayType.length)
+                    : arrayType.length * headLength(elementType);
+        case TYPE_CODE_TUPLE: return ((TupleType) type).headLength;
+        default: return UNIT_LENGTH_BYTES;
+        }
     }
 
     static <L extends List<ABIType<?>> & RandomAccess> TupleType create(L elementsList) {
@@ -54,6 +89,26 @@ public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
         return canonicalTupleType.replace(len - 1, len, ")").toString(); // replace trailing comma
     }
 
+    /**
+     * Compiles an encoder and decoder specialized to this type's elements and caches them on this instance. From then
+     * on, encoding and decoding of this type, including wherever it is nested in another type, use the compiled
+     * versions. Nested tuples are compiled along with this one, but tuples which are elements of arrays are not;
+     * compile their {@link TupleType}s separately. Calling this more than once has no further effect.
+     *
+     * The compiled codec is stored in this instance and is therefore shared by every {@link Function}, {@link Event} or
+     * enclosing type which holds it. It produces exactly the same encodings and decoded values as the interpreted code,
+     * so compiling a shared instance changes only how fast it runs. The codec is published safely and may be compiled
+     * concurrently by several threads, in which case one of the equivalent codecs wins.
+     *
+     * @return  this
+     */
+    public TupleType compile() {
+        if(compiled == null) {
+            compiled = CompiledCodec.compile(this);
+        }
+        return this;
+    }
+
     public ABIType<?> get(int index) {
         return elementTypes[index];
     }
@@ -74,6 +129,9 @@ public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
 
     @Override
     int byteLength(Object value) {
+        if(!dynamic) {
+            return headLength;
+        }
         Tuple tuple = (Tuple) value;
         final Object[] elements = tuple.elements;
 
@@ -150,11 +208,115 @@ public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
     }
 
     public Tuple decode(ByteBuffer bb) {
-        return decode(bb, newUnitBuffer());
+        return decode(bb, new DecodeContext(false));
     }
 
+    /**
+     * Decodes a tuple, optionally representing every value whose Java type would otherwise be
+     * {@link java.math.BigInteger} (uint64, uint72 through uint256, int72 through int256, and address) as a
+     * {@link UInt256}, including within arrays.
+     *
+     * @param bb    the buffer containing the encoding
+     * @param uint256   whether to decode such values as {@link UInt256}
+     * @return  the decoded tuple
+     */
+    public Tuple decode(ByteBuffer bb, boolean uint256) {
+        return decode(bb, new DecodeContext(uint256));
+    }
+
+    /**
+     * Decodes only the elements at the given indices, in the order given. The heads of unselected elements are skipped
+     * by arithmetic and their tails are never read; offsets of selected elements are followed. The buffer's position
+     * is not changed.
+     *
+     * @param bb    the buffer containing the encoding
+     * @param indices   the indices of the elements to decode
+     * @return  a tuple of the selected elements
+     */
+    public Tuple decode(ByteBuffer bb, int... indices) {
+        return decode(bb, indices, new DecodeContext(false));
+    }
+
+    /**
+     * Decodes only the elements selected by {@code manifest}, returning a tuple of type
+     * {@link #subTupleType(boolean[])}. See {@link #decode(ByteBuffer, int...)}.
+     *
+     * @param bb    the buffer containing the encoding
+     * @param manifest  for each element, whether to decode it
+     * @return  a tuple of the selected elements
+     */
+    public Tuple decode(ByteBuffer bb, boolean[] manifest) {
+        return decode(bb, toIndices(manifest), new DecodeContext(false));
+    }
+
+    /**
+     * @see #decode(ByteBuffer, int...)
+     * @see #decode(ByteBuffer, DecodeContext)
+     */
+    public Tuple decode(ByteBuffer bb, int[] indices, DecodeContext ctx) {
+        final int start = bb.position();
+        final Object[] elements = new Object[indices.length];
+        try {
+            for (int k = 0; k < indices.length; k++) {
+                final int index = indices[k];
+                if(index < 0 || index >= elementTypes.length) {
+                    throw new IllegalArgumentException("index out of bounds: " + index);
+                }
+                final ABIType<?> type = elementTypes[index];
+                final int headIndex = start + headOffsets[index];
+                bb.position(type.dynamic ? TupleView.resolve(bb, start, headIndex, ctx) : headIndex);
+                elements[k] = type.decode(bb, ctx);
+            }
+        } finally {
+            bb.position(start);
+        }
+        return new Tuple(elements);
+    }
+
+    int[] toIndices(boolean[] manifest) {
+        checkLength(elementTypes, manifest);
+        final int[] indices = new int[getSelectionSize(manifest, false)];
+        for (int m = 0, s = 0; m < manifest.length; m++) {
+            if(manifest[m]) {
+                indices[s++] = m;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Returns a view of the tuple encoded at the buffer's position, which decodes elements only as they are read. The
+     * buffer's position is not changed, and the buffer must not be modified while the view is in use.
+     *
+     * @param bb    the buffer containing the encoding
+     * @return  the view
+     */
+    public TupleView view(ByteBuffer bb) {
+        return view(bb, false);
+    }
+
+    /**
+     * @see #view(ByteBuffer)
+     * @see #decode(ByteBuffer, boolean)
+     */
+    public TupleView view(ByteBuffer bb, boolean uint256) {
+        return new TupleView(this, bb.duplicate(), bb.position(), new DecodeContext(uint256));
+    }
+
+    /**
+     * Decodes a tuple using the scratch state in {@code ctx}, which may be reused across decodes on the same thread.
+     *
+     * @param bb    the buffer containing the encoding
+     * @param ctx   the context
+     * @return  the decoded tuple
+     * @see DecodeContext
+     */
     @Override
-    Tuple decode(ByteBuffer bb, byte[] unitBuffer) {
+    public Tuple decode(ByteBuffer bb, DecodeContext ctx) {
+        final CompiledCodec compiled = this.compiled;
+        if(compiled != null) {
+            return compiled.decode(bb, ctx);
+        }
 
 //        final int index = bb.position(); // TODO must pass index to decodeTails if you want to support lenient mode
 
@@ -162,34 +324,49 @@ public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
         final int tupleLen = elementTypes.length;
         Object[] elements = new Object[tupleLen];
 
-        int[] offsets = new int[tupleLen];
-        decodeHeads(bb, elementTypes, offsets, unitBuffer, elements);
-
-        if(dynamic) {
-            decodeTails(bb, elementTypes, offsets, unitBuffer, elements);
+        if(!dynamic) {
+            decodeHeads(bb, elementTypes, -1, ctx, elements);
+            return new Tuple(elements);
+        }
+        final int base = ctx.pushOffsets(tupleLen);
+        try {
+            decodeHeads(bb, elementTypes, base, ctx, elements);
+            decodeTails(bb, elementTypes, base, ctx, elements);
+        } finally {
+            ctx.popOffsets(base);
         }
-
         return new Tuple(elements);
     }
 
-    static void decodeHeads(ByteBuffer bb, ABIType<?>[] elementTypes, int[] offsets, byte[] elementBuffer, Object[] dest) {
-        final int tupleLen = offsets.length;
+    public Tuple decode(byte[] array, DecodeContext ctx) {
+        return decode(ctx.wrap(array), ctx);
+    }
+
+    /**
+     * Reads the heads, storing each offset in {@code ctx.offsets} starting at {@code base}.
+     */
+    static void decodeHeads(ByteBuffer bb, ABIType<?>[] elementTypes, int base, DecodeContext ctx, Object[] dest) {
+        final int tupleLen = elementTypes.length;
         ABIType<?> elementType;
         for (int i = 0; i < tupleLen; i++) {
             elementType = elementTypes[i];
             if (elementType.dynamic) {
-                offsets[i] = CallEncoder.OFFSET_TYPE.decode(bb, elementBuffer);
+                final int offset = CallEncoder.OFFSET_TYPE.decode(bb, ctx);
+                ctx.offsets[base + i] = offset;
             } else {
-                dest[i] = elementType.decode(bb, elementBuffer);
+                dest[i] = elementType.decode(bb, ctx);
+                if(base >= 0) {
+                    ctx.offsets[base + i] = 0;
+                }
             }
         }
     }
 
-    static void decodeTails(ByteBuffer bb, final ABIType<?>[] elementTypes, int[] offsets, byte[] elementBuffer, final Object[] dest) {
-        final int tupleLen = offsets.length;
+    static void decodeTails(ByteBuffer bb, final ABIType<?>[] elementTypes, int base, DecodeContext ctx, final Object[] dest) {
+        final int tupleLen = elementTypes.length;
         for (int i = 0; i < tupleLen; i++) {
             final ABIType<?> type = elementTypes[i];
-            final int offset = offsets[i];
+            final int offset = ctx.offsets[base + i]; // re-read; nested decodes may have grown the stack
             final boolean offsetExists = offset > 0;
             if(type.dynamic ^ offsetExists) { // if not matching
                 throw new IllegalArgumentException(type.dynamic ? "offset not found" : "offset found for static element");
@@ -200,7 +377,7 @@ public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
 //                    System.err.println(TupleType.class.getName() + " setting " + bb.position() + " to " + (index + offset) + ", offset=" + offset);
 //                    bb.position(index + offset);
 //                }
-                dest[i] = type.decode(bb, elementBuffer);
+                dest[i] = type.decode(bb, ctx);
             }
         }
     }
@@ -231,6 +408,15 @@ public class TupleType extends ABIType<Tuple> implements Iterable<ABIType<?>> {
         return output;
     }
 
+    /**
+     * Encodes {@code values} into a caller-owned buffer, heap or direct, starting at the buffer's position. Allocation-free
+     * under the same conditions as {@link Function#encodeCall(Tuple, ByteBuffer, boolean)}.
+     *
+     * @param values    the values to encode
+     * @param dest  the destination buffer, with at least {@link #encodedLen(Tuple)} bytes remaining
+     * @param validate  whether to validate the values before encoding
+     * @return  this tuple type
+     */
     public TupleType encode(Tuple values, ByteBuffer dest, boolean validate) {
         if(validate) {
             validate(values);
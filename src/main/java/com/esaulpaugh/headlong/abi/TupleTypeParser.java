@@ -84,7 +84,7 @@ class TupleTypeParser {
                     if(argEnd == -1) {
                         return -1;
                     } else {
-                        typesOut.add(TypeFactory.create(signature.substring(argStart, argEnd), null));
+                        typesOut.add(TypeFactory.create(signature, argStart, argEnd));
                         if (argEnd >= sigEnd || signature.charAt(argEnd) == ')') {
                             return argEnd;
                         }
@@ -101,15 +101,16 @@ class TupleTypeParser {
         return argEnd;
     }
 
+    /**
+     * Returns the index of the first ',' or ')' at or after {@code i}, or -1 if there is none.
+     */
     private static int nextParamTerminator(String signature, int i) {
-        int comma = signature.indexOf(',', i);
-        int close = signature.indexOf(')', i);
-        if(comma == -1) {
-            return close;
-        }
-        if(close == -1) {
-            return comma;
+        for (final int len = signature.length(); i < len; i++) {
+            final char c = signature.charAt(i);
+            if(c == ',' || c == ')') {
+                return i;
+            }
         }
-        return Math.min(comma, close);
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.nio.ByteBuffer;
+
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_ARRAY;
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_BYTE;
+import static com.esaulpaugh.headlong.abi.ABIType.TYPE_CODE_TUPLE;
+
+/**
+ * A read-only view of an encoded tuple which decodes each element only when asked. The position of every element is
+ * resolved from the heads when the view is created; tails are not read until their elements are requested. Nested
+ * tuples and arrays may themselves be viewed with {@link #getTuple(int)} and {@link #getArray(int)}.
+ *
+ * Unlike {@link TupleType#decode(ByteBuffer)}, offsets are followed, so elements are found even in encodings whose
+ * tails are not in canonical order. Not thread-safe.
+ */
+public final class TupleView {
+
+    private final TupleType type;
+    private final ByteBuffer buffer;
+    private final DecodeContext ctx;
+    private final int[] positions; // absolute index of each element's encoding
+
+    TupleView(TupleType type, ByteBuffer buffer, int start, DecodeContext ctx) {
+        this.type = type;
+        this.buffer = buffer;
+        this.ctx = ctx;
+        final ABIType<?>[] elementTypes = type.elementTypes;
+        final int[] positions = new int[elementTypes.length];
+        int headIndex = start;
+        for (int i = 0; i < positions.length; i++) {
+            final ABIType<?> elementType = elementTypes[i];
+            positions[i] = elementType.dynamic
+                    ? resolve(buffer, start, headIndex, ctx)
+                    : headIndex;
+            headIndex += TupleType.headLength(elementType);
+        }
+        this.positions = positions;
+    }
+
+    /**
+     * Reads the offset at {@code headIndex} and returns the absolute index to which it points.
+     */
+    static int resolve(ByteBuffer buffer, int base, int headIndex, DecodeContext ctx) {
+        buffer.position(headIndex);
+        final int offset = CallEncoder.OFFSET_TYPE.decode(buffer, ctx);
+        if(offset <= 0 || offset > buffer.limit() - base) {
+            throw new IllegalArgumentException("illegal offset @ " + headIndex + ": " + offset);
+        }
+        return base + offset;
+    }
+
+    public TupleType getType() {
+        return type;
+    }
+
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * Decodes and returns the element at {@code index}.
+     */
+    public Object get(int index) {
+        buffer.position(positions[index]);
+        return type.elementTypes[index].decode(buffer, ctx);
+    }
+
+    /**
+     * Returns a view of the tuple at {@code index} without decoding any of it.
+     */
+    public TupleView getTuple(int index) {
+        final ABIType<?> elementType = type.elementTypes[index];
+        if(elementType.typeCode() != TYPE_CODE_TUPLE) {
+            throw new IllegalArgumentException("not a tuple: " + elementType.canonicalType);
+        }
+        return new TupleView((TupleType) elementType, buffer, positions[index], ctx);
+    }
+
+    /**
+     * Returns a view of the array at {@code index} without decoding any of it. Not available for arrays of bytes,
+     * which include {@code bytes} and {@code string}; use {@link #get(int)}.
+     */
+    public ArrayView getArray(int index) {
+        return ArrayView.of(type.elementTypes[index], buffer, positions[index], ctx);
+    }
+
+    /**
+     * Decodes every element.
+     */
+    public Tuple decode() {
+        final Object[] elements = new Object[positions.length];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = get(i);
+        }
+        return new Tuple(elements);
+    }
+
+    static boolean viewable(ABIType<?> type) {
+        return type.typeCode() == TYPE_CODE_ARRAY
+                && ((ArrayType<?, ?>) type).elementType.typeCode() != TYPE_CODE_BYTE;
+    }
+}
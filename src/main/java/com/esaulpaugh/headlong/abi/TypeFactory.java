@@ -2,6 +2,11 @@ package com.esaulpaugh.headlong.abi;
 
 import java.math.BigInteger;
 import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.esaulpaugh.headlong.abi.ArrayType.DYNAMIC_LENGTH;
 import static com.esaulpaugh.headlong.abi.BaseTypeInfo.*;
@@ -9,11 +14,48 @@ import static com.esaulpaugh.headlong.util.Strings.CHARSET_UTF_8;
 
 /**
  * Creates the appropriate {@link ABIType} object for a given canonical type string.
+ *
+ * Unnamed types without tuples in them are interned: parsing the same type string again returns the same instance, so
+ * that types common to many ABIs, such as {@code uint256}, {@code address} and {@code bytes32[]}, are built once and
+ * the {@link Class#forName} lookup for an array type happens once. {@link TupleType}s are not interned because
+ * {@link TupleType#compile()} changes them, but their elements are shared. Because a name is stored in the type, a named
+ * type is always a private copy.
  */
 final class TypeFactory {
 
     private static final ClassLoader CLASS_LOADER = TypeFactory.class.getClassLoader();
 
+    /**
+     * Shared instances of every base type in {@link BaseTypeInfo}'s map, keyed by name, e.g. "uint" and "uint256" share
+     * an instance. Types within arrays have a table of their own because {@code uint8}, {@code uint32} and
+     * {@code uint64} elements are represented by narrower Java types than the corresponding top-level types; the two
+     * tables share every other instance.
+     */
+    private static final Map<String, ABIType<?>> BASE_TYPES;
+    private static final Map<String, ABIType<?>> ELEMENT_BASE_TYPES;
+
+    static {
+        final Set<String> names = BaseTypeInfo.getBaseTypeInfoMap().keySet();
+        final Map<String, ABIType<?>> types = new HashMap<>(names.size() * 2);
+        final Map<String, ABIType<?>> elementTypes = new HashMap<>(names.size() * 2);
+        for (String name : names) {
+            final ABIType<?> type = newBaseType(name, false);
+            if(name.equals(type.canonicalType)) {
+                types.put(name, type);
+            }
+        }
+        for (String name : names) {
+            final ABIType<?> type = types.computeIfAbsent(name, alias -> types.get(newBaseType(alias, false).canonicalType));
+            final ABIType<?> element = newBaseType(name, true);
+            elementTypes.put(name, element.getClass() == type.getClass() ? type : element);
+        }
+        BASE_TYPES = Collections.unmodifiableMap(types);
+        ELEMENT_BASE_TYPES = Collections.unmodifiableMap(elementTypes);
+    }
+
+    private static final InternTable INTERNED = new InternTable(1 << 14);
+    private static final ConcurrentHashMap<String, Class<?>> ARRAY_CLASSES = new ConcurrentHashMap<>();
+
     static ABIType<?> createForTuple(TupleType baseTupleType, String suffix, String name) throws ParseException {
         return create(baseTupleType.canonicalType + suffix, baseTupleType, name);
     }
@@ -22,14 +64,71 @@ final class TypeFactory {
         return create(type, null, name);
     }
 
+    /**
+     * Creates the unnamed type named by {@code signature} from {@code from} to {@code to}. An interned type is found
+     * without copying the region out of the signature.
+     */
+    static ABIType<?> create(String signature, int from, int to) throws ParseException {
+        final ABIType<?> interned = INTERNED.get(signature, from, to);
+        return interned != null ? interned : create(signature.substring(from, to), null, null);
+    }
+
     static ABIType<?> create(String type, TupleType baseTupleType, String name) throws ParseException {
         try {
-            return buildType(type, false, baseTupleType).setName(name);
+            final ABIType<?> result = baseTupleType == null
+                    ? intern(type)
+                    : buildType(type, false, baseTupleType);
+            return name == null ? result : nameable(result).setName(name);
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static ABIType<?> intern(String type) throws ParseException, ClassNotFoundException {
+        ABIType<?> interned = INTERNED.get(type);
+        if(interned == null) {
+            final ABIType<?> built = buildType(type, false, null);
+            interned = INTERNED.putIfAbsent(built.canonicalType, built);
+            if(interned == null) {
+                interned = built;
+            }
+            if(!type.equals(interned.canonicalType)) {
+                INTERNED.putIfAbsent(type, interned); // e.g. "uint"
+            }
+        }
+        return interned;
+    }
+
+    private static boolean isInterned(ABIType<?> type) {
+        return INTERNED.get(type.canonicalType) == type;
+    }
+
+    /**
+     * Returns {@code type} if it is a private instance, or else a copy of it to which a name may be given.
+     */
+    private static ABIType<?> nameable(ABIType<?> type) {
+        if(!isInterned(type) && BASE_TYPES.get(type.canonicalType) != type && type != TupleType.EMPTY) {
+            return type;
+        }
+        switch (type.typeCode()) {
+        case ABIType.TYPE_CODE_BOOLEAN: return new BooleanType();
+        case ABIType.TYPE_CODE_ARRAY:
+            final ArrayType<?, ?> a = (ArrayType<?, ?>) type;
+            return new ArrayType<ABIType<?>, Object>(a.canonicalType, a.clazz, a.dynamic, a.elementType, a.arrayClassNameStub, a.length);
+        case ABIType.TYPE_CODE_TUPLE: return new TupleType(type.canonicalType, type.dynamic, ABIType.EMPTY_TYPE_ARRAY); // TupleType.EMPTY
+        default: return newBaseType(type.canonicalType, false);
+        }
+    }
+
+    private static Class<?> arrayClass(String className) throws ClassNotFoundException {
+        Class<?> c = ARRAY_CLASSES.get(className);
+        if(c == null) {
+            c = Class.forName(className, false, CLASS_LOADER);
+            ARRAY_CLASSES.putIfAbsent(className, c);
+        }
+        return c;
+    }
+
     private static ABIType<?> buildType(final String type, boolean isArrayElement, final TupleType baseTupleType) throws ParseException, ClassNotFoundException {
 
         final int idxOfLast = type.length() - 1;
@@ -39,24 +138,14 @@ final class TypeFactory {
             final int fromIndex = idxOfLast - 1;
             final int arrayOpenIndex = type.lastIndexOf('[', fromIndex);
 
-            final int length;
-            if(arrayOpenIndex == fromIndex) { // i.e. []
-                length = DYNAMIC_LENGTH;
-            } else { // e.g. [4]
-                try {
-                    length = Integer.parseInt(type.substring(arrayOpenIndex + 1, idxOfLast));
-                    if(length < 0) {
-                        throw new ParseException("negative array size", arrayOpenIndex + 1);
-                    }
-                } catch (NumberFormatException nfe) {
-                    throw (ParseException) new ParseException("illegal argument", arrayOpenIndex + 1).initCause(nfe);
-                }
-            }
+            final int length = arrayOpenIndex == fromIndex // i.e. []
+                    ? DYNAMIC_LENGTH
+                    : parseLength(type, arrayOpenIndex + 1, idxOfLast); // e.g. [4]
 
             final ABIType<?> elementType = buildType(type.substring(0, arrayOpenIndex), true, baseTupleType);
             final String className = '[' + elementType.arrayClassNameStub();
             final boolean dynamic = length == DYNAMIC_LENGTH || elementType.dynamic;
-            return new ArrayType<ABIType<?>, Object>(type, Class.forName(className, false, CLASS_LOADER), dynamic, elementType, className, length);
+            return new ArrayType<ABIType<?>, Object>(type, arrayClass(className), dynamic, elementType, className, length);
         } else {
             ABIType<?> baseType = resolveBaseType(type, isArrayElement, baseTupleType);
             if(baseType == null) {
@@ -67,14 +156,59 @@ final class TypeFactory {
         }
     }
 
+    /**
+     * Parses an array length like {@link Integer#parseInt(String)} would parse the substring from {@code from} to
+     * {@code to}, without creating the substring.
+     */
+    private static int parseLength(String type, int from, int to) throws ParseException {
+        int i = from;
+        final boolean negative = i < to && type.charAt(i) == '-';
+        if(negative || (i < to && type.charAt(i) == '+')) {
+            i++;
+        }
+        if(i == to) {
+            throw new ParseException("illegal argument", from);
+        }
+        long length = 0L;
+        for ( ; i < to; i++) {
+            final int digit = Character.digit(type.charAt(i), 10);
+            length = length * 10 + digit;
+            if(digit < 0 || length > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                throw new ParseException("illegal argument", from);
+            }
+        }
+        if(negative && length != 0L) {
+            throw new ParseException("negative array size", from);
+        }
+        return (int) length;
+    }
+
     private static ABIType<?> resolveBaseType(final String baseTypeStr, boolean isElement, TupleType baseTupleType) {
+        final ABIType<?> type = (isElement ? ELEMENT_BASE_TYPES : BASE_TYPES).get(baseTypeStr);
+        if(type != null) {
+            return type;
+        }
+        final int len = baseTypeStr.length();
+        if(len >= 2 && baseTypeStr.charAt(0) == '(') {
+            return baseTypeStr.charAt(len - 1) == ')'
+                    ? baseTupleType
+                    : null;
+        }
+        return tryParseFixed(baseTypeStr);
+    }
+
+    /**
+     * Returns a new instance of the type named by a key of {@link BaseTypeInfo}'s map, except for {@code bool} and the
+     * byte element types, which are singletons.
+     */
+    private static ABIType<?> newBaseType(final String baseTypeStr, boolean isElement) {
 
         final ABIType<?> type;
 
         BaseTypeInfo info = BaseTypeInfo.get(baseTypeStr);
 
         if(info != null) {
-            switch (baseTypeStr) { // baseType's hash code already cached due to BaseTypeInfo.get(baseTypeStr)
+            switch (baseTypeStr) {
             case "int8":
             case "int16":
             case "int24":
@@ -186,14 +320,7 @@ final class TypeFactory {
             default: type = null;
             }
         } else {
-            final int len = baseTypeStr.length();
-            if(len >= 2 && baseTypeStr.charAt(0) == '(') {
-                type = baseTypeStr.charAt(len - 1) == ')'
-                        ? baseTupleType
-                        : null;
-            } else {
-                type = tryParseFixed(baseTypeStr);
-            }
+            type = tryParseFixed(baseTypeStr);
         }
 
         return type;
@@ -218,4 +345,63 @@ final class TypeFactory {
         }
         return null;
     }
+
+    /**
+     * An insert-only map from type strings to interned types which can be queried with a region of a larger string, so
+     * that a parser can find a parameter's type without first copying it out. Like {@link SelectorIndex}, reads take no
+     * locks and the table is replaced, never modified in place, when it grows. Once full, it stops accepting entries, so
+     * that arbitrary user-supplied type strings cannot grow it without bound.
+     */
+    static final class InternTable extends ProbeTable<String, InternTable.Entry> {
+
+        private final int maxSize;
+
+        static final class Entry extends ProbeTable.Entry {
+
+            final String key;
+            final ABIType<?> type;
+
+            Entry(String key, ABIType<?> type) {
+                super(key.hashCode());
+                this.key = key;
+                this.type = type;
+            }
+        }
+
+        InternTable(int maxSize) {
+            super(256);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        boolean matches(Entry entry, String s, int from, int to) {
+            final int len = to - from;
+            return entry.key.length() == len && entry.key.regionMatches(0, s, from, len);
+        }
+
+        ABIType<?> get(String key) {
+            return get(key, 0, key.length());
+        }
+
+        ABIType<?> get(String s, int from, int to) {
+            int hash = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + s.charAt(i); // as String.hashCode()
+            }
+            final Entry e = find(hash, s, from, to);
+            return e == null ? null : e.type;
+        }
+
+        /**
+         * @return  the type already present for {@code key}, or null if {@code type} was added or the table is full
+         */
+        synchronized ABIType<?> putIfAbsent(String key, ABIType<?> type) {
+            final ABIType<?> existing = get(key);
+            if(existing != null || size() >= maxSize) {
+                return existing;
+            }
+            put(new Entry(key, type), key, 0, key.length());
+            return null;
+        }
+    }
 }
@@ -0,0 +1,199 @@
+package com.esaulpaugh.headlong.abi;
+
+import java.math.BigInteger;
+
+/**
+ * An immutable 256-bit integer stored as four {@code long}s, most significant first. Values are unsigned except where
+ * used with a signed ABI type (int72 through int256), which reads the same 256 bits as two's complement, as the EVM
+ * does. Arithmetic wraps modulo 2<sup>256</sup>, so it is correct under either interpretation.
+ *
+ * Accepted wherever the ABI expects a {@link BigInteger}, and produced by decoding when requested. See
+ * {@link TupleType#decode(java.nio.ByteBuffer, boolean)}.
+ */
+public final class UInt256 extends Number implements Comparable<UInt256> {
+
+    public static final UInt256 ZERO = new UInt256(0L, 0L, 0L, 0L);
+    public static final UInt256 ONE = new UInt256(0L, 0L, 0L, 1L);
+    public static final UInt256 MAX_VALUE = new UInt256(-1L, -1L, -1L, -1L);
+
+    private static final BigInteger MIN_SIGNED = BigInteger.ONE.shiftLeft(255).negate();
+    private static final BigInteger LIMIT = BigInteger.ONE.shiftLeft(256);
+
+    final long w0, w1, w2, w3; // w0 is the most significant
+
+    public UInt256(long w0, long w1, long w2, long w3) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+    }
+
+    /**
+     * @param val   the value; negative values are stored as two's complement
+     * @return  the 256-bit representation of {@code val}
+     */
+    public static UInt256 valueOf(long val) {
+        final long ext = val >> 63; // sign extension
+        return new UInt256(ext, ext, ext, val);
+    }
+
+    /**
+     * @param val   a value in the range [-2<sup>255</sup>, 2<sup>256</sup>); negative values are stored as two's
+     *              complement
+     * @return  the 256-bit representation of {@code val}
+     */
+    public static UInt256 valueOf(BigInteger val) {
+        if(val.compareTo(MIN_SIGNED) < 0 || val.compareTo(LIMIT) >= 0) {
+            throw new IllegalArgumentException("out of range: " + val);
+        }
+        return new UInt256(
+                val.shiftRight(192).longValue(),
+                val.shiftRight(128).longValue(),
+                val.shiftRight(64).longValue(),
+                val.longValue()
+        );
+    }
+
+    public UInt256 add(UInt256 other) {
+        final long s3 = w3 + other.w3;
+        long carry = carry(s3, w3, 0L);
+        final long s2 = w2 + other.w2 + carry;
+        carry = carry(s2, w2, carry);
+        final long s1 = w1 + other.w1 + carry;
+        carry = carry(s1, w1, carry);
+        return new UInt256(w0 + other.w0 + carry, s1, s2, s3);
+    }
+
+    public UInt256 subtract(UInt256 other) {
+        final long d3 = w3 - other.w3;
+        long borrow = borrow(w3, other.w3, 0L);
+        final long d2 = w2 - other.w2 - borrow;
+        borrow = borrow(w2, other.w2, borrow);
+        final long d1 = w1 - other.w1 - borrow;
+        borrow = borrow(w1, other.w1, borrow);
+        return new UInt256(w0 - other.w0 - borrow, d1, d2, d3);
+    }
+
+    static long carry(long sum, long augend, long carryIn) {
+        final int cmp = Long.compareUnsigned(sum, augend);
+        return cmp < 0 || (cmp == 0 && carryIn != 0L) ? 1L : 0L;
+    }
+
+    static long borrow(long minuend, long subtrahend, long borrowIn) {
+        final int cmp = Long.compareUnsigned(minuend, subtrahend);
+        return cmp < 0 || (cmp == 0 && borrowIn != 0L) ? 1L : 0L;
+    }
+
+    public boolean isZero() {
+        return (w0 | w1 | w2 | w3) == 0L;
+    }
+
+    /**
+     * @return  the number of bits in the minimal unsigned representation of this value
+     */
+    public int bitLength() {
+        return bitLength(w0, w1, w2, w3);
+    }
+
+    /**
+     * Returns the bit length of this value read as two's complement, as defined by {@link BigInteger#bitLength()}.
+     */
+    int signedBitLength() {
+        return w0 < 0L
+                ? bitLength(~w0, ~w1, ~w2, ~w3)
+                : bitLength(w0, w1, w2, w3);
+    }
+
+    static int bitLength(long w0, long w1, long w2, long w3) {
+        if(w0 != 0L) return 256 - Long.numberOfLeadingZeros(w0);
+        if(w1 != 0L) return 192 - Long.numberOfLeadingZeros(w1);
+        if(w2 != 0L) return 128 - Long.numberOfLeadingZeros(w2);
+        return 64 - Long.numberOfLeadingZeros(w3);
+    }
+
+    public BigInteger toBigInteger() {
+        return new BigInteger(1, toByteArray());
+    }
+
+    /**
+     * @return  the value of these 256 bits read as two's complement
+     */
+    public BigInteger toSignedBigInteger() {
+        return new BigInteger(toByteArray());
+    }
+
+    /**
+     * @return  the 32-byte big-endian representation
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[UnitType.UNIT_LENGTH_BYTES];
+        putLong(w0, bytes, 0);
+        putLong(w1, bytes, 8);
+        putLong(w2, bytes, 16);
+        putLong(w3, bytes, 24);
+        return bytes;
+    }
+
+    private static void putLong(long val, byte[] dest, int idx) {
+        for (int i = idx + 7; i >= idx; i--) {
+            dest[i] = (byte) val;
+            val >>>= 8;
+        }
+    }
+
+    @Override
+    public int intValue() {
+        return (int) w3;
+    }
+
+    @Override
+    public long longValue() {
+        return w3;
+    }
+
+    @Override
+    public float floatValue() {
+        return toBigInteger().floatValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        return toBigInteger().doubleValue();
+    }
+
+    /**
+     * Compares unsigned values.
+     */
+    @Override
+    public int compareTo(UInt256 o) {
+        return compare(w0, w1, w2, w3, o.w0, o.w1, o.w2, o.w3);
+    }
+
+    static int compare(long a0, long a1, long a2, long a3, long b0, long b1, long b2, long b3) {
+        if(a0 != b0) return Long.compareUnsigned(a0, b0);
+        if(a1 != b1) return Long.compareUnsigned(a1, b1);
+        if(a2 != b2) return Long.compareUnsigned(a2, b2);
+        return Long.compareUnsigned(a3, b3);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * Long.hashCode(w0) + Long.hashCode(w1)) + Long.hashCode(w2)) + Long.hashCode(w3);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UInt256 other = (UInt256) o;
+        return w3 == other.w3 && w2 == other.w2 && w1 == other.w1 && w0 == other.w0;
+    }
+
+    /**
+     * @return  the unsigned decimal representation
+     */
+    @Override
+    public String toString() {
+        return toBigInteger().toString();
+    }
+}
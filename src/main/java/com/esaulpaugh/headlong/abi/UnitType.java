@@ -12,6 +12,7 @@ abstract class UnitType<V> extends ABIType<V> { // instance of V should be insta
 
     static final int UNIT_LENGTH_BYTES = 32;
     static final int LOG_2_UNIT_LENGTH_BYTES = 5;// Integer.SIZE - (Integer.numberOfLeadingZeros(UNIT_LENGTH_BYTES) + 1)
+    static final int UNIT_LENGTH_BITS = UNIT_LENGTH_BYTES * Byte.SIZE;
 
     final int bitLength;
     final boolean unsigned;
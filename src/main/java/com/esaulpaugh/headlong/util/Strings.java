@@ -2,6 +2,7 @@ package com.esaulpaugh.headlong.util;
 
 import org.spongycastle.util.encoders.Base64;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import static com.esaulpaugh.headlong.util.Utils.EMPTY_BYTE_ARRAY;
@@ -82,6 +83,112 @@ public class Strings {
         return Base64.decode(padBase64(base64));
     }
 
+    /**
+     * Returns the length of the UTF-8 encoding of {@code string} without allocating. The result is identical to
+     * {@code string.getBytes(CHARSET_UTF_8).length}, including for malformed input (each unpaired surrogate is replaced
+     * by the single byte '?').
+     *
+     * @param string    the string
+     * @return  the length in bytes of the string's UTF-8 encoding
+     */
+    public static int utf8Length(String string) {
+        final int len = string.length();
+        int byteLen = len;
+        for (int i = 0; i < len; i++) {
+            final char c = string.charAt(i);
+            if(c >= 0x80) {
+                if(c < 0x800) {
+                    byteLen++;
+                } else if(Character.isSurrogate(c)) {
+                    if(Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(string.charAt(i + 1))) {
+                        byteLen += 2; // four bytes for two chars
+                        i++;
+                    } // else replaced by '?'
+                } else {
+                    byteLen += 2;
+                }
+            }
+        }
+        return byteLen;
+    }
+
+    /**
+     * Writes the UTF-8 encoding of {@code string} to {@code dest} without allocating. Writes the same bytes as
+     * {@code dest.put(string.getBytes(CHARSET_UTF_8))}.
+     *
+     * @param string    the string to encode
+     * @param dest  the destination buffer
+     */
+    public static void putUtf8(String string, ByteBuffer dest) {
+        putUtf8(string, 0, dest, 0);
+    }
+
+    /**
+     * Writes as much of the UTF-8 encoding of {@code string}, starting at char index {@code from}, as is sure to fit in
+     * {@code dest}, for encoding long strings in chunks. Never splits a surrogate pair.
+     *
+     * @param string    the string to encode
+     * @param from  the index of the first char to encode
+     * @param dest  the destination buffer
+     * @return  the index of the first char not yet encoded, or {@code string.length()} if done
+     */
+    public static int putUtf8(String string, int from, ByteBuffer dest) {
+        return putUtf8(string, from, dest, 4);
+    }
+
+    /**
+     * Writes the UTF-8 encoding of {@code string} into {@code dest} starting at {@code idx}. Writes the same bytes as
+     * {@link #putUtf8(String, ByteBuffer)}.
+     *
+     * @param string    the string to encode
+     * @param dest  the destination array
+     * @param idx   the index at which to begin writing
+     * @return  the index immediately following the last byte written
+     */
+    public static int putUtf8(String string, byte[] dest, int idx) {
+        final ByteBuffer bb = ByteBuffer.wrap(dest, idx, dest.length - idx);
+        putUtf8(string, 0, bb, 0);
+        return bb.position();
+    }
+
+    /**
+     * Encodes chars from {@code from} for as long as {@code dest} has at least {@code reserve} bytes remaining, four
+     * being enough for any char or surrogate pair. Unpaired surrogates are replaced by '?', as by
+     * {@link String#getBytes(Charset)}.
+     *
+     * @return  the index of the first char not encoded
+     */
+    private static int putUtf8(String string, int from, ByteBuffer dest, int reserve) {
+        final int len = string.length();
+        int i = from;
+        while (i < len && dest.remaining() >= reserve) {
+            final char c = string.charAt(i++);
+            if(c < 0x80) {
+                dest.put((byte) c);
+            } else if(c < 0x800) {
+                dest.put((byte) (0xC0 | (c >> 6)));
+                dest.put((byte) (0x80 | (c & 0x3F)));
+            } else if(Character.isSurrogate(c)) {
+                final char low;
+                if(Character.isHighSurrogate(c) && i < len && Character.isLowSurrogate(low = string.charAt(i))) {
+                    final int cp = Character.toCodePoint(c, low);
+                    dest.put((byte) (0xF0 | (cp >> 18)));
+                    dest.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    dest.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    dest.put((byte) (0x80 | (cp & 0x3F)));
+                    i++;
+                } else {
+                    dest.put((byte) '?');
+                }
+            } else {
+                dest.put((byte) (0xE0 | (c >> 12)));
+                dest.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                dest.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return i;
+    }
+
     public static int calcHexDecodedLen(int encodedLen) {
         return encodedLen >> 1; // div by two
     }
@@ -92,7 +199,7 @@ public class Strings {
 
     public static int calcDecodedLen(String string, int encoding) {
         switch (encoding) {
-        case UTF_8: return string.getBytes(CHARSET_UTF_8).length;
+        case UTF_8: return utf8Length(string);
         case BASE64: return calcBase64DecodedLen(string);
         case HEX:
         default: return calcHexDecodedLen(string.length());
@@ -0,0 +1,82 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.esaulpaugh.headlong.util.Strings.CHARSET_UTF_8;
+
+public class ABIRegistryTest {
+
+    private static final String ERC20 = "["
+            + "{\"type\":\"function\",\"name\":\"transfer\",\"inputs\":[{\"name\":\"to\",\"type\":\"address\"},{\"name\":\"value\",\"type\":\"uint256\"}],\"outputs\":[{\"type\":\"bool\"}]},"
+            + "{\"type\":\"function\",\"name\":\"balanceOf\",\"inputs\":[{\"name\":\"owner\",\"type\":\"address\"}],\"outputs\":[{\"type\":\"uint256\"}]},"
+            + "{\"type\":\"event\",\"name\":\"Transfer\",\"inputs\":[{\"name\":\"from\",\"type\":\"address\",\"indexed\":true},{\"name\":\"to\",\"type\":\"address\",\"indexed\":true},{\"name\":\"value\",\"type\":\"uint256\",\"indexed\":false}]}"
+            + "]";
+
+    private static final String ERC721 = "["
+            + "{\"type\":\"function\",\"name\":\"balanceOf\",\"inputs\":[{\"name\":\"owner\",\"type\":\"address\"}],\"outputs\":[{\"type\":\"uint256\"}]},"
+            + "{\"type\":\"function\",\"name\":\"safeTransferFrom\",\"inputs\":[{\"type\":\"address\"},{\"type\":\"address\"},{\"type\":\"uint256\"},{\"type\":\"bytes\"}]},"
+            + "{\"type\":\"event\",\"name\":\"Transfer\",\"inputs\":[{\"name\":\"from\",\"type\":\"address\",\"indexed\":true},{\"name\":\"to\",\"type\":\"address\",\"indexed\":true},{\"name\":\"tokenId\",\"type\":\"uint256\",\"indexed\":true}]},"
+            + "{\"type\":\"event\",\"name\":\"Anon\",\"anonymous\":true,\"inputs\":[{\"type\":\"uint8\",\"indexed\":false}]}"
+            + "]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoad() throws IOException, ParseException {
+        final File sub = folder.newFolder("sub");
+        for (int i = 0; i < 20; i++) {
+            write(new File(sub, "erc20_" + i + ".json"), ERC20);
+        }
+        write(new File(sub, "erc721.json"), "{\"contractName\":\"NFT\",\"abi\":" + ERC721 + ",\"bytecode\":\"0x6080\"}");
+        write(new File(sub, "erc721_copy.json"), ERC721);
+        write(folder.newFile("broken.json"), "[{\"type\":\"function\",\"name\":\"f\",\"inputs\":[{\"type\":\"uint7\"}]}]");
+        write(folder.newFile("truncated.json"), ERC20.substring(0, ERC20.length() / 2));
+        write(folder.newFile("README.md"), "not an abi");
+
+        final ABIRegistry serial = ABIRegistry.load(folder.getRoot().toPath());
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final ABIRegistry parallel;
+        try {
+            parallel = ABIRegistry.load(folder.getRoot().toPath(), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for (ABIRegistry registry : new ABIRegistry[] { serial, parallel }) {
+            Assert.assertEquals(24, registry.fileCount());
+            Assert.assertEquals(3, registry.getFunctions().size());
+            Assert.assertEquals(2, registry.getEvents().size());
+            Assert.assertEquals(2, registry.getEvents().lookup(Function.newDefaultDigest().digest("Transfer(address,address,uint256)".getBytes(CHARSET_UTF_8))).size());
+            Assert.assertEquals(1, registry.getAnonymousEvents().size());
+            Assert.assertEquals("transfer(address,uint256)", registry.getFunctions().lookup(new Function("transfer(address,uint256)").selector()).get(0).getCanonicalSignature());
+
+            Assert.assertEquals(2, registry.getErrors().size());
+            final Path[] failed = registry.getErrors().keySet().toArray(new Path[0]);
+            Assert.assertEquals("broken.json", failed[0].getFileName().toString());
+            Assert.assertTrue(registry.getErrors().get(failed[0]).getMessage().startsWith("unrecognized type: uint7"));
+            Assert.assertEquals("truncated.json", failed[1].getFileName().toString());
+            Assert.assertTrue(registry.getErrors().get(failed[1]) instanceof JsonSyntaxException);
+
+            Assert.assertTrue(registry.listNanos() > 0);
+            Assert.assertTrue(registry.readNanos() > 0);
+            Assert.assertTrue(registry.parseNanos() > 0);
+            Assert.assertTrue(registry.toString().startsWith("ABIRegistry{files=24, errors=2, functions=3, events=3,"));
+        }
+    }
+
+    private static void write(File file, String json) throws IOException {
+        Files.write(file.toPath(), json.getBytes(CHARSET_UTF_8));
+    }
+}
@@ -0,0 +1,121 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.esaulpaugh.headlong.TestUtils;
+import com.joemelsha.crypto.hash.Keccak;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ABISnapshotTest {
+
+    private static final String ABI = "["
+            + "{\"type\":\"function\",\"name\":\"swap\",\"stateMutability\":\"payable\",\"inputs\":["
+            + "{\"name\":\"params\",\"type\":\"tuple\",\"components\":[{\"name\":\"path\",\"type\":\"bytes\"},{\"name\":\"recipient\",\"type\":\"address\"},{\"name\":\"amounts\",\"type\":\"uint256[2]\"}]},"
+            + "{\"name\":\"orders\",\"type\":\"tuple[][3]\",\"components\":[{\"name\":\"maker\",\"type\":\"address\"},{\"name\":\"nonce\",\"type\":\"uint64\"}]}],"
+            + "\"outputs\":[{\"name\":\"amountOut\",\"type\":\"uint256\"}]},"
+            + "{\"type\":\"function\",\"name\":\"transfer\",\"inputs\":[{\"name\":\"to\",\"type\":\"address\"},{\"name\":\"value\",\"type\":\"uint256\"}],\"outputs\":[{\"type\":\"bool\"}]},"
+            + "{\"type\":\"fallback\",\"stateMutability\":\"payable\"},"
+            + "{\"type\":\"constructor\",\"inputs\":[{\"name\":\"owner\",\"type\":\"address\"}]},"
+            + "{\"type\":\"event\",\"name\":\"Transfer\",\"inputs\":[{\"name\":\"from\",\"type\":\"address\",\"indexed\":true},{\"name\":\"to\",\"type\":\"address\",\"indexed\":true},{\"name\":\"value\",\"type\":\"uint256\",\"indexed\":false}]},"
+            + "{\"type\":\"event\",\"name\":\"Many\",\"anonymous\":true,\"inputs\":["
+            + "{\"type\":\"uint8\",\"indexed\":false},{\"type\":\"uint8\",\"indexed\":true},{\"type\":\"uint8\",\"indexed\":false},{\"type\":\"uint8\",\"indexed\":false},"
+            + "{\"type\":\"uint8\",\"indexed\":false},{\"type\":\"uint8\",\"indexed\":false},{\"type\":\"uint8\",\"indexed\":false},{\"type\":\"uint8\",\"indexed\":false},"
+            + "{\"type\":\"uint8\",\"indexed\":true}]}"
+            + "]";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Throwable {
+        final List<ABIObject> original = new ArrayList<>(ContractJSONParser.parseObjects(ABI));
+        original.add(new Function("transfer(address,uint256)", "(bool)"));
+        original.add(new Function("transfer(address,uint256)", null, new Keccak(512)));
+
+        final Path file = folder.newFile("abi.snapshot").toPath();
+        ABISnapshot.write(original, file);
+        final List<ABIObject> loaded = ABISnapshot.read(file);
+
+        Assert.assertEquals(original.size(), loaded.size());
+        for (int i = 0; i < original.size(); i++) {
+            final ABIObject a = original.get(i);
+            final ABIObject b = loaded.get(i);
+            if(a instanceof Function) {
+                final Function f = (Function) a, g = (Function) b;
+                Assert.assertEquals(f, g);
+                Assert.assertEquals(f.selectorHex(), g.selectorHex());
+                Assert.assertEquals(f.getHashAlgorithm(), g.getHashAlgorithm());
+                assertNamesEqual(f.getParamTypes(), g.getParamTypes());
+                assertNamesEqual(f.getOutputTypes(), g.getOutputTypes());
+            } else {
+                final Event e = (Event) a, h = (Event) b;
+                Assert.assertEquals(e.signature(), h.signature());
+                Assert.assertEquals(e.isAnonymous(), h.isAnonymous());
+                Assert.assertArrayEquals(e.getIndexManifest(), h.getIndexManifest());
+                Assert.assertArrayEquals(e.topics0(), h.topics0());
+                assertNamesEqual(e.getParams(), h.getParams());
+            }
+        }
+        final Function swap = (Function) loaded.get(0);
+        Assert.assertEquals("swap((bytes,address,uint256[2]),(address,uint64)[][3])", swap.getCanonicalSignature());
+        Assert.assertEquals("payable", swap.getStateMutability());
+        Assert.assertEquals("orders", swap.getParamTypes().get(1).getName());
+        final ArrayType<?, ?> orders = (ArrayType<?, ?>) ((ArrayType<?, ?>) swap.getParamTypes().get(1)).getElementType();
+        Assert.assertEquals("maker", ((TupleType) orders.getElementType()).get(0).getName());
+        Assert.assertEquals(TupleType.EMPTY, ((Function) loaded.get(2)).getParamTypes());
+
+        // shared types are stored once and, unless tuples, loaded once
+        Assert.assertSame(((Function) loaded.get(6)).getParamTypes().get(1), ((Function) loaded.get(7)).getParamTypes().get(1));
+        Assert.assertNotSame(((Function) loaded.get(6)).getParamTypes(), ((Function) loaded.get(7)).getParamTypes());
+
+        final byte[] snapshot = ABISnapshot.toByteArray(original);
+        Assert.assertEquals(snapshot.length, file.toFile().length());
+        final ByteBuffer bb = ByteBuffer.wrap(snapshot);
+        Assert.assertEquals(original.size(), ABISnapshot.read(bb).size());
+        Assert.assertEquals(0, bb.position());
+
+        final byte[] corrupt = snapshot.clone();
+        corrupt[corrupt.length - 1] ^= 1;
+        TestUtils.assertThrown(IllegalArgumentException.class, "checksum mismatch", () -> ABISnapshot.read(ByteBuffer.wrap(corrupt)));
+        final byte[] future = snapshot.clone();
+        future[5] = 2;
+        TestUtils.assertThrown(IllegalArgumentException.class, "unsupported snapshot version: 2", () -> ABISnapshot.read(ByteBuffer.wrap(future)));
+        TestUtils.assertThrown(IllegalArgumentException.class, "expected body length", () -> ABISnapshot.read(ByteBuffer.wrap(snapshot, 0, snapshot.length - 1)));
+        TestUtils.assertThrown(IllegalArgumentException.class, "not a snapshot", () -> ABISnapshot.read(ByteBuffer.wrap(ABI.getBytes())));
+    }
+
+    @Test
+    public void testNamedEmptyTuple() throws Throwable {
+        final String abi = "[{\"type\":\"function\",\"name\":\"f\",\"inputs\":[{\"name\":\"x\",\"type\":\"tuple\",\"components\":[]}]},"
+                + "{\"type\":\"event\",\"name\":\"E\",\"inputs\":[{\"name\":\"y\",\"type\":\"tuple\",\"components\":[],\"indexed\":false}]}]";
+        final List<ABIObject> loaded = ABISnapshot.read(ByteBuffer.wrap(ABISnapshot.toByteArray(ContractJSONParser.parseObjects(abi))));
+
+        final ABIType<?> x = ((Function) loaded.get(0)).getParamTypes().get(0);
+        final ABIType<?> y = ((Event) loaded.get(1)).getParams().get(0);
+        Assert.assertEquals("x", x.getName());
+        Assert.assertEquals("y", y.getName());
+        Assert.assertEquals("()", x.canonicalType);
+        Assert.assertNotSame(TupleType.EMPTY, x);
+        Assert.assertNotSame(TupleType.EMPTY, y);
+        Assert.assertNull(TupleType.EMPTY.getName());
+        Assert.assertNull(new Function("g()").getParamTypes().getName());
+    }
+
+    private static void assertNamesEqual(TupleType a, TupleType b) {
+        Assert.assertEquals(a.getName(), b.getName());
+        for (int i = 0; i < a.elementTypes.length; i++) {
+            final ABIType<?> x = a.get(i), y = b.get(i);
+            Assert.assertEquals(x.getName(), y.getName());
+            Assert.assertEquals(x.canonicalType, y.canonicalType);
+            if(x instanceof TupleType) {
+                assertNamesEqual((TupleType) x, (TupleType) y);
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.esaulpaugh.headlong.abi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class Benchmark {
+
+    private static final String LEAF_TYPE = "(bytes[],(string,uint[])[])";
+
+    private static Tuple leaf() {
+        return new Tuple(
+                new byte[][] { new byte[] { 1, 2, 3 }, new byte[40] },
+                new Tuple[] { new Tuple("leaf", new BigInteger[] { BigInteger.ONE, BigInteger.TEN }) }
+        );
+    }
+
+    /**
+     * Encodes {@code (bytes[],(string,uint[])[])} wrapped in {@code depth} levels of single-element tuple arrays, so
+     * that the size of the encoding grows linearly with depth. Time per encoded byte should stay flat as depth grows.
+     */
+    @Test
+    public void nestedEncodeScaling() throws ParseException {
+        final int totalBytes = 400_000_000;
+
+        System.out.println("depth\tbytes\tns/byte");
+        for (int depth = 1; depth <= 128; depth <<= 1) {
+            String type = LEAF_TYPE;
+            Tuple value = leaf();
+            for (int i = 0; i < depth; i++) {
+                type = "(" + type + "[])";
+                value = new Tuple((Object) new Tuple[] { value });
+            }
+            final Function f = new Function("f" + type);
+            final Tuple args = new Tuple(value.get(0));
+            final ByteBuffer dest = ByteBuffer.allocate(f.callLength(args));
+
+            final int n = totalBytes / dest.capacity();
+
+            // warmup
+            for (int i = 0; i < n; i++) {
+                dest.clear();
+                f.encodeCall(args, dest, true);
+            }
+            final long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                dest.clear();
+                f.encodeCall(args, dest, true);
+            }
+            final long end = System.nanoTime();
+
+            dest.flip();
+            Assert.assertEquals(args, f.decodeCall(dest));
+
+            System.out.println(depth + "\t" + dest.capacity() + "\t" + String.format("%.3f", (end - start) / (double) n / dest.capacity()));
+        }
+    }
+
+    /**
+     * Times encoding and decoding of a flat, mostly static signature with and without {@link TupleType#compile()}.
+     */
+    @Test
+    public void compiledVsInterpreted() throws ParseException {
+        final String sig = "f(uint256,address,bool,int64,bytes32,(uint32,bool,string),uint16[3],bytes)";
+        final Tuple args = new Tuple(
+                BigInteger.TEN, BigInteger.ONE.shiftLeft(159), true, -7L, new byte[32],
+                new Tuple(5L, false, "abc"), new int[] { 1, 2, 3 }, new byte[] { 9, 9 }
+        );
+        final int n = 2_000_000;
+        for (Function f : new Function[] { new Function(sig), new Function(sig).compile() }) {
+            final ByteBuffer dest = ByteBuffer.allocate(f.callLength(args));
+            for (int round = 0; round < 2; round++) { // first round is warmup
+                long start = System.nanoTime();
+                for (int i = 0; i < n; i++) {
+                    dest.clear();
+                    f.encodeCall(args, dest, true);
+                }
+                final long encode = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int i = 0; i < n; i++) {
+                    dest.rewind();
+                    f.decodeCall(dest);
+                }
+                final long decode = System.nanoTime() - start;
+                if (round == 1) {
+                    System.out.println((f.getParamTypes().compiled != null ? "compiled" : "interpreted")
+                            + "\tencode " + encode / 1_000_000 + " ms\tdecode " + decode / 1_000_000 + " ms");
+                }
+            }
+            dest.rewind();
+            Assert.assertEquals(args, f.decodeCall(dest));
+        }
+    }
+
+    /**
+     * Times serial against fork-join validation and encoding of an airdrop-sized {@code (address,uint256)[]}.
+     */
+    @Test
+    public void parallelArrayEncode() throws ParseException {
+        final Function f = new Function("airdrop((address,uint256)[])");
+        final Tuple[] transfers = new Tuple[500_000];
+        for (int i = 0; i < transfers.length; i++) {
+            transfers[i] = new Tuple(BigInteger.valueOf(i).shiftLeft(120), BigInteger.TEN.pow(18).multiply(BigInteger.valueOf(i)));
+        }
+        final Tuple args = new Tuple((Object) transfers);
+        final ParallelEncoder parallel = new ParallelEncoder();
+        ByteBuffer serialOut = null, parallelOut = null;
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                serialOut = f.encodeCall(args);
+            }
+            final long serial = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                parallelOut = parallel.encodeCall(f, args);
+            }
+            final long forkJoin = System.nanoTime() - start;
+            if (round == 1) {
+                System.out.println("serial " + serial / 10_000_000 + " ms\tparallel " + forkJoin / 10_000_000 + " ms per call ("
+                        + Runtime.getRuntime().availableProcessors() + " cores)");
+            }
+        }
+        Assert.assertEquals(serialOut, parallelOut);
+    }
+
+    @Test
+    public void parallelArrayDecode() throws ParseException {
+        final Function f = new Function("submit(bytes[])");
+        final byte[][] payloads = new byte[200_000][];
+        for (int i = 0; i < payloads.length; i++) {
+            payloads[i] = new byte[100 + i % 64];
+        }
+        final ByteBuffer call = f.encodeCallWithArgs((Object) payloads);
+        final ParallelDecoder parallel = new ParallelDecoder();
+        Tuple serialOut = null, parallelOut = null;
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                call.rewind();
+                serialOut = f.decodeCall(call);
+            }
+            final long serial = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                call.rewind();
+                parallelOut = parallel.decodeCall(f, call);
+            }
+            final long forkJoin = System.nanoTime() - start;
+            if (round == 1) {
+                System.out.println("serial " + serial / 10_000_000 + " ms\tparallel " + forkJoin / 10_000_000 + " ms per call ("
+                        + Runtime.getRuntime().availableProcessors() + " cores)");
+            }
+        }
+        Assert.assertEquals(serialOut, parallelOut);
+    }
+
+    /**
+     * Times reading one field of a call carrying a large {@code bytes} and {@code string[]} via a {@link TupleView}
+     * against decoding the whole call.
+     */
+    @Test
+    public void viewOneField() throws ParseException {
+        final Function f = new Function("submit(address,bytes,string[],uint256)");
+        final String[] notes = new String[1_000];
+        Arrays.fill(notes, "note");
+        final ByteBuffer call = f.encodeCallWithArgs(BigInteger.TEN, new byte[100_000], notes, BigInteger.ONE);
+        final int n = 20_000;
+        long sink = 0;
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                call.rewind();
+                sink += ((BigInteger) f.decodeCall(call).get(3)).longValue();
+            }
+            final long eager = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                call.rewind();
+                sink += ((BigInteger) f.viewCall(call).get(3)).longValue();
+            }
+            final long lazy = System.nanoTime() - start;
+            if (round == 1) {
+                System.out.println("decodeCall " + eager / n + " ns\tviewCall+get " + lazy / n + " ns");
+            }
+        }
+        Assert.assertEquals(4L * n, sink);
+    }
+
+    @Test
+    public void reusedDecodeContext() throws ParseException {
+        final Function f = new Function("swap((address,uint256,bytes)[],uint256[][],string)");
+        final Tuple[] legs = new Tuple[8];
+        for (int i = 0; i < legs.length; i++) {
+            legs[i] = new Tuple(BigInteger.valueOf(i), BigInteger.TEN.pow(i), new byte[i]);
+        }
+        final byte[] call = f.encodeCallWithArgs(legs, new BigInteger[][] { { BigInteger.ONE }, { } }, "route").array();
+        final DecodeContext ctx = new DecodeContext();
+        final int n = 100_000;
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            long start = EncodeTest.allocatedBytes();
+            for (int i = 0; i < n; i++) {
+                f.decodeCall(call);
+            }
+            final long fresh = EncodeTest.allocatedBytes() - start;
+            start = EncodeTest.allocatedBytes();
+            for (int i = 0; i < n; i++) {
+                f.decodeCall(call, ctx);
+            }
+            final long reused = EncodeTest.allocatedBytes() - start;
+            if (round == 1) {
+                System.out.println("new context " + fresh / n + " bytes/decode\treused context " + reused / n + " bytes/decode");
+            }
+        }
+    }
+
+    /**
+     * Decodes a batch of return values with pools of increasing parallelism, up to the number of cores.
+     */
+    @Test
+    public void batchDecodeScaling() throws ParseException {
+        final Function f = new Function("getReserves()", "(uint112,uint112,uint32,address,string)");
+        final List<byte[]> results = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            results.add(f.getOutputTypes().encode(new Tuple(BigInteger.valueOf(i), BigInteger.TEN.pow(20), (long) i, BigInteger.ONE, "pair")).array());
+        }
+        final int cores = Runtime.getRuntime().availableProcessors();
+        long base = 0L;
+        for (int threads = 1; threads <= cores; threads <<= 1) {
+            final ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                long best = Long.MAX_VALUE;
+                for (int round = 0; round < 5; round++) {
+                    final long start = System.nanoTime();
+                    final DecodedBatch batch = f.decodeReturns(results, pool);
+                    best = Math.min(best, System.nanoTime() - start);
+                    Assert.assertEquals(0, batch.errorCount());
+                }
+                if(threads == 1) {
+                    base = best;
+                }
+                System.out.println(threads + " threads: " + best / 1_000_000 + " ms (" + String.format("%.2f", (double) base / best) + "x)");
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Parses a large set of distinct functions built from common parameter types, reporting time and allocation per
+     * function and the heap retained by the parsed set.
+     */
+    @Test
+    public void abiSetParsing() throws ParseException {
+        final String[] params = { "address", "uint256", "bool", "bytes32", "uint8", "uint64", "string", "int24", "uint32[]", "bytes" };
+        final String[] signatures = new String[20_000];
+        final Random r = new Random(7L);
+        for (int i = 0; i < signatures.length; i++) {
+            final StringBuilder sb = new StringBuilder("f").append(i).append('(');
+            for (int j = 0, n = 1 + r.nextInt(6); j < n; j++) {
+                sb.append(params[r.nextInt(params.length)]).append(',');
+            }
+            signatures[i] = sb.replace(sb.length() - 1, sb.length(), ")").toString();
+        }
+        final Runtime rt = Runtime.getRuntime();
+        for (int round = 0; round < 5; round++) { // earlier rounds are warmup
+            System.gc();
+            final long heapBefore = rt.totalMemory() - rt.freeMemory();
+            final long allocBefore = EncodeTest.allocatedBytes();
+            final long start = System.nanoTime();
+            final Function[] functions = new Function[signatures.length];
+            for (int i = 0; i < signatures.length; i++) {
+                functions[i] = new Function(signatures[i]);
+            }
+            final long elapsed = System.nanoTime() - start;
+            final long allocated = EncodeTest.allocatedBytes() - allocBefore;
+            System.gc();
+            final long retained = rt.totalMemory() - rt.freeMemory() - heapBefore;
+            if (round == 4) {
+                System.out.println(elapsed / signatures.length + " ns/function\t" + allocated / signatures.length
+                        + " bytes allocated/function\t" + retained / signatures.length + " bytes retained/function");
+            }
+            Assert.assertEquals(signatures.length, functions.length);
+        }
+    }
+
+    /**
+     * Parses the parameters of widely used functions, canonical and not, reporting time and allocation per signature.
+     */
+    @Test
+    public void signatureParsing() throws ParseException {
+        final String[] corpus = {
+                "(address,uint256)", "(address,address,uint256)", "(address)", "(address,address)", "(uint256)",
+                "(address,bool)", "(address,address,uint256,bytes)", "(address,address,uint256[],uint256[],bytes)",
+                "(uint256,uint256,address[],address,uint256)", "(uint,uint,address[],address,uint)",
+                "(uint256,address[],address,uint256)", "(address,address,uint256,uint256,uint256,address,uint256)",
+                "((address,address,uint24,address,uint256,uint256,uint256,uint160))",
+                "((bytes,address,uint256,uint256,uint256))", "(bytes32,uint256,uint8,bytes32,bytes32)",
+                "(address,uint256,uint256,uint8,bytes32,bytes32)", "(bytes[])", "(uint256,bytes[])",
+                "(bytes,bytes32[],uint256)", "(string,string,uint8)", "(int24,int24,uint128)",
+                "((address,uint256,uint256)[],(address,uint256)[],bytes32,uint256)", "(address[],uint256[])",
+                "(uint,int,fixed,ufixed)", "(uint256[2],uint256[2][2],uint256[2])"
+        };
+        final int n = 200_000;
+        for (int round = 0; round < 3; round++) { // earlier rounds are warmup
+            final long allocBefore = EncodeTest.allocatedBytes();
+            final long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                TupleType.parse(corpus[i % corpus.length]);
+            }
+            final long elapsed = System.nanoTime() - start;
+            final long allocated = EncodeTest.allocatedBytes() - allocBefore;
+            if (round == 2) {
+                System.out.println(elapsed / n + " ns/signature\t" + allocated / n + " bytes allocated/signature");
+            }
+        }
+    }
+
+    /**
+     * Loads 20,000 functions from JSON, from Java serialization and from a memory-mapped {@link ABISnapshot}.
+     */
+    @Test
+    public void snapshotLoading() throws Exception {
+        final String[] params = { "address", "uint256", "bool", "bytes32", "uint8", "uint64", "string", "int24", "uint32[]", "bytes" };
+        final StringBuilder json = new StringBuilder("[");
+        final Random r = new Random(7L);
+        for (int i = 0; i < 20_000; i++) {
+            json.append("{\"type\":\"function\",\"name\":\"f").append(i).append("\",\"inputs\":[");
+            for (int j = 0, n = 1 + r.nextInt(6); j < n; j++) {
+                json.append("{\"name\":\"p").append(j).append("\",\"type\":\"").append(params[r.nextInt(params.length)]).append("\"},");
+            }
+            json.setCharAt(json.length() - 1, ']');
+            json.append(",\"outputs\":[{\"type\":\"bool\"}]},");
+        }
+        json.setCharAt(json.length() - 1, ']');
+        final String abi = json.toString();
+        final List<Function> functions = ContractJSONParser.parseFunctions(abi);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(new ArrayList<>(functions));
+        }
+        final byte[] serialized = baos.toByteArray();
+        final Path file = Files.createTempFile("abi", ".snapshot");
+        try {
+            ABISnapshot.write(functions, file);
+            System.out.println("json " + abi.length() + " bytes, serialized " + serialized.length + " bytes, snapshot " + Files.size(file) + " bytes");
+            for (int round = 0; round < 5; round++) { // earlier rounds are warmup
+                long start = System.nanoTime();
+                Assert.assertEquals(functions.size(), ContractJSONParser.parseFunctions(abi).size());
+                final long parsed = System.nanoTime() - start;
+                start = System.nanoTime();
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                    Assert.assertEquals(functions.size(), ((List<?>) ois.readObject()).size());
+                }
+                final long deserialized = System.nanoTime() - start;
+                start = System.nanoTime();
+                Assert.assertEquals(functions.size(), ABISnapshot.read(file).size());
+                final long loaded = System.nanoTime() - start;
+                if (round == 4) {
+                    System.out.println("json " + parsed / 1_000_000 + " ms\tserialization " + deserialized / 1_000_000
+                            + " ms\tsnapshot " + loaded / 1_000_000 + " ms");
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.esaulpaugh.headlong.abi;
 
+import com.esaulpaugh.headlong.TestUtils;
+import com.google.gson.JsonSyntaxException;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.io.StringReader;
 import java.math.BigInteger;
 import java.text.ParseException;
 import java.util.List;
@@ -238,4 +241,79 @@ public class ContractJSONParserTest {
         Assert.assertEquals("a", event.getParams().get(0).getName());
         Assert.assertEquals("b", event.getParams().get(1).getName());
     }
+
+    @Test
+    public void testParseArtifact() throws Throwable {
+        final StringBuilder bytecode = new StringBuilder("0x");
+        for (int i = 0; i < 100_000; i++) {
+            bytecode.append("60806040");
+        }
+        final String abi = CONTRACT_JSON.substring(0, CONTRACT_JSON.lastIndexOf(']'))
+                + ",{\"inputs\":[{\"name\":\"x\",\"type\":\"uint8\"}],\"name\":\"Err\",\"type\":\"error\"}"
+                + ",{\"type\":\"receive\",\"stateMutability\":\"payable\"}"
+                + ",{\"inputs\":[{\"type\":\"address\"}],\"outputs\":[{\"type\":\"bool\"}],\"name\":\"late\",\"type\":\"function\"}]";
+        final String artifact = "{\"contractName\":\"C\",\"metadata\":{\"abi\":{\"nested\":[1,2]}},\"abi\":" + abi
+                + ",\"bytecode\":\"" + bytecode + "\", \"unterminated";
+
+        final List<ABIObject> objects = ContractJSONParser.parseObjects(new StringReader(artifact));
+        Assert.assertEquals(3, objects.size());
+        final Event event = (Event) objects.get(0);
+        Assert.assertEquals("an_event(bytes,uint256)", event.signature());
+        Assert.assertArrayEquals(new boolean[] { true, false }, event.getIndexManifest());
+        Assert.assertEquals("b", event.getParams().get(1).getName());
+        Assert.assertEquals(ContractJSONParser.parseFunctions(CONTRACT_JSON).get(0), objects.get(1));
+        final Function late = (Function) objects.get(2);
+        Assert.assertEquals("late(address)", late.getCanonicalSignature());
+        Assert.assertEquals(TupleType.parse("(bool)"), late.getOutputTypes());
+
+        Assert.assertEquals(2, ContractJSONParser.parseFunctions(abi).size());
+        Assert.assertEquals(1, ContractJSONParser.parseEvents(new StringReader(artifact)).size());
+
+        TestUtils.assertThrown(IllegalArgumentException.class, "type is not a string", () -> ContractJSONParser.parseObjects("[{\"type\":1}]"));
+        TestUtils.assertThrown(IllegalArgumentException.class, "components not found", () -> ContractJSONParser.parseObjects("[{\"type\":\"function\",\"inputs\":[{\"type\":\"tuple\"}]}]"));
+        TestUtils.assertThrown(JsonSyntaxException.class, "Did not consume the entire document.", () -> ContractJSONParser.parseObjects(abi + abi));
+    }
+
+    @Test
+    public void testInternedTypes() throws ParseException {
+        TupleType a = TupleType.parse("(uint256,address,bool,bytes32[])");
+        TupleType b = TupleType.parse("(uint,address,bool,bytes32[])");
+        Assert.assertNotSame(a, b);
+        for (int i = 0; i < a.elementTypes.length; i++) {
+            Assert.assertSame(a.get(i), b.get(i));
+        }
+        Assert.assertSame(TupleType.parse("(bytes32)").get(0), ((ArrayType<?, ?>) a.get(3)).getElementType());
+        Assert.assertNotEquals(TupleType.parse("(uint64)").get(0).clazz(), ((ArrayType<?, ?>) TupleType.parse("(uint64[])").get(0)).getElementType().clazz());
+
+        Event named = Event.fromJson("{\"type\":\"event\",\"name\":\"E\",\"inputs\":["
+                + "{\"name\":\"x\",\"type\":\"uint256\",\"indexed\":true},"
+                + "{\"name\":\"y\",\"type\":\"bool\",\"indexed\":false},"
+                + "{\"name\":\"z\",\"type\":\"tuple\",\"components\":[],\"indexed\":false}]}");
+        Assert.assertEquals("x", named.getParams().get(0).getName());
+        Assert.assertEquals("y", named.getParams().get(1).getName());
+        Assert.assertEquals("z", named.getParams().get(2).getName());
+        Assert.assertNull(a.get(0).getName());
+        Assert.assertNull(a.get(2).getName());
+        Assert.assertNull(TupleType.EMPTY.getName());
+        Assert.assertEquals(a.get(0), named.getParams().get(0));
+        Assert.assertNotSame(a.get(0), named.getParams().get(0));
+    }
+
+    @Test
+    public void testInternLimit() throws ParseException {
+        final TypeFactory.InternTable table = new TypeFactory.InternTable(1_000);
+        final ABIType<?> uint256 = TypeFactory.create("uint256", null);
+        Assert.assertNull(table.putIfAbsent("uint256", uint256));
+        for (int i = 0; i < 5_000; i++) { // distinct type strings, as from untrusted input
+            final String type = "uint256[" + i + "]";
+            table.putIfAbsent(type, TypeFactory.create(type, null));
+        }
+        Assert.assertEquals(1_000, table.size());
+        Assert.assertSame(uint256, table.get("uint256"));
+        Assert.assertSame(uint256, table.get("(uint256,bool)", 1, 8));
+        Assert.assertNotNull(table.get("uint256[998]"));
+        Assert.assertNull(table.get("uint256[999]"));
+        Assert.assertNull(table.putIfAbsent("uint256[4999]", uint256)); // refused, not an existing entry
+        Assert.assertNull(table.get("uint256[4999]"));
+    }
 }
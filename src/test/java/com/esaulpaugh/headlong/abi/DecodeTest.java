@@ -1,13 +1,28 @@
 package com.esaulpaugh.headlong.abi;
 
+import com.esaulpaugh.headlong.TestUtils;
 import com.esaulpaugh.headlong.util.FastHex;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class DecodeTest {
 
@@ -55,4 +70,385 @@ public class DecodeTest {
         Assert.assertEquals(expected, decoded);
     }
 
+    @Test
+    public void viewMatchesDecode() throws ParseException {
+        final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        for (int i = 0; i < 1_000; i++) {
+            MonteCarloTestCase testCase = new MonteCarloTestCase(new MonteCarloTestCase.Params(r.nextLong(), 3, 4, 2, 4));
+            ByteBuffer call = testCase.function.encodeCall(testCase.argsTuple);
+            call.flip();
+            TupleView view = testCase.function.viewCall(call);
+            Assert.assertEquals(0, call.position());
+            assertView(testCase.argsTuple, view);
+            Assert.assertEquals(testCase.argsTuple, view.decode());
+        }
+    }
+
+    private static void assertView(Tuple expected, TupleView view) {
+        Assert.assertEquals(expected.size(), view.size());
+        for (int i = 0; i < view.size(); i++) {
+            final ABIType<?> type = view.getType().get(i);
+            Assert.assertTrue(Objects.deepEquals(expected.get(i), view.get(i)));
+            if(type instanceof TupleType) {
+                assertView((Tuple) expected.get(i), view.getTuple(i));
+            } else if(TupleView.viewable(type)) {
+                assertView(expected.get(i), view.getArray(i));
+            }
+        }
+    }
+
+    private static void assertView(Object expected, ArrayView view) {
+        Assert.assertEquals(Array.getLength(expected), view.length());
+        final ABIType<?> elementType = view.getType().getElementType();
+        for (int j = 0; j < view.length(); j++) {
+            Object e = Array.get(expected, j);
+            Assert.assertTrue(Objects.deepEquals(e, view.get(j)));
+            if(elementType instanceof TupleType) {
+                assertView((Tuple) e, view.getTuple(j));
+            } else if(TupleView.viewable(elementType)) {
+                assertView(e, view.getArray(j));
+            }
+        }
+    }
+
+    @Test
+    public void projectionMatchesDecode() throws ParseException {
+        final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        for (int i = 0; i < 1_000; i++) {
+            MonteCarloTestCase testCase = new MonteCarloTestCase(new MonteCarloTestCase.Params(r.nextLong(), 3, 4, 2, 4));
+            TupleType types = testCase.function.getParamTypes();
+            ByteBuffer call = testCase.function.encodeCall(testCase.argsTuple);
+            call.flip();
+            final int n = types.elementTypes.length;
+            boolean[] manifest = new boolean[n];
+            List<Object> selected = new ArrayList<>();
+            for (int j = 0; j < n; j++) {
+                if(manifest[j] = r.nextBoolean()) {
+                    selected.add(testCase.argsTuple.get(j));
+                }
+            }
+            Tuple projected = testCase.function.decodeCall(call, manifest);
+            Assert.assertEquals(4, call.position());
+            Assert.assertEquals(new Tuple(selected.toArray()), projected);
+            if(n > 0) {
+                int index = r.nextInt(n);
+                Assert.assertEquals(new Tuple(testCase.argsTuple.get(index)), new Tuple(types.decode(call, index, index).get(1)));
+            }
+        }
+    }
+
+    @Test
+    public void projectionSkipsUnselected() throws Throwable {
+        Function f = new Function("f(uint8,bool[],(string,int16)[],bytes)");
+        Tuple args = new Tuple(7, new boolean[] { true }, new Tuple[] { new Tuple("a", -2), new Tuple("bc", 3) }, new byte[] { 1, 2 });
+        byte[] call = f.encodeCall(args).array();
+        call[4 + 32 * 6 - 1] = 2; // corrupt the bool[]'s element
+        Assert.assertEquals(new Tuple(new byte[] { 1, 2 }, 7), f.decodeCall(ByteBuffer.wrap(call), 3, 0));
+        Assert.assertEquals(new Tuple(7, new byte[] { 1, 2 }), f.decodeCall(ByteBuffer.wrap(call), new boolean[] { true, false, false, true }));
+        Assert.assertEquals(Tuple.EMPTY, f.decodeCall(ByteBuffer.wrap(call), new int[0]));
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal boolean value", () -> f.decodeCall(ByteBuffer.wrap(call), 1));
+        TestUtils.assertThrown(IllegalArgumentException.class, "index out of bounds: 4", () -> f.decodeCall(ByteBuffer.wrap(call), 4));
+        TestUtils.assertThrown(IllegalArgumentException.class, "manifest.length != elements.length: 3 != 4", () -> f.decodeCall(ByteBuffer.wrap(call), new boolean[3]));
+    }
+
+    @Test
+    public void parallelDecodeTest() throws Throwable {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final ParallelDecoder tiny = new ParallelDecoder(pool, 1);
+            final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+            for (int i = 0; i < 1_000; i++) {
+                MonteCarloTestCase testCase = new MonteCarloTestCase(new MonteCarloTestCase.Params(r.nextLong(), 3, 4, 2, 4));
+                Function f = testCase.function;
+                ByteBuffer call = f.encodeCall(testCase.argsTuple);
+                call.flip();
+                Assert.assertEquals(testCase.argsTuple, tiny.decodeCall(f, call));
+                Assert.assertEquals(call.limit(), call.position());
+            }
+
+            final Function reversed = new Function("f(bytes,string)");
+            final byte[] call = FastHex.decode(
+                    reversed.selectorHex()
+                    + "0000000000000000000000000000000000000000000000000000000000000080"
+                    + "0000000000000000000000000000000000000000000000000000000000000040"
+                    + "0000000000000000000000000000000000000000000000000000000000000002"
+                    + "6869000000000000000000000000000000000000000000000000000000000000"
+                    + "0000000000000000000000000000000000000000000000000000000000000003"
+                    + "0102030000000000000000000000000000000000000000000000000000000000"
+            );
+            Assert.assertEquals(new Tuple(new byte[] { 1, 2, 3 }, "hi"), tiny.decodeCall(reversed, ByteBuffer.wrap(call)));
+
+            final Function f = new Function("f(string[])");
+            final String[] strings = new String[10_000];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = Integer.toString(i);
+            }
+            final byte[] big = f.encodeCallWithArgs((Object) strings).array();
+            final ParallelDecoder parallel = new ParallelDecoder(pool, 1024);
+            Assert.assertArrayEquals(strings, (String[]) parallel.decodeCall(f, ByteBuffer.wrap(big)).get(0));
+
+            final int heads = Function.SELECTOR_LEN + 64;
+            big[heads + 32 * 9_000 + 28] = 0x10;
+            big[heads + 32 * 2_000 + 28] = 0x10;
+            final int offset = ByteBuffer.wrap(big, heads + 32 * 2_000 + 28, 4).getInt();
+            final String message = "illegal offset @ " + (heads + 32 * 2_000) + ": " + offset;
+            TestUtils.assertThrown(IllegalArgumentException.class, message, () -> parallel.decodeCall(f, ByteBuffer.wrap(big)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void reusedContext() throws Throwable {
+        final DecodeContext ctx = new DecodeContext();
+        final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        for (int i = 0; i < 1_000; i++) {
+            MonteCarloTestCase testCase = new MonteCarloTestCase(new MonteCarloTestCase.Params(r.nextLong(), 3, 4, 2, 4));
+            Function f = testCase.function;
+            if(r.nextBoolean()) {
+                f.compile();
+            }
+            byte[] call = f.encodeCall(testCase.argsTuple).array();
+            Assert.assertEquals(testCase.argsTuple, f.decodeCall(call, ctx));
+            Assert.assertEquals(0, ctx.top);
+            if(call.length > Function.SELECTOR_LEN) {
+                call[call.length - 1 - r.nextInt(call.length - Function.SELECTOR_LEN)] ^= (byte) 0x80;
+                try {
+                    f.decodeCall(call, ctx);
+                } catch (RuntimeException e) {
+                    /* corrupted */
+                }
+                Assert.assertEquals(0, ctx.top);
+            }
+        }
+
+        Function f = new Function("f(string[][],(bytes,uint8)[])");
+        Tuple args = new Tuple(new String[][] { { "a", "bc" }, { } }, new Tuple[] { new Tuple(new byte[3], 9) });
+        byte[] call = f.encodeCall(args).array();
+        DecodeContext uint256 = new DecodeContext(true);
+        Assert.assertTrue(uint256.isUint256());
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(args, f.decodeCall(call, uint256));
+            Assert.assertEquals(args, f.getParamTypes().decode(ByteBuffer.wrap(call, 4, call.length - 4).slice(), ctx));
+        }
+        Assert.assertEquals(0, uint256.top);
+
+        // the offsets of a large dynamic array are not retained after the decode
+        final Function big = new Function("g(string[],(uint8,string[]))");
+        final String[] strings = new String[100_000];
+        Arrays.fill(strings, "s");
+        final String[] inner = new String[5_000];
+        Arrays.fill(inner, "");
+        final Tuple bigArgs = new Tuple(strings, new Tuple(1, inner));
+        final byte[] bigCall = big.encodeCall(bigArgs).array();
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(bigArgs, big.decodeCall(bigCall, ctx));
+            Assert.assertEquals(0, ctx.top);
+            Assert.assertEquals(DecodeContext.MAX_RETAINED_OFFSETS, ctx.offsets.length);
+            big.compile();
+        }
+
+        // but they are retained until then, so that later large arrays in the same decode need not grow the stack again
+        final int base = ctx.pushOffsets(2);
+        ctx.popOffsets(ctx.pushOffsets(100_000));
+        final int[] grown = ctx.offsets;
+        Assert.assertTrue(grown.length >= 100_002);
+        ctx.popOffsets(ctx.pushOffsets(50_000));
+        Assert.assertSame(grown, ctx.offsets);
+        ctx.popOffsets(base);
+        Assert.assertEquals(DecodeContext.MAX_RETAINED_OFFSETS, ctx.offsets.length);
+    }
+
+    @Test
+    public void batchDecodeTest() throws Throwable {
+        final Function price = new Function("price()", "(uint256,uint32)");
+        final Function name = new Function("name()", "(string)");
+        final int n = 2_000;
+        final List<Function> functions = new ArrayList<>();
+        final List<byte[]> results = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if(i % 3 == 0) {
+                functions.add(name);
+                results.add(name.getOutputTypes().encode(new Tuple("token" + i)).array());
+            } else {
+                functions.add(price);
+                results.add(price.getOutputTypes().encode(new Tuple(BigInteger.valueOf(i), (long) i)).array());
+            }
+        }
+        results.set(7, new byte[31]);
+        results.set(1_500, Arrays.copyOf(results.get(1_500), 95)); // truncated string
+        results.set(1_800, null);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (DecodedBatch batch : Arrays.asList(Function.decodeReturns(functions, results), Function.decodeReturns(functions, results, pool))) {
+                Assert.assertEquals(n, batch.size());
+                Assert.assertEquals(3, batch.errorCount());
+                for (int i = 0; i < n; i++) {
+                    if(i == 7 || i == 1_500 || i == 1_800) {
+                        Assert.assertTrue(batch.isError(i));
+                        final int index = i;
+                        TestUtils.assertThrown(IllegalArgumentException.class, "result @ " + i + ": ", () -> batch.get(index));
+                    } else {
+                        Assert.assertNull(batch.getError(i));
+                        Assert.assertEquals(functions.get(i).decodeReturn(results.get(i)), batch.get(i));
+                    }
+                }
+                Assert.assertTrue(batch.getError(1_800) instanceof NullPointerException);
+                TestUtils.assertThrown(IndexOutOfBoundsException.class, "index 2000, size 2000", () -> batch.get(n));
+            }
+
+            final List<byte[]> prices = results.subList(1, 3);
+            DecodedBatch batch = price.decodeReturns(prices, pool);
+            Assert.assertEquals(new Tuple(BigInteger.ONE, 1L), batch.get(0));
+            Assert.assertEquals(new Tuple(BigInteger.valueOf(2L), 2L), batch.get(1));
+            Assert.assertEquals(0, price.decodeReturns(Collections.emptyList()).size());
+            TestUtils.assertThrown(IllegalArgumentException.class, "functions.length != results.length: 1 != 2", () -> Function.decodeReturns(Collections.singletonList(price), prices));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void streamingDecodeTest() throws Throwable {
+        final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        final List<MonteCarloTestCase> cases = new ArrayList<>();
+        final ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        for (int i = 0; i < 200; i++) {
+            MonteCarloTestCase testCase = new MonteCarloTestCase(new MonteCarloTestCase.Params(r.nextLong(), 3, 4, 2, 4));
+            cases.add(testCase);
+            dump.write(testCase.function.encodeCall(testCase.argsTuple).array());
+        }
+        final byte[] bytes = dump.toByteArray();
+        final StreamingDecoder decoder = new StreamingDecoder(new TrickleChannel(bytes, 1 + r.nextInt(50)), 32 + r.nextInt(100), new DecodeContext());
+        long position = 0;
+        for (MonteCarloTestCase testCase : cases) {
+            Assert.assertTrue(decoder.hasRemaining());
+            Assert.assertEquals(testCase.argsTuple, decoder.decodeCall(testCase.function));
+            position += testCase.function.callLength(testCase.argsTuple);
+            Assert.assertEquals(position, decoder.position());
+        }
+        Assert.assertFalse(decoder.hasRemaining());
+
+        final Function f = new Function("post(uint64,bytes,(string,bool)[],int8)");
+        final byte[] big = new byte[100_000];
+        r.nextBytes(big);
+        final Tuple args = new Tuple(BigInteger.TEN, big, new Tuple[] { new Tuple("a", true), new Tuple("bc", false) }, -1);
+        final byte[] one = f.encodeCall(args).array();
+        final byte[] three = new byte[one.length * 3];
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(one, 0, three, i * one.length, one.length);
+        }
+        final List<String> events = new ArrayList<>();
+        final StreamingDecoder.Listener listener = new StreamingDecoder.Listener() {
+            @Override
+            public void onArgument(Function function, int index, Object value) {
+                events.add(function.getName() + "[" + index + "]");
+            }
+
+            @Override
+            public void onCall(Function function, Tuple decoded) {
+                Assert.assertEquals(args, decoded);
+                events.add(function.getName());
+            }
+        };
+        final SelectorIndex index = new SelectorIndex(Collections.singletonList(f));
+        Assert.assertEquals(3L, new StreamingDecoder(new ByteArrayInputStream(three)).decodeCalls(index, listener));
+        Assert.assertEquals(Arrays.asList("post[0]", "post[3]", "post[1]", "post[2]", "post"), events.subList(0, 5));
+        Assert.assertEquals(15, events.size());
+
+        final StreamingDecoder truncated = new StreamingDecoder(new TrickleChannel(Arrays.copyOf(one, one.length - 1), 7), 64, new DecodeContext());
+        TestUtils.assertThrown(EOFException.class, "unexpected end of input after " + (one.length - 1) + " bytes", () -> truncated.decodeCall(f));
+        final StreamingDecoder unknown = new StreamingDecoder(new ByteArrayInputStream(new byte[36]));
+        TestUtils.assertThrown(IllegalArgumentException.class, "unknown selector: 00000000", () -> unknown.decodeCall(index));
+
+        final StreamingDecoder limited = new StreamingDecoder(new TrickleChannel(one, 50), 64, 1_000, new DecodeContext());
+        TestUtils.assertThrown(IllegalArgumentException.class, ": 100032 > 1000", () -> limited.decodeCall(f));
+        final Function strings = new Function("g(string[])");
+        final byte[] hugeArray = Arrays.copyOf(strings.selector(), 4 + 64);
+        hugeArray[4 + 31] = 0x20;
+        hugeArray[4 + 60] = 0x7f;
+        final StreamingDecoder huge = new StreamingDecoder(new ByteArrayInputStream(hugeArray));
+        TestUtils.assertThrown(IllegalArgumentException.class, "array too large @ 68: " + 0x7f000000, () -> huge.decodeCall(strings));
+        TestUtils.assertThrown(IllegalArgumentException.class, "max value length must be at least the buffer length. found: 63 < 64", () -> new StreamingDecoder(new TrickleChannel(one, 50), 64, 63, new DecodeContext()));
+
+        final Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            TestUtils.assertThrown(IllegalArgumentException.class, "channel must be in blocking mode", () -> new StreamingDecoder(pipe.source()));
+            pipe.source().configureBlocking(true);
+            final StreamingDecoder switched = new StreamingDecoder(pipe.source());
+            pipe.source().configureBlocking(false);
+            TestUtils.assertThrown(IOException.class, "no bytes read; the channel must be in blocking mode", switched::hasRemaining);
+            TestUtils.assertThrown(IOException.class, "no bytes read; the channel must be in blocking mode", () -> switched.decodeCall(f));
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+
+    /**
+     * Returns at most a few bytes per read, to exercise partial reads.
+     */
+    private static final class TrickleChannel implements ReadableByteChannel {
+
+        private final ByteBuffer src;
+        private final int max;
+
+        TrickleChannel(byte[] bytes, int max) {
+            this.src = ByteBuffer.wrap(bytes);
+            this.max = max;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if(!src.hasRemaining()) {
+                return -1;
+            }
+            final int n = Math.min(max, Math.min(src.remaining(), dst.remaining()));
+            final ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + n);
+            dst.put(slice);
+            src.position(src.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void viewSkipsUnreadTails() throws Throwable {
+        Function f = new Function("f(uint8,bool[],(string,int16)[],bytes)");
+        Tuple args = new Tuple(7, new boolean[] { true }, new Tuple[] { new Tuple("a", -2), new Tuple("bc", 3) }, new byte[] { 1, 2 });
+        byte[] call = f.encodeCall(args).array();
+        call[4 + 32 * 6 - 1] = 2; // corrupt the bool[]'s element
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal boolean value", () -> f.decodeCall(call));
+
+        TupleView view = f.viewCall(ByteBuffer.wrap(call));
+        Assert.assertEquals(7, view.get(0));
+        Assert.assertArrayEquals(new byte[] { 1, 2 }, (byte[]) view.get(3));
+        ArrayView tuples = view.getArray(2);
+        Assert.assertEquals(2, tuples.length());
+        Assert.assertEquals("bc", tuples.getTuple(1).get(0));
+        Assert.assertEquals(new Tuple("a", -2), tuples.get(0));
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal boolean value", () -> view.get(1));
+        TestUtils.assertThrown(IllegalArgumentException.class, "not a viewable array: bytes", () -> view.getArray(3));
+        TestUtils.assertThrown(IndexOutOfBoundsException.class, "index 2, length 2", () -> tuples.get(2));
+
+        call[4 + 32 * 4 - 2] = 0x0F;
+        call[4 + 32 * 4 - 1] = (byte) 0xF0; // point the bytes' offset past the end
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal offset @ 100: 4080", () -> f.viewCall(ByteBuffer.wrap(call)));
+
+        call[0]++;
+        TestUtils.assertThrown(IllegalArgumentException.class,
+                "given selector does not match: expected: " + f.selectorHex() + ", found: ",
+                () -> f.viewCall(ByteBuffer.wrap(call)));
+    }
 }
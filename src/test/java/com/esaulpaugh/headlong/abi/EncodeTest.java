@@ -1,13 +1,24 @@
 package com.esaulpaugh.headlong.abi;
 
 import com.esaulpaugh.headlong.TestUtils;
+import com.esaulpaugh.headlong.util.FastHex;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.esaulpaugh.headlong.abi.TupleTypeParser.EMPTY_PARAMETER;
 
@@ -93,4 +104,373 @@ public class EncodeTest {
 
         System.out.println("== " + Arrays.deepEquals(argsIn, argsOut));
     }
+
+    @Test
+    public void bigIntegerEncodingTest() throws ParseException {
+        Function f = new Function("f(int256,uint256,int72,uint64)");
+        Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        for (int i = 0; i < 10_000; i++) {
+            BigInteger a = new BigInteger(1 + r.nextInt(255), r);
+            Tuple args = new Tuple(r.nextBoolean() ? a.negate() : a, new BigInteger(1 + r.nextInt(256), r), new BigInteger(r.nextInt(72), r).negate(), new BigInteger(1 + r.nextInt(64), r));
+            ByteBuffer bb = f.encodeCall(args);
+            for (int j = 0; j < 4; j++) {
+                Assert.assertArrayEquals(unitOf((BigInteger) args.get(j)), Arrays.copyOfRange(bb.array(), 4 + j * 32, 4 + (j + 1) * 32));
+            }
+        }
+    }
+
+    private static byte[] unitOf(BigInteger val) {
+        byte[] unit = new byte[32];
+        if(val.signum() < 0) {
+            Arrays.fill(unit, (byte) 0xFF);
+        }
+        byte[] arr = val.toByteArray();
+        final int len = Math.min(arr.length, 32);
+        System.arraycopy(arr, arr.length - len, unit, 32 - len, len);
+        return unit;
+    }
+
+    @Test
+    public void nestedDynamicOffsetsTest() throws ParseException {
+        Function f = new Function("f((bytes,uint16[2],(string,int8[])[])[],bool,string)");
+        Tuple args = new Tuple(
+                new Tuple[] {
+                        new Tuple(new byte[] { 1, 2 }, new int[] { 3, 4 }, new Tuple[] { new Tuple("ab", new int[] { -1 }) }),
+                        new Tuple(new byte[0], new int[] { 5, 6 }, new Tuple[0])
+                },
+                true,
+                "c"
+        );
+        byte[] expected = FastHex.decode(
+                "30de9335" +
+                "0000000000000000000000000000000000000000000000000000000000000060" +
+                "0000000000000000000000000000000000000000000000000000000000000001" +
+                "0000000000000000000000000000000000000000000000000000000000000340" +
+                "0000000000000000000000000000000000000000000000000000000000000002" +
+                "0000000000000000000000000000000000000000000000000000000000000040" +
+                "0000000000000000000000000000000000000000000000000000000000000200" +
+                "0000000000000000000000000000000000000000000000000000000000000080" +
+                "0000000000000000000000000000000000000000000000000000000000000003" +
+                "0000000000000000000000000000000000000000000000000000000000000004" +
+                "00000000000000000000000000000000000000000000000000000000000000c0" +
+                "0000000000000000000000000000000000000000000000000000000000000002" +
+                "0102000000000000000000000000000000000000000000000000000000000000" +
+                "0000000000000000000000000000000000000000000000000000000000000001" +
+                "0000000000000000000000000000000000000000000000000000000000000020" +
+                "0000000000000000000000000000000000000000000000000000000000000040" +
+                "0000000000000000000000000000000000000000000000000000000000000080" +
+                "0000000000000000000000000000000000000000000000000000000000000002" +
+                "6162000000000000000000000000000000000000000000000000000000000000" +
+                "0000000000000000000000000000000000000000000000000000000000000001" +
+                "ffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff" +
+                "0000000000000000000000000000000000000000000000000000000000000080" +
+                "0000000000000000000000000000000000000000000000000000000000000005" +
+                "0000000000000000000000000000000000000000000000000000000000000006" +
+                "00000000000000000000000000000000000000000000000000000000000000a0" +
+                "0000000000000000000000000000000000000000000000000000000000000000" +
+                "0000000000000000000000000000000000000000000000000000000000000000" +
+                "0000000000000000000000000000000000000000000000000000000000000001" +
+                "6300000000000000000000000000000000000000000000000000000000000000"
+        );
+        ByteBuffer bb = ByteBuffer.allocate(expected.length);
+        Arrays.fill(bb.array(), (byte) 0x55); // offsets must overwrite whatever is in the skipped head slots
+        f.encodeCall(args, bb, true);
+        Assert.assertArrayEquals(expected, bb.array());
+        Assert.assertArrayEquals(expected, f.encodeCall(args).array());
+    }
+
+    @Test
+    public void batchEncodeTest() throws Throwable {
+        final Function f = new Function("transfer(uint32,string,(bool,bytes)[])");
+        final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        final List<Tuple> calls = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Tuple[] inner = new Tuple[r.nextInt(3)];
+            for (int j = 0; j < inner.length; j++) {
+                inner[j] = new Tuple(r.nextBoolean(), new byte[r.nextInt(70)]);
+            }
+            calls.add(new Tuple((long) r.nextInt(Integer.MAX_VALUE), "#" + i, inner));
+        }
+
+        final EncodedBatch serial = f.encodeCalls(calls);
+        final EncodedBatch parallel = f.encodeCalls(calls::iterator, ForkJoinPool.commonPool());
+        Assert.assertEquals(calls.size(), serial.size());
+        Assert.assertEquals(serial.buffer(), parallel.buffer());
+        int offset = 0;
+        for (int i = 0; i < calls.size(); i++) {
+            ByteBuffer expected = f.encodeCall(calls.get(i));
+            Assert.assertEquals(offset, serial.offset(i));
+            Assert.assertEquals(expected.capacity(), serial.length(i));
+            Assert.assertEquals(expected.flip(), serial.get(i));
+            Assert.assertArrayEquals(expected.array(), parallel.toByteArray(i));
+            offset += serial.length(i);
+        }
+        Assert.assertEquals(offset, serial.buffer().capacity());
+
+        calls.set(4_000, new Tuple(-1L, "", new Tuple[0]));
+        calls.set(4_001, new Tuple(0L, null, new Tuple[0]));
+        TestUtils.assertThrown(IllegalArgumentException.class, "call @ 4000: illegal arg @ 0: signed value given for unsigned type", () -> f.encodeCalls(calls, ForkJoinPool.commonPool()));
+        TestUtils.assertThrown(IndexOutOfBoundsException.class, "index 5000, size 5000", () -> serial.get(5_000));
+    }
+
+    @Test
+    public void zeroAllocationTest() throws ParseException {
+        Function f = new Function("f(bool,int8,uint16,uint32,int64,uint64,int256,address,bytes32,bytes,string,(uint8,bool),(string,int72)[],bool[3],int16[],uint32[],uint64[],uint256[],string[],bytes[2],uint8[][],function)");
+
+        byte[] func = new byte[24];
+        Arrays.fill(func, (byte) 0xA5);
+        Tuple args = new Tuple(
+                true, -7, 65535, 4_000_000_000L, Long.MIN_VALUE, BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1),
+                BigInteger.ONE.shiftLeft(254).negate(), BigInteger.ONE.shiftLeft(160).subtract(BigInteger.ONE),
+                new byte[32], new byte[] { 1, 2, 3 }, "\u0024\u00a2\u20ac\ud800\udf48 w00t",
+                new Tuple(255, false),
+                new Tuple[] { new Tuple("", BigInteger.valueOf(-1L)), new Tuple("\u00e9", BigInteger.ONE.shiftLeft(70)) },
+                new boolean[] { true, false, true }, new int[] { -32768, 32767 }, new int[] { Integer.MAX_VALUE }, new long[] { -1L, Long.MAX_VALUE },
+                new BigInteger[] { BigInteger.ONE.shiftLeft(255).subtract(BigInteger.ONE), BigInteger.ZERO },
+                new String[] { "a", "\ud83d\ude00" }, new byte[][] { new byte[33], new byte[0] }, new byte[][] { new byte[] { -1 } },
+                func
+        );
+
+        final int len = f.callLength(args);
+        final ByteBuffer heap = ByteBuffer.allocate(len);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(len);
+
+        f.encodeCall(args, heap, true); // warm up
+        f.encodeCall(args, direct, true);
+        heap.flip();
+        Assert.assertEquals(args, f.decodeCall(heap));
+        direct.flip();
+        Assert.assertEquals(heap.rewind(), direct);
+
+        final TupleType paramTypes = f.getParamTypes();
+        final int n = 50_000;
+        encodeLoop(f, paramTypes, args, heap, direct, n); // let the JIT settle before measuring
+        final long start = allocatedBytes();
+        encodeLoop(f, paramTypes, args, heap, direct, n);
+        final long allocated = allocatedBytes() - start;
+        System.out.println(allocated + " bytes allocated in " + (2 * n) + " encodes");
+        Assert.assertTrue("allocated " + allocated, allocated < 1024); // measurement overhead only
+    }
+
+    @Test
+    public void streamingEncodeTest() throws Throwable {
+        final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        final StreamingEncoder[] encoders = { new StreamingEncoder(32), new StreamingEncoder(37), new StreamingEncoder() };
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (int i = 0; i < 1_000; i++) {
+            MonteCarloTestCase testCase = new MonteCarloTestCase(new MonteCarloTestCase.Params(r.nextLong(), 3, 4, 2, 4));
+            Function f = testCase.function;
+            byte[] expected = f.encodeCall(testCase.argsTuple).array();
+            Assert.assertEquals(expected.length, f.callLength(testCase.argsTuple, false));
+            for (StreamingEncoder encoder : encoders) {
+                baos.reset();
+                Assert.assertEquals(expected.length, encoder.encodeCall(f, testCase.argsTuple, baos));
+                Assert.assertArrayEquals(f.getCanonicalSignature(), expected, baos.toByteArray());
+
+                TrickleChannel channel = new TrickleChannel(r.nextInt(40) + 1);
+                encoder.encodeCall(f, testCase.argsTuple, channel);
+                Assert.assertArrayEquals(f.getCanonicalSignature(), expected, channel.baos.toByteArray());
+            }
+        }
+
+        Function f = new Function("f(uint8)");
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal arg @ 0: signed value given for unsigned type",
+                () -> encoders[0].encodeCall(f, new Tuple(-1), baos));
+
+        final Function g = new Function("g(bytes)");
+        final Tuple small = new Tuple((Object) new byte[3]);
+        final Tuple large = new Tuple((Object) new byte[10_000]); // written straight from the array, with a gathering write
+        for (Tuple args : new Tuple[] { small, large }) {
+            TestUtils.assertThrown(IOException.class, "no bytes written; the channel must be in blocking mode",
+                    () -> encoders[2].encodeCall(g, args, new TrickleChannel(0)));
+        }
+        final Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            TestUtils.assertThrown(IllegalArgumentException.class, "channel must be in blocking mode",
+                    () -> encoders[2].encodeCall(g, small, pipe.sink()));
+            TestUtils.assertThrown(IllegalArgumentException.class, "channel must be in blocking mode",
+                    () -> encoders[2].encode(g.getParamTypes(), small, pipe.sink()));
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+        baos.reset();
+        Assert.assertEquals(36 + 64, encoders[2].encodeCall(g, small, baos)); // still usable
+    }
+
+    @Test
+    public void streamingConstantMemoryTest() throws Throwable {
+        final Function f = new Function("deploy(bytes,string,bytes[])");
+        final byte[] big = new byte[64 * 1024 * 1024 + 5];
+        big[big.length - 1] = 1;
+        final Tuple args = new Tuple(big, "x", new byte[][] { big, new byte[3] });
+        final StreamingEncoder encoder = new StreamingEncoder();
+        final long[] sink = new long[1];
+        final WritableByteChannel counter = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                final int n = src.remaining();
+                src.position(src.limit());
+                sink[0] += n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        encoder.encodeCall(f, args, counter); // warm up
+        sink[0] = 0L;
+        final long start = allocatedBytes();
+        final long written = encoder.encodeCall(f, args, counter);
+        final long allocated = allocatedBytes() - start;
+        Assert.assertEquals(f.callLength(args), written);
+        Assert.assertEquals(written, sink[0]);
+        System.out.println(allocated + " bytes allocated streaming " + written + " bytes");
+        Assert.assertTrue("allocated " + allocated, allocated < 64 * 1024);
+    }
+
+    @Test
+    public void parallelEncodeTest() throws Throwable {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final ParallelEncoder tiny = new ParallelEncoder(pool, 1);
+            final Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+            for (int i = 0; i < 1_000; i++) {
+                MonteCarloTestCase testCase = new MonteCarloTestCase(new MonteCarloTestCase.Params(r.nextLong(), 3, 4, 2, 4));
+                Function f = testCase.function;
+                Assert.assertArrayEquals(f.getCanonicalSignature(), f.encodeCall(testCase.argsTuple).array(), tiny.encodeCall(f, testCase.argsTuple).array());
+            }
+
+            final Function f = new Function("settle(bytes32,(address,uint256)[],uint128[],string[3])");
+            final int n = 200_000;
+            final Tuple[] transfers = new Tuple[n];
+            final BigInteger[] amounts = new BigInteger[n];
+            for (int i = 0; i < n; i++) {
+                transfers[i] = new Tuple(BigInteger.valueOf(i).shiftLeft(100), BigInteger.valueOf(r.nextLong()).shiftLeft(r.nextInt(190)).abs());
+                amounts[i] = BigInteger.valueOf(i);
+            }
+            final Tuple args = new Tuple(new byte[32], transfers, amounts, new String[] { "a", "", "€" });
+            final ParallelEncoder parallel = new ParallelEncoder(pool, 1024);
+            Assert.assertEquals(f.encodeCall(args), parallel.encodeCall(f, args));
+            Assert.assertEquals(f.getParamTypes().validate(args), parallel.validate(f.getParamTypes(), args));
+
+            amounts[150_000] = BigInteger.valueOf(-1L);
+            transfers[199_999] = new Tuple(BigInteger.ONE, BigInteger.ONE.shiftLeft(256));
+            transfers[100_001] = new Tuple(BigInteger.ONE.shiftLeft(160), BigInteger.ONE);
+            final String message = "illegal arg @ 1: index 100001: illegal arg @ 0: exceeds bit limit: 161 > 160";
+            TestUtils.assertThrown(IllegalArgumentException.class, message, () -> f.encodeCall(args));
+            TestUtils.assertThrown(IllegalArgumentException.class, message, () -> parallel.encodeCall(f, args));
+            transfers[100_001] = transfers[100_000];
+            TestUtils.assertThrown(IllegalArgumentException.class, "illegal arg @ 1: index 199999: illegal arg @ 1: exceeds bit limit: 257 > 256", () -> parallel.encodeCall(f, args));
+
+            // arrays of dynamic elements, with one instance appearing at several places, are laid out by the lengths measured during validation
+            final Function g = new Function("g((uint8,string)[],string[][],string[][])");
+            final String[] shared = new String[] { "x", "yy", "" };
+            final String[][] nested = new String[5_000][];
+            final Tuple[] pairs = new Tuple[5_000];
+            for (int i = 0; i < nested.length; i++) {
+                nested[i] = i % 3 == 0 ? shared : new String[] { String.valueOf(i) };
+                pairs[i] = new Tuple(i & 0xff, i % 2 == 0 ? "" : "pair" + i);
+            }
+            final Tuple gArgs = new Tuple(pairs, nested, nested);
+            Assert.assertEquals(g.encodeCall(gArgs), parallel.encodeCall(g, gArgs));
+            Assert.assertEquals(g.encodeCall(gArgs), tiny.encodeCall(g, gArgs));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void regionFailures() throws Throwable {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Assert.assertEquals(1_000, Regions.run(pool, 10, 1_000, (from, to) -> to - from, Integer::sum));
+            TestUtils.assertThrown(IllegalArgumentException.class, "region 500", () -> Regions.run(pool, 10, 1_000, (from, to) -> {
+                if(from >= 500) {
+                    throw new IllegalArgumentException("region " + from);
+                }
+                return 0;
+            }, Integer::sum));
+            TestUtils.assertThrown(NullPointerException.class, "region 0", () -> Regions.run(pool, 10, 1_000, (from, to) -> {
+                throw new NullPointerException("region " + from);
+            }, Integer::sum));
+            // other exceptions are not ordered by region, and propagate as thrown
+            TestUtils.assertThrown(ClassCastException.class, () -> Regions.run(pool, 10, 1_000, (from, to) -> {
+                if(from <= 990 && 990 < to) {
+                    throw new ClassCastException("region " + from);
+                }
+                return 0;
+            }, Integer::sum));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Accepts at most a few bytes per write, to exercise partial writes.
+     */
+    private static final class TrickleChannel implements GatheringByteChannel {
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        private final int max;
+
+        TrickleChannel(int max) {
+            this.max = max;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            final int n = Math.min(max, src.remaining());
+            for (int i = 0; i < n; i++) {
+                baos.write(src.get());
+            }
+            return n;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long n = 0;
+            for (int i = offset; i < offset + length; i++) {
+                n += write(srcs[i]);
+                if(srcs[i].hasRemaining()) {
+                    break;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static void encodeLoop(Function f, TupleType paramTypes, Tuple args, ByteBuffer heap, ByteBuffer direct, int n) {
+        for (int i = 0; i < n; i++) {
+            heap.clear();
+            f.encodeCall(args, heap, true);
+            direct.clear();
+            paramTypes.encode(args, direct, true);
+        }
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
 }
@@ -1,9 +1,17 @@
 package com.esaulpaugh.headlong.abi;
 
+import com.esaulpaugh.headlong.TestUtils;
+import com.esaulpaugh.headlong.util.Strings;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Random;
 
 public class EventTest {
 
@@ -21,5 +29,202 @@ public class EventTest {
 
         Assert.assertEquals(TupleType.parse("((),ufixed256x10)"), event.getIndexedParams());
         Assert.assertEquals(TupleType.parse("(int256,uint256,bool[])"), event.getNonIndexedParams());
+
+        final Event parsed = ContractJSONParser.parseEvents("[{\"type\":\"event\",\"name\":\"ahoy\",\"inputs\":[{\"type\":\"int\",\"indexed\":false},"
+                + "{\"type\":\"uint\",\"indexed\":false},{\"type\":\"tuple\",\"components\":[],\"indexed\":true},{\"type\":\"bool[]\",\"indexed\":false},"
+                + "{\"type\":\"ufixed256x10\",\"indexed\":true}]}]").get(0);
+        Assert.assertArrayEquals(event.topics0(), parsed.topics0());
+    }
+
+    private static byte[] topic(String type, Object value) throws ParseException {
+        return TupleType.parse("(" + type + ")").encode(new Tuple(value)).array();
+    }
+
+    @Test
+    public void testDecodeArgs() throws Throwable {
+        Event event = new Event("Posted", "(address,string,uint256,bytes,int8)", new boolean[] { true, true, false, false, true });
+        Assert.assertSame(event.getIndexedParams(), event.getIndexedParams());
+        Assert.assertArrayEquals(Function.newDefaultDigest().digest(Strings.decode("Posted(address,string,uint256,bytes,int8)", Strings.UTF_8)), event.topics0());
+        Assert.assertNotSame(event.topics0(), event.topics0());
+
+        final BigInteger author = BigInteger.valueOf(0xABCDEFL);
+        final byte[] titleHash = Function.newDefaultDigest().digest(Strings.decode("title", Strings.UTF_8));
+        final byte[][] topics = new byte[][] { event.topics0(), topic("address", author), titleHash, topic("int8", -3) };
+        final byte[] data = event.getNonIndexedParams().encode(new Tuple(BigInteger.TEN, new byte[] { 1, 2 })).array();
+        Tuple args = event.decodeArgs(topics, data);
+        Assert.assertEquals(new Tuple(author, titleHash, BigInteger.TEN, new byte[] { 1, 2 }, -3), args);
+
+        TestUtils.assertThrown(IllegalArgumentException.class, "expected 4 topics but found 3", () -> event.decodeArgs(Arrays.copyOf(topics, 3), data));
+        TestUtils.assertThrown(IllegalArgumentException.class, "topic0 does not match event Posted(address,string,uint256,bytes,int8)",
+                () -> event.decodeArgs(new byte[][] { titleHash, topics[1], topics[2], topics[3] }, data));
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal topic @ 3: ",
+                () -> event.decodeArgs(new byte[][] { topics[0], topics[1], topics[2], topic("uint256", BigInteger.valueOf(300)) }, data));
+
+        Event anonymous = new Event("Anon", "(uint8,bool)", new boolean[] { true, false }, true);
+        Assert.assertNull(anonymous.topics0());
+        Assert.assertEquals(new Tuple(7, true), anonymous.decodeArgs(new byte[][] { topic("uint8", 7) }, topic("bool", true)));
+
+        // bytesN are value types and appear in their topics directly; only dynamic types, arrays and tuples are hashed
+        Assert.assertFalse(Event.isHashed(TypeFactory.create("bytes4", null)));
+        Assert.assertFalse(Event.isHashed(TypeFactory.create("bytes32", null)));
+        Assert.assertTrue(Event.isHashed(TypeFactory.create("bytes", null)));
+        Assert.assertTrue(Event.isHashed(TypeFactory.create("uint8[2]", null)));
+        Event ids = new Event("Ids", "(bytes4,bytes32,bytes)", new boolean[] { true, true, true });
+        final byte[] selector = new byte[] { 1, 2, 3, 4 };
+        final byte[] id = new byte[32];
+        new Random(MonteCarloTest.seed(System.nanoTime())).nextBytes(id);
+        final byte[] blobHash = Function.newDefaultDigest().digest(new byte[] { 9 });
+        Tuple idArgs = ids.decodeArgs(new byte[][] { ids.topics0(), topic("bytes4", selector), topic("bytes32", id), blobHash }, new byte[0]);
+        Assert.assertEquals(new Tuple(selector, id, blobHash), idArgs);
+    }
+
+    @Test
+    public void testEventIndex() throws Throwable {
+        Event erc20 = new Event("Transfer", "(address,address,uint256)", new boolean[] { true, true, false });
+        Event erc721 = new Event("Transfer", "(address,address,uint256)", new boolean[] { true, true, true });
+        Event approval = new Event("Approval", "(address,address,uint256)", new boolean[] { true, true, false });
+        EventIndex index = new EventIndex(Arrays.asList(erc20, erc721));
+        Assert.assertTrue(index.add(approval));
+        Assert.assertFalse(index.add(new Event("Transfer", "(address,address,uint256)", new boolean[] { true, true, false })));
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(Arrays.asList(erc20, erc721), index.lookup(erc20.topics0()));
+        TestUtils.assertThrown(IllegalArgumentException.class, "anonymous events have no topic0: A", () -> index.add(new Event("A", "()", new boolean[0], true)));
+
+        final byte[] from = topic("address", BigInteger.ONE), to = topic("address", BigInteger.TEN);
+        final byte[] amount = topic("uint256", BigInteger.valueOf(5L));
+        EventIndex.Log log = index.decode(new byte[][] { erc20.topics0(), from, to }, amount);
+        Assert.assertSame(erc20, log.getEvent());
+        Assert.assertEquals(new Tuple(BigInteger.ONE, BigInteger.TEN, BigInteger.valueOf(5L)), log.getArgs());
+        log = index.decode(new byte[][] { erc721.topics0(), from, to, amount }, new byte[0]);
+        Assert.assertSame(erc721, log.getEvent());
+        Assert.assertEquals(new Tuple(BigInteger.ONE, BigInteger.TEN, BigInteger.valueOf(5L)), log.getArgs());
+        Assert.assertSame(approval, index.decode(new byte[][] { approval.topics0(), from, to }, amount).getEvent());
+
+        TestUtils.assertThrown(IllegalArgumentException.class, "no event with topic0 " + Strings.encode(erc20.topics0()) + " has 1 indexed params",
+                () -> index.decode(new byte[][] { erc20.topics0(), from }, amount));
+        TestUtils.assertThrown(IllegalArgumentException.class, "unknown topic0: " + Strings.encode(from), () -> index.decode(new byte[][] { from }, amount));
+        TestUtils.assertThrown(IllegalArgumentException.class, "log has no topics", () -> index.decode(new byte[0][], amount));
+
+        // same topic0 and number of indexed params, different index manifests: tried in the order added
+        Event toIndexed = new Event("Moved", "(address,address,uint256)", new boolean[] { true, true, false });
+        Event amountIndexed = new Event("Moved", "(address,address,uint256)", new boolean[] { true, false, true });
+        EventIndex moves = new EventIndex(Arrays.asList(toIndexed, amountIndexed));
+        Assert.assertEquals(2, moves.size());
+        final BigInteger large = BigInteger.ONE.shiftLeft(200); // too large for an address
+        final byte[][] movedTopics = new byte[][] { amountIndexed.topics0(), from, topic("uint256", large) };
+        log = moves.decode(movedTopics, to);
+        Assert.assertSame(amountIndexed, log.getEvent());
+        Assert.assertEquals(new Tuple(BigInteger.ONE, BigInteger.TEN, large), log.getArgs());
+        log = moves.decode(new byte[][] { amountIndexed.topics0(), from, amount }, to); // decodable by both
+        Assert.assertSame(toIndexed, log.getEvent());
+        TestUtils.assertThrown(IllegalArgumentException.class, "no event with topic0 " + Strings.encode(amountIndexed.topics0()) + " could decode the log: ",
+                () -> moves.decode(movedTopics, topic("uint256", large)));
+
+        final Event[] many = new Event[5_000];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = new Event("E" + i, "(uint256)", new boolean[] { true });
+        }
+        index.addAll(Arrays.asList(many));
+        Assert.assertEquals(3 + many.length, index.size());
+        for (Event e : many) {
+            Assert.assertEquals(Collections.singletonList(e), index.lookup(e.topics0()));
+        }
+        Assert.assertEquals(Arrays.asList(erc20, erc721), index.lookup(erc20.topics0()));
+    }
+
+    @Test
+    public void testLogsBloom() throws Throwable {
+        final Event transfer = new Event("Transfer", "(address,address,uint256)", new boolean[] { true, true, false });
+        final Event approval = new Event("Approval", "(address,address,uint256)", new boolean[] { true, true, false });
+        final byte[] address = Arrays.copyOfRange(topic("address", BigInteger.TEN), 12, 32);
+        final byte[][] topics = new byte[][] { transfer.topics0(), topic("address", BigInteger.ONE), topic("address", BigInteger.TEN) };
+
+        final LogsBloom bloom = new LogsBloom().addLog(address, topics);
+        final byte[] bits = bloom.toByteArray();
+        final byte[] expected = new byte[LogsBloom.BLOOM_LEN];
+        for (byte[] item : new byte[][] { address, topics[0], topics[1], topics[2] }) {
+            final byte[] hash = Function.newDefaultDigest().digest(item);
+            for (int i = 0; i < 6; i += 2) {
+                final int bit = ((hash[i] & 0xFF) << 8 | (hash[i + 1] & 0xFF)) & 2047;
+                expected[LogsBloom.BLOOM_LEN - 1 - bit / 8] |= 1 << (bit % 8);
+            }
+        }
+        Assert.assertArrayEquals(expected, bits);
+        Assert.assertTrue(bloom.mightContain(address));
+        Assert.assertTrue(bloom.mightContain(LogsBloom.Probe.of(transfer)));
+        Assert.assertFalse(new LogsBloom(bits).mightContain(LogsBloom.Probe.of(approval)));
+
+        final ByteBuffer column = ByteBuffer.allocate(3 * LogsBloom.BLOOM_LEN + 1);
+        column.put((byte) 0).put(new byte[LogsBloom.BLOOM_LEN]).put(bits).put(new byte[LogsBloom.BLOOM_LEN]);
+        column.position(1);
+        final LogsBloom.Probe[] probes = new LogsBloom.Probe[] { LogsBloom.Probe.of(approval), LogsBloom.Probe.of(transfer) };
+        Assert.assertEquals(BitSet.valueOf(new long[] { 0b010 }), LogsBloom.mightContainAny(column, probes));
+        Assert.assertEquals(1, column.position());
+        Assert.assertEquals(BitSet.valueOf(new long[] { 0b100 }), LogsBloom.mightContainAny(Arrays.asList(new byte[256], new byte[256], bits), probes));
+
+        final Random r = new Random(1L);
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            final byte[] item = new byte[32];
+            r.nextBytes(item);
+            if(bloom.mightContain(LogsBloom.Probe.of(item))) {
+                falsePositives++;
+            }
+        }
+        Assert.assertTrue(falsePositives < 10);
+
+        TestUtils.assertThrown(IllegalArgumentException.class, "bloom length must be 256. found: 255", () -> new LogsBloom(new byte[255]));
+        TestUtils.assertThrown(IllegalArgumentException.class, "length must be a multiple of 256. found: 257", () -> LogsBloom.mightContainAny(ByteBuffer.allocate(257), probes));
+        TestUtils.assertThrown(IllegalArgumentException.class, "anonymous events have no topic0: A", () -> LogsBloom.Probe.of(new Event("A", "()", new boolean[0], true)));
+    }
+
+    @Test
+    public void testTopicFilters() throws Throwable {
+        final Event erc20 = Event.fromJson("{\"type\":\"event\",\"name\":\"Transfer\",\"inputs\":["
+                + "{\"name\":\"from\",\"type\":\"address\",\"indexed\":true},"
+                + "{\"name\":\"to\",\"type\":\"address\",\"indexed\":true},"
+                + "{\"name\":\"value\",\"type\":\"uint256\",\"indexed\":false}]}");
+        final Event erc721 = new Event("Transfer", "(address,address,uint256)", new boolean[] { true, true, true });
+        final Event note = new Event("Note", "(string,uint32[2],bytes32,(bool,bytes))", new boolean[] { true, true, true, true });
+        final Event anonymous = new Event("A", "(uint8)", new boolean[] { true }, true);
+
+        final BigInteger a = BigInteger.ONE, b = BigInteger.TEN;
+        final byte[] id = new byte[32];
+        id[0] = 9;
+        final Tuple pair = new Tuple(true, new byte[] { 1, 2, 3 });
+        final TopicFilterSet set = new TopicFilterSet(Arrays.asList(
+                TopicFilter.of(0, erc20, Collections.singletonMap("from", a)),
+                TopicFilter.of(1, erc20, null, b),
+                TopicFilter.of(2, erc721, a, b, BigInteger.valueOf(7L)),
+                TopicFilter.of(3, note, "hello", new int[] { 5, 6 }, id, pair),
+                TopicFilter.of(4, anonymous, 7),
+                TopicFilter.of(5, erc20, (Object) null, null)
+        ));
+        Assert.assertEquals(6, set.size());
+
+        Assert.assertArrayEquals(new int[] { 0, 1, 5 }, set.match(new byte[][] { erc20.topics0(), topic("address", a), topic("address", b) }));
+        Assert.assertArrayEquals(new int[] { 5 }, set.match(new byte[][] { erc20.topics0(), topic("address", b), topic("address", a) }));
+        Assert.assertArrayEquals(new int[] { 2 }, set.match(new byte[][] { erc721.topics0(), topic("address", a), topic("address", b), topic("uint256", BigInteger.valueOf(7L)) }));
+        Assert.assertArrayEquals(new int[0], set.match(new byte[][] { erc721.topics0(), topic("address", a), topic("address", b), topic("uint256", BigInteger.valueOf(8L)) }));
+        Assert.assertArrayEquals(new int[] { 4 }, set.match(new byte[][] { topic("uint8", 7) }));
+        Assert.assertArrayEquals(new int[0], set.match(new byte[0][]));
+
+        final byte[] helloHash = Function.newDefaultDigest().digest(Strings.decode("hello", Strings.UTF_8));
+        final byte[] pairsHash = Function.newDefaultDigest().digest(TupleType.parse("(uint32,uint32)").encode(new Tuple(5L, 6L)).array());
+        final ByteBuffer inPlace = ByteBuffer.allocate(64);
+        inPlace.put(topic("bool", true)).put(new byte[] { 1, 2, 3 });
+        final byte[] tupleHash = Function.newDefaultDigest().digest(inPlace.array());
+        final byte[][] noteTopics = new byte[][] { note.topics0(), helloHash, pairsHash, id, tupleHash };
+        Assert.assertArrayEquals(new int[] { 3 }, set.match(noteTopics));
+        Assert.assertTrue(TopicFilter.of(6, note, helloHash, pairsHash, null, tupleHash).matches(noteTopics));
+        Assert.assertArrayEquals(id, (byte[]) note.decodeArgs(noteTopics, new byte[0]).get(2)); // bytes32 is not hashed
+
+        final int[] ids = new int[2];
+        Assert.assertEquals(3, set.match(new byte[][] { erc20.topics0(), topic("address", a), topic("address", b) }, ids));
+        Assert.assertArrayEquals(new int[] { 0, 1 }, ids);
+
+        TestUtils.assertThrown(IllegalArgumentException.class, "expected 2 indexed values but found 1", () -> TopicFilter.of(0, erc20, a));
+        TestUtils.assertThrown(IllegalArgumentException.class, "no indexed param named value", () -> TopicFilter.of(0, erc20, Collections.singletonMap("value", a)));
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal value @ 0: ", () -> TopicFilter.of(0, anonymous, 256));
     }
 }
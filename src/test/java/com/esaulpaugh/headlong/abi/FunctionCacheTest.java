@@ -0,0 +1,81 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.esaulpaugh.headlong.TestUtils;
+import com.joemelsha.crypto.hash.Keccak;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class FunctionCacheTest {
+
+    @Test
+    public void testHitsAndEvictions() throws Throwable {
+        FunctionCache cache = new FunctionCache(1);
+        Function transfer = cache.get("transfer(address,uint256)");
+        Assert.assertEquals(new Function("transfer(address,uint256)"), transfer);
+        Assert.assertSame(transfer, cache.get("transfer(address,uint256)"));
+        Assert.assertNotSame(transfer, cache.get("transfer(address,uint256)", "(bool)"));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, cache.evictionCount());
+
+        Assert.assertNotSame(transfer, cache.get("transfer(address,uint256)"));
+        Assert.assertEquals(1L, cache.hitCount());
+        Assert.assertEquals(3L, cache.missCount());
+        Assert.assertEquals(2L, cache.evictionCount());
+        Assert.assertEquals(0.25, cache.hitRate(), 0.0);
+
+        Function keccak512 = cache.get(Function.Type.FUNCTION, "transfer(address,uint256)", null, new Keccak(512));
+        Assert.assertEquals("Keccak-512", keccak512.getHashAlgorithm());
+        Assert.assertSame(keccak512, cache.get(Function.Type.FUNCTION, "transfer(address,uint256)", null, new Keccak(512)));
+
+        TestUtils.assertThrown(ParseException.class, "unrecognized type", () -> cache.get("f(uint7)"));
+        Assert.assertEquals(1, cache.size());
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        TestUtils.assertThrown(IllegalArgumentException.class, "maxSize must be positive. found: 0", () -> new FunctionCache(0));
+    }
+
+    @Test
+    public void testCapacity() throws ParseException {
+        for (int maxSize : new int[] { 1, 3, 17, 100 }) {
+            final FunctionCache cache = new FunctionCache(maxSize);
+            for (int i = 0; i < 2_000; i++) {
+                cache.get("f" + i + "()");
+            }
+            Assert.assertEquals(maxSize, cache.maxSize());
+            Assert.assertEquals(maxSize, cache.size()); // every segment is full, and together they hold exactly maxSize
+            Assert.assertEquals(2_000 - maxSize, cache.evictionCount());
+        }
+    }
+
+    @Test
+    public void concurrentGets() throws InterruptedException {
+        final FunctionCache cache = new FunctionCache(64);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10_000; i++) {
+                        final String sig = "f" + (i % 200) + "(uint256)";
+                        if(!cache.get(sig).getCanonicalSignature().equals(sig)) {
+                            throw new AssertionError(sig);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(40_000L, cache.hitCount() + cache.missCount());
+        Assert.assertTrue(cache.size() <= cache.maxSize());
+        Assert.assertTrue(cache.evictionCount() > 0);
+    }
+}
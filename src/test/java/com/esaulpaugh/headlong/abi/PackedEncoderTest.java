@@ -57,6 +57,66 @@ public class PackedEncoderTest {
 
     }
 
+    @Test
+    public void testPackedMultiByteString() throws ParseException {
+        TupleType tupleType = TupleType.parse("(string,string[],bool)");
+
+        Tuple test = new Tuple("\u00e9\u20ac", new String[] { "\ud83d\ude00", "a" }, true);
+
+        byte[] dest = tupleType.encodePacked(test);
+
+        Assert.assertArrayEquals(FastHex.decode("c3a9e282ac" + "f09f988061" + "01"), dest);
+    }
+
+    @Test
+    public void testPackedBigIntegers() throws ParseException {
+        TupleType tupleType = TupleType.parse("(bool,int72,uint256)");
+
+        Tuple test = new Tuple(true, BigInteger.valueOf(-300L), BigInteger.ONE.shiftLeft(255));
+
+        byte[] dest = tupleType.encodePacked(test);
+
+        Assert.assertArrayEquals(FastHex.decode("01" + "fffffffffffffffed4" + "8000000000000000000000000000000000000000000000000000000000000000"), dest);
+        Assert.assertEquals(test, PackedDecoder.decode(tupleType, dest));
+    }
+
+    @Test
+    public void testPackedUint256HighBit() throws ParseException {
+        TupleType tupleType = TupleType.parse("(uint8,uint256)");
+        byte[] dest = tupleType.encodePacked(new Tuple(7, BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE)));
+        // the leading zero byte of BigInteger.toByteArray() must not be written over the preceding field
+        Assert.assertArrayEquals(FastHex.decode("07" + "ffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff"), dest);
+    }
+
+    @Test
+    public void testPackedNegativeMultiByte() throws ParseException {
+        TupleType tupleType = TupleType.parse("(int72,int80)");
+        byte[] dest = tupleType.encodePacked(new Tuple(BigInteger.valueOf(-300L), BigInteger.valueOf(-65536L)));
+        Assert.assertArrayEquals(FastHex.decode("fffffffffffffffed4" + "ffffffffffffffff0000"), dest);
+    }
+
+    @Test
+    public void testPackedDecodeUnsignedHighBit() throws ParseException {
+        TupleType tupleType = TupleType.parse("(uint72,uint256)");
+        Tuple test = new Tuple(BigInteger.ONE.shiftLeft(71), BigInteger.ONE.shiftLeft(255).add(BigInteger.TEN));
+        Assert.assertEquals(test, PackedDecoder.decode(tupleType, tupleType.encodePacked(test)));
+    }
+
+    @Test
+    public void testPackedUInt256Arrays() throws ParseException {
+        TupleType tupleType = TupleType.parse("(uint256[][])");
+        Tuple uint256s = new Tuple((Object) new UInt256[][] { { UInt256.valueOf(1L), UInt256.valueOf(BigInteger.ONE.shiftLeft(255)) } });
+        Tuple bigIntegers = new Tuple((Object) new BigInteger[][] { { BigInteger.ONE, BigInteger.ONE.shiftLeft(255) } });
+        Assert.assertArrayEquals(tupleType.encodePacked(bigIntegers), tupleType.encodePacked(uint256s));
+        Assert.assertEquals(tupleType.validate(bigIntegers), tupleType.validate(uint256s));
+        try {
+            tupleType.validate(new Tuple((Object) new Long[][] { { 1L } }));
+            Assert.fail();
+        } catch (IllegalArgumentException iae) {
+            Assert.assertTrue(iae.getMessage(), iae.getMessage().contains("class mismatch"));
+        }
+    }
+
     @Test
     public void testTest() throws ParseException {
 
@@ -0,0 +1,137 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.esaulpaugh.headlong.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SelectorIndexTest {
+
+    @Test
+    public void testDispatch() throws Throwable {
+        Function transfer = new Function("transfer(address,uint256)");
+        Function burn = new Function("burn(uint256)");
+        Function collate = new Function("collate_propagate_storage(bytes16)"); // same selector as burn
+        Assert.assertArrayEquals(burn.selector(), collate.selector());
+
+        SelectorIndex index = new SelectorIndex(Arrays.asList(transfer, collate, burn));
+        Assert.assertFalse(index.add(new Function("burn(uint256)")));
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(Arrays.asList(collate, burn), index.lookup(burn.selector()));
+        Assert.assertEquals(Collections.emptyList(), index.lookup(0));
+
+        SelectorIndex.Call call = index.decode((ByteBuffer) transfer.encodeCallWithArgs(BigInteger.TEN, BigInteger.ONE).flip());
+        Assert.assertEquals(transfer, call.getFunction());
+        Assert.assertEquals(new Tuple(BigInteger.TEN, BigInteger.ONE), call.getArgs());
+
+        call = index.decode((ByteBuffer) burn.encodeCallWithArgs(BigInteger.ONE).flip());
+        Assert.assertEquals(collate, call.getFunction()); // added first, and any 32 bytes decode as either
+
+        MessageDigest zeros = new MessageDigest("zeros") {
+            @Override
+            protected void engineUpdate(byte input) {
+            }
+
+            @Override
+            protected void engineUpdate(byte[] input, int offset, int len) {
+            }
+
+            @Override
+            protected byte[] engineDigest() {
+                return new byte[32];
+            }
+
+            @Override
+            protected int engineDigest(byte[] buf, int offset, int len) {
+                Arrays.fill(buf, offset, offset + len, (byte) 0);
+                return len;
+            }
+
+            @Override
+            protected void engineReset() {
+            }
+        };
+        Function a = new Function(Function.Type.FUNCTION, "a(bool)", "()", zeros);
+        Function b = new Function(Function.Type.FUNCTION, "b(uint8)", "()", zeros);
+        index.addAll(Arrays.asList(a, b));
+        ByteBuffer forB = (ByteBuffer) b.encodeCallWithArgs(200).flip();
+        call = index.decode(forB);
+        Assert.assertEquals(b, call.getFunction()); // a fails on the illegal boolean
+        Assert.assertEquals(new Tuple(200), call.getArgs());
+        Assert.assertEquals(forB.limit(), forB.position());
+
+        TestUtils.assertThrown(IllegalArgumentException.class, "unknown selector: 00000001", () -> index.decode(ByteBuffer.wrap(new byte[] { 0, 0, 0, 1 })));
+        TestUtils.assertThrown(IllegalArgumentException.class, "call too short: 3 bytes", () -> index.decode(ByteBuffer.allocate(3)));
+        ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(burn.selector(), 20));
+        TestUtils.assertThrown(IllegalArgumentException.class, "no function with selector 42966c68 could decode the call", () -> index.decode(truncated));
+        Assert.assertEquals(0, truncated.position());
+    }
+
+    @Test
+    public void concurrentReads() throws ParseException, InterruptedException {
+        final List<Function> functions = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            functions.add(new Function("f" + i + "(uint256)"));
+        }
+        final SelectorIndex index = new SelectorIndex(functions.subList(0, 100));
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Function> missing = new AtomicReference<>();
+        final Thread[] readers = new Thread[3];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                int i = 0;
+                while (!done.get()) {
+                    final Function f = functions.get(i++ % 100);
+                    if(!index.lookup(f.selector()).contains(f)) {
+                        missing.set(f);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        for (Function f : functions.subList(100, functions.size())) {
+            index.add(f);
+            Assert.assertTrue(index.lookup(f.selector()).contains(f));
+        }
+        done.set(true);
+        for (Thread t : readers) {
+            t.join();
+        }
+        Assert.assertNull(missing.get());
+        Assert.assertEquals(functions.size(), index.size());
+        for (Function f : functions) {
+            Assert.assertEquals(f, index.decode((ByteBuffer) f.encodeCallWithArgs(BigInteger.ONE).flip()).getFunction());
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void largeIndex() throws ParseException {
+        final int n = 160_000;
+        final List<Function> functions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            functions.add(new Function("f" + i + "()"));
+        }
+        final long start = System.nanoTime();
+        final SelectorIndex index = new SelectorIndex(functions);
+        for (Function f : functions) {
+            Assert.assertTrue(index.lookup(f.selector()).contains(f));
+        }
+        int misses = 0;
+        for (int i = 0; i < n; i++) {
+            misses += index.lookup(0x5EED0000 + i).isEmpty() ? 1 : 0;
+        }
+        System.out.println("indexed and looked up " + n + " functions in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        Assert.assertEquals(n, index.size());
+        Assert.assertTrue(misses > n - 10);
+    }
+}
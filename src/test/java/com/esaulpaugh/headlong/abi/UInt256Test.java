@@ -0,0 +1,134 @@
+package com.esaulpaugh.headlong.abi;
+
+import com.esaulpaugh.headlong.TestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Random;
+
+public class UInt256Test {
+
+    private static final BigInteger MODULUS = BigInteger.ONE.shiftLeft(256);
+
+    private static BigInteger random(Random r) {
+        BigInteger val = new BigInteger(r.nextInt(257), r); // [0, 2^256)
+        return r.nextBoolean() ? val : val.shiftRight(1).negate();
+    }
+
+    @Test
+    public void arithmeticMatchesBigInteger() {
+        Random r = new Random(MonteCarloTest.seed(System.nanoTime()));
+        for (int i = 0; i < 50_000; i++) {
+            BigInteger a = random(r);
+            BigInteger b = random(r);
+            UInt256 x = UInt256.valueOf(a);
+            UInt256 y = UInt256.valueOf(b);
+            BigInteger ua = a.mod(MODULUS);
+            BigInteger ub = b.mod(MODULUS);
+
+            Assert.assertEquals(ua, x.toBigInteger());
+            BigInteger signed = ua.testBit(255) ? ua.subtract(MODULUS) : ua;
+            Assert.assertEquals(signed, x.toSignedBigInteger());
+            Assert.assertEquals(ua.bitLength(), x.bitLength());
+            Assert.assertEquals(signed.bitLength(), x.signedBitLength());
+            Assert.assertEquals(ua.add(ub).mod(MODULUS), x.add(y).toBigInteger());
+            Assert.assertEquals(ua.subtract(ub).mod(MODULUS), x.subtract(y).toBigInteger());
+            Assert.assertEquals(Integer.signum(ua.compareTo(ub)), Integer.signum(x.compareTo(y)));
+            Assert.assertEquals(ua.longValue(), x.longValue());
+            Assert.assertEquals(ua.equals(ub), x.equals(y));
+            Assert.assertEquals(x, new UInt256(x.w0, x.w1, x.w2, x.w3));
+            Assert.assertEquals(x.hashCode(), new UInt256(x.w0, x.w1, x.w2, x.w3).hashCode());
+
+            MutableUInt256 m = new MutableUInt256(x);
+            Assert.assertEquals(ua.add(ub).mod(MODULUS), m.add(y).toUInt256().toBigInteger());
+            Assert.assertEquals(ua, m.subtract(y).toUInt256().toBigInteger());
+            Assert.assertEquals(0, m.compareTo(x));
+
+            final long l = r.nextLong();
+            Assert.assertEquals(UInt256.valueOf(BigInteger.valueOf(l)), UInt256.valueOf(l));
+        }
+    }
+
+    @Test
+    public void edgeCases() throws Throwable {
+        Assert.assertEquals(UInt256.ZERO, UInt256.MAX_VALUE.add(UInt256.ONE));
+        Assert.assertEquals(UInt256.MAX_VALUE, UInt256.ZERO.subtract(UInt256.ONE));
+        Assert.assertEquals(MODULUS.subtract(BigInteger.ONE), UInt256.MAX_VALUE.toBigInteger());
+        Assert.assertEquals(BigInteger.ONE.negate(), UInt256.MAX_VALUE.toSignedBigInteger());
+        Assert.assertEquals(UInt256.MAX_VALUE, UInt256.valueOf(-1L));
+        Assert.assertTrue(UInt256.MAX_VALUE.compareTo(UInt256.ONE) > 0);
+        Assert.assertTrue(UInt256.ZERO.isZero());
+        Assert.assertEquals("115792089237316195423570985008687907853269984665640564039457584007913129639935", UInt256.MAX_VALUE.toString());
+        TestUtils.assertThrown(IllegalArgumentException.class, "out of range", () -> UInt256.valueOf(MODULUS));
+        TestUtils.assertThrown(IllegalArgumentException.class, "out of range", () -> UInt256.valueOf(BigInteger.ONE.shiftLeft(255).negate().subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    public void mutableFromBuffer() {
+        ByteBuffer bb = ByteBuffer.allocate(96);
+        bb.position(32);
+        bb.put(UInt256.MAX_VALUE.toByteArray());
+        bb.put(UInt256.valueOf(2L).toByteArray());
+        bb.position(0);
+
+        MutableUInt256 sum = new MutableUInt256();
+        sum.add(bb, 32).add(bb, 64);
+        Assert.assertEquals(UInt256.ONE, sum.toUInt256());
+        Assert.assertEquals(0, bb.position());
+        Assert.assertEquals(UInt256.valueOf(2L), sum.set(bb, 64).toUInt256());
+        Assert.assertEquals(256, sum.set(bb, 32).bitLength());
+    }
+
+    @Test
+    public void encodeMatchesBigInteger() throws ParseException {
+        Function f = new Function("f(uint256,int256,address,uint72,int72,uint256[],int128[2],uint256[][],(uint160,int256[]))");
+
+        BigInteger big = BigInteger.ONE.shiftLeft(255).add(BigInteger.TEN);
+        BigInteger addr = BigInteger.ONE.shiftLeft(160).subtract(BigInteger.ONE);
+        BigInteger neg = BigInteger.valueOf(-300L);
+        Tuple bigInts = new Tuple(
+                big, neg, addr, BigInteger.valueOf(70000L), neg,
+                new BigInteger[] { big, BigInteger.ZERO },
+                new BigInteger[] { neg, BigInteger.ONE },
+                new BigInteger[][] { new BigInteger[] { big }, new BigInteger[0] },
+                new Tuple(addr, new BigInteger[] { neg })
+        );
+        Tuple uint256s = new Tuple(
+                UInt256.valueOf(big), UInt256.valueOf(neg), UInt256.valueOf(addr), UInt256.valueOf(70000L), UInt256.valueOf(neg),
+                new UInt256[] { UInt256.valueOf(big), UInt256.ZERO },
+                new UInt256[] { UInt256.valueOf(neg), UInt256.ONE },
+                new UInt256[][] { new UInt256[] { UInt256.valueOf(big) }, new UInt256[0] },
+                new Tuple(UInt256.valueOf(addr), new UInt256[] { UInt256.valueOf(neg) })
+        );
+
+        ByteBuffer expected = f.encodeCall(bigInts);
+        Assert.assertEquals(expected, f.encodeCall(uint256s));
+
+        expected.flip();
+        Assert.assertEquals(bigInts, f.decodeCall(expected));
+        expected.rewind();
+        Tuple decoded = f.decodeCall(expected, true);
+        Assert.assertEquals(uint256s, decoded);
+        Assert.assertEquals(UInt256[][].class, decoded.get(7).getClass());
+
+        TupleType packedType = TupleType.parse("(uint256,int72,int128[],address)");
+        Assert.assertArrayEquals(
+                packedType.encodePacked(new Tuple(big, neg, new BigInteger[] { neg }, addr)),
+                packedType.encodePacked(new Tuple(UInt256.valueOf(big), UInt256.valueOf(neg), new UInt256[] { UInt256.valueOf(neg) }, UInt256.valueOf(addr)))
+        );
+    }
+
+    @Test
+    public void validation() throws Throwable {
+        Function f = new Function("f(uint72,int72[])");
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal arg @ 0: exceeds bit limit: 73 > 72",
+                () -> f.encodeCallWithArgs(UInt256.ONE.add(UInt256.valueOf(BigInteger.ONE.shiftLeft(72))), new UInt256[0]));
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal arg @ 0: exceeds bit limit: 256 > 72",
+                () -> f.encodeCallWithArgs(UInt256.valueOf(-1L), new UInt256[0]));
+        TestUtils.assertThrown(IllegalArgumentException.class, "illegal arg @ 1: index 1: exceeds bit limit: 73 > 72",
+                () -> f.encodeCallWithArgs(UInt256.ONE, new UInt256[] { UInt256.valueOf(-1L), UInt256.valueOf(BigInteger.ONE.shiftLeft(72).negate().subtract(BigInteger.ONE)) }));
+    }
+}
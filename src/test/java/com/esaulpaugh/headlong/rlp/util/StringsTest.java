@@ -4,7 +4,9 @@ import com.esaulpaugh.headlong.util.Strings;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Random;
 
 import static com.esaulpaugh.headlong.util.Strings.BASE64;
@@ -40,6 +42,38 @@ public class StringsTest {
         }
     }
 
+    @Test
+    public void utf8LengthAndPut() {
+        Random r = new Random(new SecureRandom().nextLong());
+        final char[] special = new char[] { '\u0000', '\u007f', '\u0080', '\u07ff', '\u0800', '\uffff', '\ud800', '\udbff', '\udc00', '\udfff' };
+        ByteBuffer bb = ByteBuffer.allocate(4 * 100);
+        for (int j = 0; j < 20_000; j++) {
+            char[] chars = new char[r.nextInt(100)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = r.nextBoolean() ? special[r.nextInt(special.length)] : (char) r.nextInt(1 << (1 + r.nextInt(16)));
+            }
+            String s = new String(chars);
+            byte[] expected = s.getBytes(Strings.CHARSET_UTF_8);
+            Assert.assertEquals(expected.length, Strings.utf8Length(s));
+            bb.clear();
+            Strings.putUtf8(s, bb);
+            Assert.assertArrayEquals(expected, Arrays.copyOf(bb.array(), bb.position()));
+            byte[] arr = new byte[1 + expected.length];
+            Assert.assertEquals(arr.length, Strings.putUtf8(s, arr, 1));
+            Assert.assertArrayEquals(expected, Arrays.copyOfRange(arr, 1, arr.length));
+            Assert.assertEquals(expected.length, Strings.calcDecodedLen(s, UTF_8));
+            final ByteBuffer chunk = ByteBuffer.allocate(7);
+            final ByteBuffer chunked = ByteBuffer.allocate(expected.length);
+            for (int i = 0; i < s.length(); ) {
+                chunk.clear();
+                i = Strings.putUtf8(s, i, chunk);
+                chunk.flip();
+                chunked.put(chunk);
+            }
+            Assert.assertArrayEquals(expected, chunked.array());
+        }
+    }
+
     @Test
     public void base64() {
         Random r = new Random(new SecureRandom().nextLong());